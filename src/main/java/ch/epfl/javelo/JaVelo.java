@@ -2,16 +2,21 @@ package ch.epfl.javelo;
 
 import ch.epfl.javelo.data.Graph;
 import ch.epfl.javelo.gui.AnnotatedMapManager;
+import ch.epfl.javelo.gui.ElevationProfileCanvasManager;
 import ch.epfl.javelo.gui.ElevationProfileManager;
 import ch.epfl.javelo.gui.ErrorManager;
 import ch.epfl.javelo.gui.RouteBean;
 import ch.epfl.javelo.gui.TileManager;
+import ch.epfl.javelo.gui.Waypoint;
 import ch.epfl.javelo.routing.CityBikeCF;
 import ch.epfl.javelo.routing.CostFunction;
 import ch.epfl.javelo.routing.GpxGenerator;
+import ch.epfl.javelo.routing.GpxReader;
+import ch.epfl.javelo.routing.MemoizedCostFunction;
 import ch.epfl.javelo.routing.RouteComputer;
 import javafx.application.Application;
 import javafx.beans.binding.Bindings;
+import javafx.beans.property.ReadOnlyDoubleProperty;
 import javafx.geometry.Orientation;
 import javafx.scene.Scene;
 import javafx.scene.control.Menu;
@@ -19,6 +24,7 @@ import javafx.scene.control.MenuBar;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.SplitPane;
 import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.Pane;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 import javafx.stage.FileChooser;
@@ -29,12 +35,16 @@ import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 
 public final class JaVelo extends Application {
 
     private static final int MINIMUM_WINDOW_WIDTH = 800;
     private static final int MINIMUM_WINDOW_HEIGHT = 600;
 
+    //Propriété système choisissant le gestionnaire de profil : "canvas" (par défaut) ou "nodes"
+    private static final String PROFILE_RENDERER_PROPERTY = "javelo.profile.renderer";
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -51,24 +61,39 @@ public final class JaVelo extends Application {
         TileManager tileManager = new TileManager(cacheBasePath, tileServerHost);
 
         Graph graph = Graph.loadFrom("ch_west");
-        CostFunction costFunction = new CityBikeCF(graph);
+        CostFunction costFunction = new MemoizedCostFunction(graph, new CityBikeCF(graph));
         RouteBean routeBean = new RouteBean(new RouteComputer(graph, costFunction));
 
         //Création des gestionnaires graphiques
         ErrorManager errorManager = new ErrorManager();
         AnnotatedMapManager map = new AnnotatedMapManager(graph, tileManager, routeBean, errorManager::displayError);
-        ElevationProfileManager profile = new ElevationProfileManager(routeBean.elevationProfileProperty(),
-                                                                      routeBean.highlightedPositionProperty());
+
+        /* Profil dessiné sur un canevas, ou, si la propriété système javelo.profile.renderer vaut "nodes", au moyen de
+        nœuds JavaFX par ElevationProfileManager */
+        Pane profilePane;
+        ReadOnlyDoubleProperty mousePositionOnProfile;
+        if ("nodes".equals(System.getProperty(PROFILE_RENDERER_PROPERTY))) {
+            ElevationProfileManager profile = new ElevationProfileManager(routeBean.elevationProfileProperty(),
+                                                                          routeBean.highlightedPositionProperty());
+            profilePane = profile.pane();
+            mousePositionOnProfile = profile.mousePositionOnProfileProperty();
+        } else {
+            ElevationProfileCanvasManager profile = new ElevationProfileCanvasManager(
+                    routeBean.elevationProfileProperty(), routeBean.highlightedPositionProperty());
+            profilePane = profile.pane();
+            mousePositionOnProfile = profile.mousePositionOnProfileProperty();
+        }
 
         //Création du splitPane qui contiendra la carte annotée et le profil
         SplitPane splitPane = new SplitPane(map.pane());
         splitPane.setOrientation(Orientation.VERTICAL);
-        SplitPane.setResizableWithParent(profile.pane(), false);
+        SplitPane.setResizableWithParent(profilePane, false);
 
         //Création de la barre de menus permettant d'exporter l'itinéraire au format GPX
         MenuItem menuItem = new MenuItem("Exporter GPX");
+        MenuItem importItem = new MenuItem("Importer GPX");
         Menu menu = new Menu("Fichier");
-        menu.getItems().add(menuItem);
+        menu.getItems().addAll(menuItem, importItem);
         MenuBar menuBar = new MenuBar(menu);
 
         //Paramétrage de l'action à effectuer lors du clic sur le sous-menu
@@ -86,12 +111,31 @@ public final class JaVelo extends Application {
             }
         });
 
+        //Importation d'une trace ou d'un itinéraire GPX, dont les points deviennent les points de passage
+        importItem.setOnAction(event -> {
+            FileChooser fileChooser = new FileChooser();
+            fileChooser.setTitle("Importer une trace ou un itinéraire GPX");
+            fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("GPX Files", "*.gpx"));
+            File file = fileChooser.showOpenDialog(stage);
+            if (file != null) {
+                try {
+                    List<Waypoint> waypoints = Waypoint.fromGpx(graph, GpxReader.readGpx(file.toPath()));
+                    if (waypoints.size() < 2) errorManager.displayError("Aucun itinéraire en Suisse dans ce fichier");
+                    else routeBean.getWaypoints().setAll(waypoints);
+                } catch (IOException e) {
+                    errorManager.displayError("Fichier GPX invalide");
+                } catch (IllegalArgumentException e) {
+                    errorManager.displayError("Plus de " + Waypoint.MAX_GPX_WAYPOINTS + " points dans cet itinéraire");
+                }
+            }
+        });
+
         /* Lien entre la position mise en évidence et :
             - la position de la souris sur l'itinéraire si celle-ci est >= 0
             - la position de la souris sur le profil sinon  */
         routeBean.highlightedPositionProperty().bind(Bindings.when(map.mousePositionOnRouteProperty().greaterThanOrEqualTo(0))
                                                              .then(map.mousePositionOnRouteProperty())
-                                                             .otherwise(profile.mousePositionOnProfileProperty()));
+                                                             .otherwise(mousePositionOnProfile));
 
 
         // Lien entre la possibilité de cliquer sur le sous-menu "Export GPX" et l'existence d'un itinéraire
@@ -100,9 +144,9 @@ public final class JaVelo extends Application {
         //Listener sur l'itinéraire pour ajouter ou retirer le profil en long du panneau principal en fonction de son existence
         routeBean.routeProperty().addListener((o, oldS, newS) -> {
             if (newS == null)
-                splitPane.getItems().remove(profile.pane());
+                splitPane.getItems().remove(profilePane);
             if (oldS == null && newS != null)
-                splitPane.getItems().add(profile.pane());
+                splitPane.getItems().add(profilePane);
         });
 
         /* Création du panneau central de la scène, un stackPane avec
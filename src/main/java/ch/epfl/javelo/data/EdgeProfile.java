@@ -0,0 +1,127 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.Bits;
+import ch.epfl.javelo.Math2;
+import ch.epfl.javelo.Q28_4;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Classe représentant le profil en long d'une arête du graphe JaVelo, évalué paresseusement : au lieu de décoder la
+ * totalité de ses échantillons dans un tableau, seuls les deux échantillons voisins de la position demandée sont lus
+ * directement dans la mémoire tampon elevations. Le résultat est identique à celui de Functions.sampled appliquée au
+ * tableau retourné par GraphEdges.profileSamples.
+ *
+ * @author Jean Perbet (341418)
+ * @author Cassio Manuguerra (346232)
+ */
+final class EdgeProfile implements DoubleUnaryOperator {
+
+    //Nombre d'échantillons séparant deux points de contrôle d'un profil compressé
+    private static final int CHECKPOINT_SPACING = 16;
+
+    private final GraphEdges edges;
+    private final int profileType;
+    private final int firstSampleId;
+    private final int sampleCount;
+    private final boolean inverted;
+    private final double length;
+
+    //Altitudes des échantillons d'index CHECKPOINT_SPACING, 2 * CHECKPOINT_SPACING, etc., calculées au premier besoin
+    private volatile float[] checkpoints;
+
+    /**
+     * Constructeur du profil en long paresseux d'une arête possédant un profil.
+     *
+     * @param edges  les arêtes du graphe JaVelo
+     * @param edgeId l'identité de l'arête, qui doit posséder un profil
+     */
+    EdgeProfile(GraphEdges edges, int edgeId) {
+        this.edges = edges;
+        this.profileType = edges.profileType(edgeId);
+        this.firstSampleId = edges.firstSampleId(edgeId);
+        this.sampleCount = edges.sampleCount(edgeId);
+        this.inverted = edges.isInverted(edgeId);
+        this.length = edges.length(edgeId);
+    }
+
+    @Override
+    public double applyAsDouble(double operand) {
+        if (operand < 0 || sampleCount == 1) return sample(0);
+        if (operand >= length) return sample(sampleCount - 1);
+
+        double spacing = length / (sampleCount - 1);
+        double proportion = (operand % spacing) / spacing;
+        int minBorn = (int) Math2.clamp(0, operand / spacing, sampleCount - 2);
+        return Math2.interpolate(sample(minBorn), sample(minBorn + 1), proportion);
+    }
+
+    //---------------------------------------------- Private ----------------------------------------------//
+
+    /**
+     * Fonction privée retournant l'échantillon d'index donné du profil, dans le sens de parcours de l'arête.
+     *
+     * @param index l'index de l'échantillon, dans le sens de l'arête
+     * @return l'altitude de l'échantillon d'index donné
+     */
+    private float sample(int index) {
+        int storedIndex = inverted ? sampleCount - 1 - index : index;
+        if (profileType == 1) return Q28_4.asFloat(Short.toUnsignedInt(edges.elevation(firstSampleId + storedIndex)));
+
+        //Pour un profil compressé, décodage à partir du point de contrôle précédent, qui en est distant d'au plus CHECKPOINT_SPACING
+        int checkpoint = storedIndex / CHECKPOINT_SPACING;
+        int fromIndex = checkpoint * CHECKPOINT_SPACING;
+        float fromSample = checkpoint == 0 ? firstSample() : checkpoints()[checkpoint - 1];
+        return decode(fromIndex, fromSample, storedIndex);
+    }
+
+    /**
+     * Fonction privée retournant les points de contrôle du profil compressé, en les calculant lors du premier appel.
+     *
+     * @return le tableau des altitudes des points de contrôle
+     */
+    private float[] checkpoints() {
+        float[] result = checkpoints;
+        if (result == null) {
+            result = new float[(sampleCount - 1) / CHECKPOINT_SPACING];
+            float currentSample = firstSample();
+            for (int i = 0; i < result.length; i++) {
+                currentSample = decode(i * CHECKPOINT_SPACING, currentSample, (i + 1) * CHECKPOINT_SPACING);
+                result[i] = currentSample;
+            }
+            checkpoints = result;
+        }
+        return result;
+    }
+
+    /**
+     * Fonction privée retournant le premier échantillon stocké du profil.
+     *
+     * @return l'altitude du premier échantillon stocké
+     */
+    private float firstSample() {
+        return Q28_4.asFloat(Short.toUnsignedInt(edges.elevation(firstSampleId)));
+    }
+
+    /**
+     * Fonction privée ajoutant à l'altitude de l'échantillon stocké d'index fromIndex les différences d'altitude
+     * suivantes, jusqu'à l'échantillon stocké d'index toIndex. Les additions sont faites dans le même ordre que
+     * celles de GraphEdges.profileSamples, ce qui garantit des valeurs identiques.
+     *
+     * @param fromIndex  l'index de l'échantillon stocké de départ
+     * @param fromSample l'altitude de l'échantillon stocké de départ
+     * @param toIndex    l'index de l'échantillon stocké recherché
+     * @return l'altitude de l'échantillon stocké d'index toIndex
+     */
+    private float decode(int fromIndex, float fromSample, int toIndex) {
+        int samplesPerShort = GraphEdges.samplesPerShort(profileType);
+        int bitsPerSample = Short.SIZE / samplesPerShort;
+        float currentSample = fromSample;
+        for (int i = fromIndex + 1; i <= toIndex; i++) {
+            short packed = edges.elevation(firstSampleId + 1 + (i - 1) / samplesPerShort);
+            int j = samplesPerShort - 1 - (i - 1) % samplesPerShort;
+            currentSample += Q28_4.asFloat(Bits.extractSigned(packed, bitsPerSample * j, bitsPerSample));
+        }
+        return currentSample;
+    }
+}
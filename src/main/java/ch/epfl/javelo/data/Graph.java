@@ -6,14 +6,12 @@ import ch.epfl.javelo.projection.PointCh;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
-import java.nio.LongBuffer;
-import java.nio.ShortBuffer;
-import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.DoubleUnaryOperator;
 
 /**
@@ -29,6 +27,10 @@ public final class Graph {
     private final GraphSectors sectors;
     private final GraphEdges edges;
     private final List<AttributeSet> attributeSets;
+    private final AtomicReferenceArray<CachedProfile> profileCache;
+    private final OsmIdIndex osmIdIndex;
+
+    private static final int PROFILE_CACHE_BITS = 14;
 
     /**
      * Constructeur public d'un graphe JaVelo.
@@ -39,10 +41,26 @@ public final class Graph {
      * @param attributeSets les ensembles d'attributs correspondant aux entités précédentes
      */
     public Graph(GraphNodes nodes, GraphSectors sectors, GraphEdges edges, List<AttributeSet> attributeSets) {
+        this(nodes, sectors, edges, attributeSets, null);
+    }
+
+    /**
+     * Constructeur d'un graphe JaVelo connaissant l'identité OSM de ses nœuds.
+     *
+     * @param nodes         le graphe des nœuds à implémenter dans le graphe JaVelo
+     * @param sectors       le graphe des secteurs à implémenter dans le graphe JaVelo
+     * @param edges         le graphe des arêtes à implémenter dans le graphe JaVelo
+     * @param attributeSets les ensembles d'attributs correspondant aux entités précédentes
+     * @param osmIdIndex    la correspondance entre les identités des nœuds et leurs identités OSM, ou null
+     */
+    Graph(GraphNodes nodes, GraphSectors sectors, GraphEdges edges, List<AttributeSet> attributeSets,
+          OsmIdIndex osmIdIndex) {
         this.nodes = nodes;
         this.sectors = sectors;
         this.edges = edges;
         this.attributeSets = List.copyOf(attributeSets);
+        this.profileCache = new AtomicReferenceArray<>(1 << PROFILE_CACHE_BITS);
+        this.osmIdIndex = osmIdIndex;
     }
 
     /**
@@ -65,23 +83,40 @@ public final class Graph {
         InputStream attributeSetsStream = Graph.class.getResourceAsStream("/" + dirName + "/attributes.bin");
 
         //Chargement des différents buffers nécessaires à la création des différents sous-graphes
-        IntBuffer nodesBuffer = ByteBuffer.wrap(Objects.requireNonNull(nodesStream).readAllBytes()).asIntBuffer();
+        GraphBuffer nodesBuffer = GraphBuffer.of(ByteBuffer.wrap(Objects.requireNonNull(nodesStream).readAllBytes()));
         ByteBuffer sectorsBuffer = ByteBuffer.wrap(Objects.requireNonNull(sectorsStream).readAllBytes());
-        ByteBuffer edgesBuffer = ByteBuffer.wrap(Objects.requireNonNull(edgesStream).readAllBytes());
-        IntBuffer profileIdsBuffer = ByteBuffer.wrap(Objects.requireNonNull(profileIdsStream).readAllBytes()).asIntBuffer();
-        ShortBuffer elevationsBuffer = ByteBuffer.wrap(Objects.requireNonNull(elevationsStream).readAllBytes()).asShortBuffer();
-        LongBuffer attributeSets = ByteBuffer.wrap(Objects.requireNonNull(attributeSetsStream).readAllBytes()).asLongBuffer();
-
-        //Mise dans une liste de tous les AttributeSet du buffer correspondant
-        List<AttributeSet> attributeSetsList = new ArrayList<>(attributeSets.capacity());
-        for (int i = 0; i < attributeSets.capacity(); i++)
-            attributeSetsList.add(new AttributeSet(attributeSets.get(i)));
+        GraphBuffer edgesBuffer = GraphBuffer.of(ByteBuffer.wrap(Objects.requireNonNull(edgesStream).readAllBytes()));
+        GraphBuffer profileIdsBuffer = GraphBuffer.of(ByteBuffer.wrap(Objects.requireNonNull(profileIdsStream).readAllBytes()));
+        GraphBuffer elevationsBuffer = GraphBuffer.of(ByteBuffer.wrap(Objects.requireNonNull(elevationsStream).readAllBytes()));
+        GraphBuffer attributeSets = GraphBuffer.of(ByteBuffer.wrap(Objects.requireNonNull(attributeSetsStream).readAllBytes()));
 
         //Création du graphe total JaVelo
         return new Graph(new GraphNodes(nodesBuffer),
                 new GraphSectors(sectorsBuffer),
                 new GraphEdges(edgesBuffer, profileIdsBuffer, elevationsBuffer),
-                attributeSetsList);
+                attributeSetsList(attributeSets),
+                OsmIdIndex.of(Graph.class.getResourceAsStream("/" + dirName + "/" + OsmIdIndex.IDS_FILE)));
+    }
+
+    /**
+     * Fonction permettant de charger un graphe JaVelo entier à partir d'un répertoire du système de fichiers, dont les
+     * fichiers sont "mappés" en mémoire plutôt que lus : leur taille n'est donc pas limitée à 2 Go. L'identité OSM des
+     * nœuds n'est connue que si le répertoire contient le fichier nodes_osmid.bin.
+     *
+     * @param basePath le chemin d'accès au répertoire contenant les fichiers du graphe
+     * @return un graphe JaVelo contenant toutes les données du répertoire
+     * @throws IOException en cas d'erreur d'entrée/sortie, par ex. si l'un des fichiers n'existe pas
+     */
+    public static Graph loadFrom(Path basePath) throws IOException {
+        ByteBuffer sectorsBuffer = ByteBuffer.wrap(Files.readAllBytes(basePath.resolve("sectors.bin")));
+
+        return new Graph(new GraphNodes(GraphBuffer.mapped(basePath.resolve("nodes.bin"))),
+                new GraphSectors(sectorsBuffer),
+                new GraphEdges(GraphBuffer.mapped(basePath.resolve("edges.bin")),
+                        GraphBuffer.mapped(basePath.resolve("profile_ids.bin")),
+                        GraphBuffer.mapped(basePath.resolve("elevations.bin"))),
+                attributeSetsList(GraphBuffer.mapped(basePath.resolve("attributes.bin"))),
+                OsmIdIndex.mapped(basePath));
     }
 
     /**
@@ -160,6 +195,54 @@ public final class Graph {
         return closestNodeId;
     }
 
+    /**
+     * Fonction retournant la liste de tous les secteurs ayant une intersection avec le carré centré au point donné et
+     * de côté égal au double de la distance donnée, dont les nœuds sont ceux susceptibles de se trouver à cette
+     * distance du point.
+     *
+     * @param point    le centre du carré
+     * @param distance la demi-longueur du côté du carré, en mètres
+     * @return la liste des secteurs ayant une intersection avec le carré
+     */
+    public List<GraphSectors.Sector> sectorsInArea(PointCh point, double distance) {
+        return sectors.sectorsInArea(point, distance);
+    }
+
+    /**
+     * Fonction retournant l'identité OpenStreetMap du nœud d'identité donnée, lue directement dans le fichier
+     * nodes_osmid.bin.
+     *
+     * @param nodeId l'identité du nœud dans le graphe JaVelo
+     * @return l'identité OSM du nœud
+     * @throws UnsupportedOperationException si le graphe ne connaît pas l'identité OSM de ses nœuds
+     */
+    public long osmIdOf(int nodeId) {
+        return checkedOsmIdIndex().osmIdOf(nodeId);
+    }
+
+    /**
+     * Fonction retournant l'identité du nœud provenant du nœud OpenStreetMap d'identité donnée, recherchée dans un
+     * index trié "mappé" en mémoire. Lors du premier appel, l'index accompagnant les fichiers du graphe est vérifié, et
+     * construit s'il manque ou ne correspond pas aux identités OSM des nœuds.
+     *
+     * @param osmId l'identité OSM du nœud
+     * @return l'identité du nœud dans le graphe JaVelo, ou -1 si aucun nœud du graphe ne provient de ce nœud OSM
+     * @throws UnsupportedOperationException si le graphe ne connaît pas l'identité OSM de ses nœuds
+     * @throws java.io.UncheckedIOException en cas d'erreur d'entrée/sortie lors de la construction de l'index
+     */
+    public int nodeIdOfOsm(long osmId) {
+        return checkedOsmIdIndex().nodeIdOf(osmId);
+    }
+
+    /**
+     * Fonction retournant le nombre d'arêtes dans le graphe.
+     *
+     * @return le nombre d'arêtes dans le graphe
+     */
+    public int edgeCount() {
+        return edges.count();
+    }
+
     /**
      * Fonction qui retourne l'identité du nœud destination de l'arête d'identité donnée.
      *
@@ -191,6 +274,26 @@ public final class Graph {
         return attributeSets.get(edges.attributesIndex(edgeId));
     }
 
+    /**
+     * Fonction qui retourne l'index, dans la liste retournée par attributeSets, de l'ensemble des attributs OSM
+     * attachés à l'arête d'identité donnée.
+     *
+     * @param edgeId l'identité de l'arête donnée
+     * @return l'index de l'ensemble d'attributs attaché à l'arête d'identité donnée
+     */
+    public int edgeAttributesIndex(int edgeId) {
+        return edges.attributesIndex(edgeId);
+    }
+
+    /**
+     * Fonction qui retourne la liste, non modifiable, de tous les ensembles d'attributs OSM du graphe.
+     *
+     * @return la liste des ensembles d'attributs du graphe
+     */
+    public List<AttributeSet> attributeSets() {
+        return attributeSets;
+    }
+
     /**
      * Fonction qui retourne la longueur, en mètres, de l'arête d'identité donnée.
      *
@@ -214,31 +317,57 @@ public final class Graph {
     /**
      * Fonction qui retourne le profil en long de l'arête d'identité donnée, sous la forme d'une fonction. Si l'arête
      * ne possède pas de profil, alors cette fonction doit retourner Double.NaN pour n'importe quel argument.
+     * Le profil retourné lit ses échantillons directement dans la mémoire tampon du graphe, sans les copier. Les profils
+     * sont de plus conservés dans un cache borné, à correspondance directe, qui peut être utilisé simultanément par
+     * plusieurs fils d'exécution : les points de contrôle d'une arête souvent empruntée ne sont ainsi calculés qu'une fois.
      *
      * @param edgeId l'arête d'identité donnée
      * @return le profil en long de l'arête d'identité donnée, sous la forme d'une fonction
      */
     public DoubleUnaryOperator edgeProfile(int edgeId) {
-        if (!edges.hasProfile(edgeId)) return Functions.constant(Double.NaN);
-        float[] samples = edges.profileSamples(edgeId);
-        return Functions.sampled(samples, edges.length(edgeId));
+        int slot = edgeId & (profileCache.length() - 1);
+        CachedProfile cached = profileCache.get(slot);
+        if (cached != null && cached.edgeId() == edgeId) return cached.profile();
+
+        DoubleUnaryOperator profile = edges.hasProfile(edgeId)
+                ? new EdgeProfile(edges, edgeId)
+                : Functions.constant(Double.NaN);
+        profileCache.set(slot, new CachedProfile(edgeId, profile));
+        return profile;
     }
 
     //---------------------------------------------- Private ----------------------------------------------//
 
     /**
-     * Méthode privée permettant de mapper un fichier et de le retourner en ByteBuffer.
+     * Fonction privée retournant la correspondance entre les identités des nœuds et leurs identités OSM.
      *
-     * @param path le chemin d'accès au fichier
-     * @return le ByteBuffer correspondant au fichier "mappé"
-     * @throws IOException en cas d'erreur d'entrée/sortie, par ex. si l'un des fichiers n'existe pas
+     * @return la correspondance d'identités
+     * @throws UnsupportedOperationException si le graphe ne connaît pas l'identité OSM de ses nœuds
      */
-    private static ByteBuffer mappedBuffer(Path path) throws IOException {
-        ByteBuffer mappedBuffer;
-        try (FileChannel channel = FileChannel.open(path)) {
-            mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
-        }
-        return mappedBuffer;
+    private OsmIdIndex checkedOsmIdIndex() {
+        if (osmIdIndex == null) throw new UnsupportedOperationException("Identités OSM des nœuds inconnues");
+        return osmIdIndex;
     }
 
+    /**
+     * Méthode privée permettant de mettre dans une liste tous les AttributeSet de la mémoire tampon donnée.
+     *
+     * @param attributeSets la mémoire tampon contenant les ensembles d'attributs, à raison d'un long par ensemble
+     * @return la liste des ensembles d'attributs de la mémoire tampon
+     */
+    private static List<AttributeSet> attributeSetsList(GraphBuffer attributeSets) {
+        List<AttributeSet> attributeSetsList = new ArrayList<>((int) (attributeSets.byteSize() / Long.BYTES));
+        for (long i = 0; i < attributeSets.byteSize(); i += Long.BYTES)
+            attributeSetsList.add(new AttributeSet(attributeSets.getLong(i)));
+        return attributeSetsList;
+    }
+
+    /**
+     * Enregistrement représentant une entrée du cache des profils, associant un profil à l'identité de son arête.
+     *
+     * @param edgeId  l'identité de l'arête
+     * @param profile le profil en long de l'arête
+     */
+    private record CachedProfile(int edgeId, DoubleUnaryOperator profile) {}
+
 }
\ No newline at end of file
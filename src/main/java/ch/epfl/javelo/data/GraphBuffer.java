@@ -0,0 +1,121 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.Preconditions;
+import ch.epfl.javelo.data.GraphBuffers.Chunked;
+import ch.epfl.javelo.data.GraphBuffers.OfInts;
+import ch.epfl.javelo.data.GraphBuffers.OfShorts;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * Interface représentant une mémoire tampon en lecture seule dont les octets sont adressés par des index de type long,
+ * ce qui permet aux sous-graphes JaVelo de dépasser la limite de 2 Go imposée par les ByteBuffer de Java.
+ * Tous les index sont exprimés en octets, et les valeurs sont lues en big-endian, comme dans les fichiers du graphe.
+ *
+ * @author Jean Perbet (341418)
+ * @author Cassio Manuguerra (346232)
+ */
+public sealed interface GraphBuffer permits Chunked, OfInts, OfShorts {
+
+    /**
+     * Fonction retournant la taille de la mémoire tampon, en octets.
+     *
+     * @return la taille de la mémoire tampon, en octets
+     */
+    long byteSize();
+
+    /**
+     * Fonction retournant le short commençant à l'octet d'index donné.
+     *
+     * @param index l'index, en octets, du short
+     * @return le short commençant à l'octet d'index donné
+     */
+    short getShort(long index);
+
+    /**
+     * Fonction retournant l'entier commençant à l'octet d'index donné.
+     *
+     * @param index l'index, en octets, de l'entier
+     * @return l'entier commençant à l'octet d'index donné
+     */
+    int getInt(long index);
+
+    /**
+     * Fonction retournant le long commençant à l'octet d'index donné.
+     *
+     * @param index l'index, en octets, du long
+     * @return le long commençant à l'octet d'index donné
+     */
+    long getLong(long index);
+
+    /**
+     * Méthode de construction retournant une mémoire tampon lisant directement le ByteBuffer donné, sans le copier.
+     *
+     * @param buffer le ByteBuffer à lire
+     * @return une mémoire tampon lisant le ByteBuffer donné
+     */
+    static GraphBuffer of(ByteBuffer buffer) {
+        return new Chunked(new ByteBuffer[]{buffer}, Integer.SIZE - 1, buffer.capacity());
+    }
+
+    /**
+     * Méthode de construction retournant une mémoire tampon lisant directement l'IntBuffer donné, sans le copier.
+     *
+     * @param buffer l'IntBuffer à lire
+     * @return une mémoire tampon lisant l'IntBuffer donné
+     */
+    static GraphBuffer of(IntBuffer buffer) {
+        return new OfInts(buffer);
+    }
+
+    /**
+     * Méthode de construction retournant une mémoire tampon lisant directement le ShortBuffer donné, sans le copier.
+     *
+     * @param buffer le ShortBuffer à lire
+     * @return une mémoire tampon lisant le ShortBuffer donné
+     */
+    static GraphBuffer of(ShortBuffer buffer) {
+        return new OfShorts(buffer);
+    }
+
+    /**
+     * Méthode de construction "mappant" en mémoire la totalité du fichier donné, quelle que soit sa taille.
+     *
+     * @param path le chemin d'accès au fichier
+     * @return une mémoire tampon correspondant au fichier "mappé"
+     * @throws IOException en cas d'erreur d'entrée/sortie, par ex. si le fichier n'existe pas
+     */
+    static GraphBuffer mapped(Path path) throws IOException {
+        return mapped(path, Chunked.DEFAULT_CHUNK_BITS);
+    }
+
+    /**
+     * Méthode de construction "mappant" le fichier donné par tranches de 2^chunkBits octets. Chaque tranche déborde de
+     * quelques octets sur la suivante, de sorte qu'aucune valeur ne soit jamais à cheval sur deux tranches.
+     *
+     * @param path      le chemin d'accès au fichier
+     * @param chunkBits le logarithme en base 2 de la taille des tranches
+     * @return une mémoire tampon correspondant au fichier "mappé"
+     * @throws IOException              en cas d'erreur d'entrée/sortie, par ex. si le fichier n'existe pas
+     * @throws IllegalArgumentException si la taille des tranches est trop petite ou trop grande pour un ByteBuffer
+     */
+    static GraphBuffer mapped(Path path, int chunkBits) throws IOException {
+        Preconditions.checkArgument(Chunked.MIN_CHUNK_BITS <= chunkBits && chunkBits <= Chunked.DEFAULT_CHUNK_BITS);
+        try (FileChannel channel = FileChannel.open(path)) {
+            long size = channel.size();
+            long chunkSize = 1L << chunkBits;
+            ByteBuffer[] chunks = new ByteBuffer[(int) Math.max(1, (size + chunkSize - 1) >>> chunkBits)];
+            for (int i = 0; i < chunks.length; i++) {
+                long start = i * chunkSize;
+                long length = Math.min(size - start, chunkSize + Chunked.OVERLAP);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            }
+            return new Chunked(chunks, chunkBits, size);
+        }
+    }
+}
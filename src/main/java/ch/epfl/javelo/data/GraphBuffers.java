@@ -0,0 +1,98 @@
+package ch.epfl.javelo.data;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Classe non instanciable regroupant les implémentations de GraphBuffer, obtenues au moyen de ses méthodes de
+ * construction. Elles ne sont visibles que dans le paquetage, afin que les tampons qu'elles enveloppent ne soient
+ * jamais exposés.
+ *
+ * @author Jean Perbet (341418)
+ * @author Cassio Manuguerra (346232)
+ */
+final class GraphBuffers {
+
+    private GraphBuffers() {}
+
+    /**
+     * Mémoire tampon découpée en tranches de 2^chunkBits octets, qui se chevauchent de OVERLAP octets.
+     */
+    record Chunked(ByteBuffer[] chunks, int chunkBits, long byteSize) implements GraphBuffer {
+
+        static final int DEFAULT_CHUNK_BITS = 30;
+        static final int MIN_CHUNK_BITS = 4;
+        static final int OVERLAP = Long.BYTES;
+
+        @Override
+        public short getShort(long index) {
+            return chunks[(int) (index >>> chunkBits)].getShort(offsetInChunk(index));
+        }
+
+        @Override
+        public int getInt(long index) {
+            return chunks[(int) (index >>> chunkBits)].getInt(offsetInChunk(index));
+        }
+
+        @Override
+        public long getLong(long index) {
+            return chunks[(int) (index >>> chunkBits)].getLong(offsetInChunk(index));
+        }
+
+        private int offsetInChunk(long index) {
+            return (int) (index & ((1L << chunkBits) - 1));
+        }
+    }
+
+    /**
+     * Mémoire tampon adaptant un IntBuffer, dont les valeurs doivent être lues à des index alignés sur leur taille.
+     */
+    record OfInts(IntBuffer buffer) implements GraphBuffer {
+        @Override
+        public long byteSize() {
+            return (long) buffer.capacity() * Integer.BYTES;
+        }
+
+        @Override
+        public short getShort(long index) {
+            int value = buffer.get((int) (index / Integer.BYTES));
+            return (short) (index % Integer.BYTES == 0 ? value >> Short.SIZE : value);
+        }
+
+        @Override
+        public int getInt(long index) {
+            return buffer.get((int) (index / Integer.BYTES));
+        }
+
+        @Override
+        public long getLong(long index) {
+            return ((long) getInt(index) << Integer.SIZE) | Integer.toUnsignedLong(getInt(index + Integer.BYTES));
+        }
+    }
+
+    /**
+     * Mémoire tampon adaptant un ShortBuffer, dont les valeurs doivent être lues à des index multiples de Short.BYTES.
+     */
+    record OfShorts(ShortBuffer buffer) implements GraphBuffer {
+        @Override
+        public long byteSize() {
+            return (long) buffer.capacity() * Short.BYTES;
+        }
+
+        @Override
+        public short getShort(long index) {
+            return buffer.get((int) (index / Short.BYTES));
+        }
+
+        @Override
+        public int getInt(long index) {
+            return (getShort(index) << Short.SIZE) | Short.toUnsignedInt(getShort(index + Short.BYTES));
+        }
+
+        @Override
+        public long getLong(long index) {
+            return ((long) getInt(index) << Integer.SIZE) | Integer.toUnsignedLong(getInt(index + Integer.BYTES));
+        }
+    }
+}
@@ -0,0 +1,728 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.Math2;
+import ch.epfl.javelo.Q28_4;
+import ch.epfl.javelo.projection.Ch1903;
+import ch.epfl.javelo.projection.SwissBounds;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.DoubleBinaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Classe représentant un constructeur de graphe JaVelo, produisant les fichiers lus par Graph.loadFrom à partir d'un
+ * extrait OpenStreetMap au format XML, y compris l'index des identités OSM des nœuds.
+ * <p>
+ * Seules les voies (way) portant un attribut highway connu de Attribute sont gardées. Chaque paire de nœuds
+ * consécutifs d'une voie donne deux arêtes, l'une dans le sens de la voie et l'autre, inversée, dans le sens opposé,
+ * partageant le même profil. Les nœuds sont numérotés secteur par secteur, dans l'ordre de la grille de 128 x 128
+ * secteurs de GraphSectors, et les profils sont compressés au moyen du plus compact des types 1, 2 ou 3 décodés par
+ * GraphEdges.
+ * <p>
+ * Le fichier est lu deux fois au fil de l'eau, sans construction de document : une première fois pour ses voies, une
+ * seconde pour les coordonnées des seuls nœuds qu'elles utilisent. Lors de la seconde lecture, les nœuds sont passés
+ * par lots, au travers d'une file bornée, à des fils de calcul qui les recherchent et les projettent. Les profils sont
+ * calculés en parallèle par fenêtres de segments, chaque fenêtre étant écrite dès qu'elle est calculée. La mémoire
+ * utilisée ne dépend ainsi que de la taille du réseau routier gardé, stocké dans des tableaux de type primitif, et non
+ * de celle du fichier ou du nombre total de ses nœuds.
+ *
+ * @author Jean Perbet (341418)
+ * @author Cassio Manuguerra (346232)
+ */
+public final class GraphBuilder {
+
+    private static final int SECTORS_PER_SIDE = 128;
+    private static final double SECTOR_WIDTH = SwissBounds.WIDTH / SECTORS_PER_SIDE;
+    private static final double SECTOR_HEIGHT = SwissBounds.HEIGHT / SECTORS_PER_SIDE;
+    private static final int MAX_SECTOR_NODES = 0xFFFF;
+    private static final int MAX_OUT_DEGREE = 15;
+    private static final int MAX_EDGE_ID = (1 << 28) - 1;
+    private static final int MAX_SAMPLE_ID = (1 << 30) - 1;
+    private static final int MAX_ATTRIBUTE_SETS = 1 << 16;
+    private static final int MAX_Q12_4 = 0xFFFF;
+    private static final int SAMPLE_SPACING = Q28_4.ofInt(2);
+
+    private static final int NODE_BATCH_SIZE = 1 << 14;
+    private static final int NODE_QUEUE_CAPACITY = 8;
+    private static final int PROFILE_CHUNK_SIZE = 1 << 12;
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    private static final String HIGHWAY_KEY = "highway";
+    private static final Map<String, Attribute> ATTRIBUTES = attributesByKeyValue();
+
+    private GraphBuilder() {}
+
+    /**
+     * Méthode construisant le graphe correspondant à l'extrait OpenStreetMap donné, au format XML, et écrivant ses
+     * fichiers dans le répertoire donné, qui est créé au besoin. Les segments dont une extrémité est hors de la Suisse
+     * ou mesurant plus de 4095 mètres, la longueur maximale d'une arête, sont ignorés, de même que ceux dont l'une des
+     * extrémités a déjà quinze arêtes sortantes. Les deux arêtes d'un segment étant gardées ou ignorées ensemble, tout
+     * segment gardé peut être parcouru dans les deux sens. Le nombre de segments ignorés pour ces deux raisons figure
+     * dans le résumé retourné.
+     * <p>
+     * Le fichier OpenStreetMap ne contenant aucune altitude, celles-ci sont données par le modèle d'élévation
+     * éventuellement fourni : les arêtes n'ont un profil que si ce modèle est donné et qu'il est connu en chacun de
+     * leurs échantillons.
+     *
+     * @param osmFile         le chemin d'accès à l'extrait OpenStreetMap, dont les nœuds précèdent les voies
+     * @param directory       le répertoire dans lequel écrire les fichiers du graphe
+     * @param elevationModel  la fonction donnant l'altitude, en mètres, du point de coordonnées E et N données, ou NaN
+     *                        si elle est inconnue ; null si les arêtes n'ont aucun profil
+     * @return le résumé de la construction
+     * @throws IOException en cas d'erreur d'entrée/sortie, ou si le fichier n'est pas un extrait valide
+     * @throws IllegalArgumentException si le graphe dépasse l'une des capacités des fichiers, par ex. si un secteur
+     *                                  contient plus de 65535 nœuds
+     */
+    public static Summary build(Path osmFile, Path directory, DoubleBinaryOperator elevationModel) throws IOException {
+        //Étape 1 : voies routières et ensemble trié des nœuds qu'elles utilisent
+        Ways ways = readWays(osmFile);
+        long[] osmIds = distinctSorted(ways.nodeRefs);
+
+        //Étape 2 : coordonnées suisses de ces nœuds, NaN pour ceux qui manquent
+        double[] es = new double[osmIds.length], ns = new double[osmIds.length];
+        Arrays.fill(es, Double.NaN);
+        Arrays.fill(ns, Double.NaN);
+        readNodes(osmFile, osmIds, es, ns);
+
+        //Étape 3 : segments gardés, puis numérotation des nœuds secteur par secteur
+        Segments segments = segmentsOf(ways, osmIds, es, ns);
+        int[] nodeOrder = sectorOrder(segments, es, ns);
+        int[] nodeIds = new int[osmIds.length];
+        Arrays.fill(nodeIds, -1);
+        for (int i = 0; i < nodeOrder.length; i++) nodeIds[nodeOrder[i]] = i;
+
+        //Étape 4 : arêtes partant de chaque nœud, consécutives dans l'ordre des nœuds
+        EdgeTable edgeTable = edgeTable(segments, nodeIds, nodeOrder.length);
+
+        //Étape 5 : profils, calculés en parallèle et écrits au fur et à mesure
+        Files.createDirectories(directory);
+        int[] profileIds = new int[segments.count];
+        int[] gains = new int[2 * segments.count];
+        try (DataOutputStream out = output(directory.resolve("elevations.bin"))) {
+            if (elevationModel != null) writeProfiles(out, segments, es, ns, elevationModel, profileIds, gains);
+        }
+
+        //Étape 6 : écriture des autres fichiers
+        writeNodes(directory, nodeOrder, es, ns, edgeTable.firstEdges());
+        writeSectors(directory, nodeOrder, es, ns);
+        writeEdges(directory, segments, nodeIds, edgeTable.edges(), profileIds, gains);
+        try (DataOutputStream out = output(directory.resolve("attributes.bin"))) {
+            for (AttributeSet set : ways.attributeSets) out.writeLong(set.bits());
+        }
+        try (DataOutputStream out = output(directory.resolve(OsmIdIndex.IDS_FILE))) {
+            for (int index : nodeOrder) out.writeLong(osmIds[index]);
+        }
+        OsmIdIndex.writeIndex(directory);
+        return new Summary(nodeOrder.length, edgeTable.edges().length, segments.tooLong, edgeTable.tooDense());
+    }
+
+    /**
+     * Méthode principale construisant le graphe de l'extrait OpenStreetMap dont le chemin est le premier argument
+     * dans le répertoire dont le chemin est le second, sans profils.
+     *
+     * @param args le chemin de l'extrait et celui du répertoire de destination
+     * @throws IOException en cas d'erreur d'entrée/sortie
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage : GraphBuilder <extrait OSM> <répertoire de destination>");
+            System.exit(1);
+        }
+        long start = System.nanoTime();
+        Summary summary = build(Path.of(args[0]), Path.of(args[1]), null);
+        System.out.printf("Graphe construit en %d s : %d nœuds, %d arêtes%n",
+                (System.nanoTime() - start) / 1_000_000_000, summary.nodeCount(), summary.edgeCount());
+        if (summary.tooLongSegments() > 0 || summary.tooDenseSegments() > 0) {
+            System.err.printf("Segments ignorés : %d de plus de 4095 m, %d partant d'un nœud ayant déjà %d arêtes%n",
+                    summary.tooLongSegments(), summary.tooDenseSegments(), MAX_OUT_DEGREE);
+        }
+    }
+
+    /**
+     * Enregistrement représentant le résumé de la construction d'un graphe.
+     *
+     * @param nodeCount        le nombre de nœuds du graphe
+     * @param edgeCount        le nombre d'arêtes du graphe
+     * @param tooLongSegments  le nombre de segments ignorés car mesurant plus de 4095 mètres
+     * @param tooDenseSegments le nombre de segments ignorés, dans les deux sens, car l'une de leurs extrémités avait
+     *                         déjà quinze arêtes sortantes
+     */
+    public record Summary(int nodeCount, int edgeCount, int tooLongSegments, int tooDenseSegments) {}
+
+    //---------------------------------------------- Private ----------------------------------------------//
+
+    /**
+     * Classe privée représentant les voies routières lues : les nœuds de toutes les voies, mis bout à bout, l'index du
+     * premier nœud et celui de l'ensemble d'attributs de chaque voie, et les ensembles d'attributs distincts.
+     */
+    private static final class Ways {
+        private final LongArray nodeRefs = new LongArray();
+        private final IntArray firstRefs = new IntArray();
+        private final IntArray attributeIndices = new IntArray();
+        private final List<AttributeSet> attributeSets = new ArrayList<>();
+        private final Map<Long, Integer> attributeSetIndices = new HashMap<>();
+
+        private int count() {
+            return firstRefs.size;
+        }
+
+        private int endRef(int way) {
+            return way + 1 < count() ? firstRefs.get(way + 1) : nodeRefs.size;
+        }
+    }
+
+    /**
+     * Classe privée représentant les segments gardés, chacun reliant deux nœuds consécutifs d'une voie, identifiés
+     * par leur index dans le tableau trié des identités OSM, et ayant une longueur au format Q12.4, ainsi que le nombre
+     * de segments ignorés car trop longs.
+     */
+    private static final class Segments {
+        private final IntArray from = new IntArray(), to = new IntArray();
+        private final IntArray lengths = new IntArray(), attributeIndices = new IntArray();
+        private int count, tooLong;
+
+        private void add(int fromIndex, int toIndex, int length, int attributeIndex) {
+            from.add(fromIndex);
+            to.add(toIndex);
+            lengths.add(length);
+            attributeIndices.add(attributeIndex);
+            count += 1;
+        }
+    }
+
+    /**
+     * Fonction privée lisant les voies routières de l'extrait donné, c.-à-d. celles ayant un attribut highway connu.
+     *
+     * @param osmFile le chemin d'accès à l'extrait
+     * @return les voies routières de l'extrait
+     * @throws IOException en cas d'erreur de lecture ou si l'extrait n'est pas valide
+     */
+    private static Ways readWays(Path osmFile) throws IOException {
+        Ways ways = new Ways();
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(osmFile), OUTPUT_BUFFER_SIZE)) {
+            XMLStreamReader xml = newReader(stream);
+            int firstRef = -1;
+            long bits = 0;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (xml.getLocalName()) {
+                        case "way" -> {
+                            firstRef = ways.nodeRefs.size;
+                            bits = 0;
+                        }
+                        case "nd" -> {
+                            if (firstRef >= 0) ways.nodeRefs.add(Long.parseLong(xml.getAttributeValue(null, "ref")));
+                        }
+                        case "tag" -> {
+                            if (firstRef < 0) continue;
+                            Attribute attribute = ATTRIBUTES.get(
+                                    xml.getAttributeValue(null, "k") + "=" + xml.getAttributeValue(null, "v"));
+                            if (attribute != null) bits |= 1L << attribute.ordinal();
+                        }
+                        default -> {}
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && xml.getLocalName().equals("way")) {
+                    if (isHighway(bits) && ways.nodeRefs.size - firstRef >= 2) {
+                        ways.firstRefs.add(firstRef);
+                        ways.attributeIndices.add(attributeSetIndex(ways, bits));
+                    } else {
+                        ways.nodeRefs.size = firstRef;
+                    }
+                    firstRef = -1;
+                }
+            }
+            xml.close();
+        } catch (XMLStreamException | NumberFormatException e) {
+            throw new IOException(e);
+        }
+        return ways;
+    }
+
+    /**
+     * Méthode privée lisant les nœuds de l'extrait donné et plaçant les coordonnées suisses de ceux dont l'identité
+     * figure dans le tableau trié donné à l'index correspondant des tableaux es et ns. La lecture s'arrête à la
+     * première voie, les nœuds la précédant dans les extraits OpenStreetMap.
+     * <p>
+     * Le fil appelant lit le fichier et place les nœuds par lots dans une file bornée, que des fils de calcul vident
+     * en recherchant chaque nœud et en projetant ceux qui sont utilisés. Chaque nœud n'apparaissant qu'une fois dans
+     * le fichier, les fils de calcul écrivent tous à des index différents.
+     *
+     * @param osmFile le chemin d'accès à l'extrait
+     * @param osmIds  les identités triées des nœuds utilisés
+     * @param es      le tableau dans lequel placer la coordonnée E de chaque nœud utilisé
+     * @param ns      le tableau dans lequel placer la coordonnée N de chaque nœud utilisé
+     * @throws IOException en cas d'erreur de lecture ou si l'extrait n'est pas valide
+     */
+    private static void readNodes(Path osmFile, long[] osmIds, double[] es, double[] ns) throws IOException {
+        int workerCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        BlockingQueue<NodeBatch> queue = new ArrayBlockingQueue<>(NODE_QUEUE_CAPACITY);
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < workerCount; i++) {
+            results.add(workers.submit(() -> {
+                for (NodeBatch batch = queue.take(); batch != NodeBatch.END; batch = queue.take())
+                    batch.project(osmIds, es, ns);
+                return null;
+            }));
+        }
+
+        boolean read = false;
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(osmFile), OUTPUT_BUFFER_SIZE)) {
+            XMLStreamReader xml = newReader(stream);
+            NodeBatch batch = new NodeBatch(NODE_BATCH_SIZE);
+            while (xml.hasNext()) {
+                if (xml.next() != XMLStreamConstants.START_ELEMENT) continue;
+                String name = xml.getLocalName();
+                if (name.equals("way") || name.equals("relation")) break;
+                if (!name.equals("node")) continue;
+
+                String lon = xml.getAttributeValue(null, "lon"), lat = xml.getAttributeValue(null, "lat");
+                if (lon == null || lat == null) throw new IOException("Nœud sans longitude ou latitude");
+                batch.add(Long.parseLong(xml.getAttributeValue(null, "id")),
+                        Double.parseDouble(lon), Double.parseDouble(lat));
+                if (batch.size == NODE_BATCH_SIZE) {
+                    queue.put(batch);
+                    batch = new NodeBatch(NODE_BATCH_SIZE);
+                }
+            }
+            xml.close();
+            if (batch.size > 0) queue.put(batch);
+
+            //Un lot vide par fil de calcul indique la fin de la lecture
+            for (int i = 0; i < workerCount; i++) queue.put(NodeBatch.END);
+            for (Future<?> result : results) result.get();
+            read = true;
+        } catch (XMLStreamException | NumberFormatException e) {
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } finally {
+            //En cas d'erreur, les fils de calcul attendant un lot sont interrompus
+            if (read) workers.shutdown();
+            else workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Classe privée représentant un lot de nœuds lus, dont les coordonnées sont données en degrés.
+     */
+    private static final class NodeBatch {
+        private static final NodeBatch END = new NodeBatch(0);
+
+        private final long[] ids;
+        private final double[] lons, lats;
+        private int size;
+
+        private NodeBatch(int capacity) {
+            this.ids = new long[capacity];
+            this.lons = new double[capacity];
+            this.lats = new double[capacity];
+        }
+
+        private void add(long id, double lon, double lat) {
+            ids[size] = id;
+            lons[size] = lon;
+            lats[size] = lat;
+            size += 1;
+        }
+
+        /**
+         * Méthode plaçant les coordonnées suisses des nœuds du lot figurant dans le tableau trié donné.
+         */
+        private void project(long[] osmIds, double[] es, double[] ns) {
+            for (int i = 0; i < size; i++) {
+                int index = Arrays.binarySearch(osmIds, ids[i]);
+                if (index < 0) continue;
+                double lon = Math.toRadians(lons[i]), lat = Math.toRadians(lats[i]);
+                es[index] = Ch1903.e(lon, lat);
+                ns[index] = Ch1903.n(lon, lat);
+            }
+        }
+    }
+
+    /**
+     * Fonction privée retournant les segments gardés des voies données : ceux reliant deux nœuds distincts, connus et
+     * situés en Suisse, et dont la longueur ne dépasse pas la longueur maximale d'une arête.
+     */
+    private static Segments segmentsOf(Ways ways, long[] osmIds, double[] es, double[] ns) {
+        Segments segments = new Segments();
+        for (int way = 0; way < ways.count(); way++) {
+            int attributeIndex = ways.attributeIndices.get(way);
+            int previous = Arrays.binarySearch(osmIds, ways.nodeRefs.get(ways.firstRefs.get(way)));
+            for (int ref = ways.firstRefs.get(way) + 1; ref < ways.endRef(way); ref++) {
+                int current = Arrays.binarySearch(osmIds, ways.nodeRefs.get(ref));
+                if (current != previous && isInSwitzerland(es, ns, previous) && isInSwitzerland(es, ns, current)) {
+                    int length = (int) Math.round(Math.scalb(
+                            Math2.norm(es[current] - es[previous], ns[current] - ns[previous]), 4));
+                    if (length <= MAX_Q12_4) segments.add(previous, current, length, attributeIndex);
+                    else segments.tooLong += 1;
+                }
+                previous = current;
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Fonction privée retournant les index des nœuds utilisés par au moins un segment, dans l'ordre de leur secteur
+     * puis de leur identité OSM, qui est celui des identités des nœuds du graphe.
+     */
+    private static int[] sectorOrder(Segments segments, double[] es, double[] ns) {
+        boolean[] used = new boolean[es.length];
+        for (int s = 0; s < segments.count; s++) used[segments.from.get(s)] = used[segments.to.get(s)] = true;
+
+        //Clés formées de l'index du secteur dans les bits de poids fort et de celui du nœud dans les autres
+        long[] keys = new long[es.length];
+        int count = 0;
+        for (int i = 0; i < es.length; i++) {
+            if (used[i]) keys[count++] = ((long) sectorIndex(es[i], ns[i]) << Integer.SIZE) | i;
+        }
+        keys = Arrays.copyOf(keys, count);
+        Arrays.parallelSort(keys);
+
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) order[i] = (int) keys[i];
+        return order;
+    }
+
+    /**
+     * Enregistrement privé représentant les arêtes du graphe : l'identité de la première arête de chaque nœud, suivie
+     * du nombre total d'arêtes, et, pour chaque arête, le double de l'index de son segment, augmenté de 1 si l'arête
+     * est inversée, ainsi que le nombre de segments ignorés car l'une de leurs extrémités avait déjà MAX_OUT_DEGREE
+     * arêtes.
+     *
+     * @param firstEdges l'identité de la première arête de chaque nœud, suivie du nombre d'arêtes
+     * @param edges      le segment et le sens de chaque arête
+     * @param tooDense   le nombre de segments ignorés
+     */
+    private record EdgeTable(int[] firstEdges, int[] edges, int tooDense) {}
+
+    /**
+     * Fonction privée attribuant à chaque segment une arête dans chaque sens, les arêtes partant d'un même nœud ayant
+     * des identités consécutives. Un segment dont l'une des extrémités a déjà MAX_OUT_DEGREE arêtes est ignoré dans les
+     * deux sens, afin qu'aucun segment ne puisse être parcouru dans un sens seulement.
+     */
+    private static EdgeTable edgeTable(Segments segments, int[] nodeIds, int nodeCount) {
+        boolean[] kept = new boolean[segments.count];
+        int[] firstEdges = new int[nodeCount + 1];
+        int tooDense = 0;
+        for (int s = 0; s < segments.count; s++) {
+            int from = nodeIds[segments.from.get(s)], to = nodeIds[segments.to.get(s)];
+            if (firstEdges[from + 1] < MAX_OUT_DEGREE && firstEdges[to + 1] < MAX_OUT_DEGREE) {
+                kept[s] = true;
+                firstEdges[from + 1] += 1;
+                firstEdges[to + 1] += 1;
+            } else tooDense += 1;
+        }
+        Arrays.parallelPrefix(firstEdges, Integer::sum);
+        int edgeCount = firstEdges[nodeCount];
+        if (edgeCount > MAX_EDGE_ID) throw new IllegalArgumentException("Trop d'arêtes : " + edgeCount);
+
+        //Second parcours, dans le même ordre, des seuls segments gardés
+        int[] edges = new int[edgeCount];
+        int[] filled = new int[nodeCount];
+        for (int s = 0; s < segments.count; s++) {
+            if (!kept[s]) continue;
+            int from = nodeIds[segments.from.get(s)], to = nodeIds[segments.to.get(s)];
+            edges[firstEdges[from] + filled[from]++] = s << 1;
+            edges[firstEdges[to] + filled[to]++] = (s << 1) | 1;
+        }
+        return new EdgeTable(firstEdges, edges, tooDense);
+    }
+
+    /**
+     * Méthode privée calculant le profil de chaque segment, par fenêtres de segments consécutifs dont les morceaux
+     * sont calculés en parallèle puis écrits dans l'ordre, et plaçant dans les tableaux donnés l'identité du profil
+     * de chaque segment ainsi que ses dénivelés positifs, au format Q12.4, dans le sens du segment puis dans l'autre.
+     */
+    private static void writeProfiles(DataOutputStream out, Segments segments, double[] es, double[] ns,
+                                      DoubleBinaryOperator elevationModel, int[] profileIds, int[] gains)
+            throws IOException {
+        int chunkCount = Math2.ceilDiv(segments.count, PROFILE_CHUNK_SIZE);
+        int window = 4 * Runtime.getRuntime().availableProcessors();
+        long nextSampleId = 0;
+        for (int first = 0; first < chunkCount; first += window) {
+            List<ProfileChunk> chunks = IntStream.range(first, Math.min(first + window, chunkCount))
+                    .parallel()
+                    .mapToObj(c -> ProfileChunk.of(segments, es, ns, elevationModel,
+                            c * PROFILE_CHUNK_SIZE, Math.min((c + 1) * PROFILE_CHUNK_SIZE, segments.count)))
+                    .toList();
+
+            for (ProfileChunk chunk : chunks) {
+                if (nextSampleId + chunk.size > MAX_SAMPLE_ID)
+                    throw new IllegalArgumentException("Trop d'échantillons : " + (nextSampleId + chunk.size));
+                for (int i = 0; i < chunk.size; i++) out.writeShort(chunk.samples[i]);
+                for (int s = chunk.firstSegment; s < chunk.endSegment; s++) {
+                    int local = s - chunk.firstSegment;
+                    int type = chunk.types[local];
+                    profileIds[s] = type == 0 ? 0 : (type << 30) | (int) (nextSampleId + chunk.firstSamples[local]);
+                    gains[2 * s] = chunk.gains[2 * local];
+                    gains[2 * s + 1] = chunk.gains[2 * local + 1];
+                }
+                nextSampleId += chunk.size;
+            }
+        }
+    }
+
+    /**
+     * Classe privée représentant les profils compressés d'un morceau de segments consécutifs : leurs échantillons mis
+     * bout à bout, et pour chaque segment l'index de son premier échantillon, le type de son profil (0 s'il n'en a
+     * pas) et ses dénivelés positifs dans les deux sens.
+     */
+    private static final class ProfileChunk {
+        private final int firstSegment, endSegment;
+        private final int[] firstSamples, gains;
+        private final byte[] types;
+        private short[] samples = new short[1024];
+        private int size;
+
+        private ProfileChunk(int firstSegment, int endSegment) {
+            this.firstSegment = firstSegment;
+            this.endSegment = endSegment;
+            this.firstSamples = new int[endSegment - firstSegment];
+            this.gains = new int[2 * firstSamples.length];
+            this.types = new byte[firstSamples.length];
+        }
+
+        /**
+         * Fonction calculant les profils des segments d'index compris entre first (inclus) et end (exclu).
+         */
+        private static ProfileChunk of(Segments segments, double[] es, double[] ns,
+                                       DoubleBinaryOperator elevationModel, int first, int end) {
+            ProfileChunk chunk = new ProfileChunk(first, end);
+            int[] quantized = new int[16];
+            for (int s = first; s < end; s++) {
+                int from = segments.from.get(s), to = segments.to.get(s);
+                int sampleCount = 1 + Math2.ceilDiv(segments.lengths.get(s), SAMPLE_SPACING);
+                if (quantized.length < sampleCount) quantized = new int[2 * sampleCount];
+
+                //Échantillons équidistants, au format Q12.4, et type le plus compact capable de les représenter
+                boolean valid = true;
+                int maxDifference = 0;
+                for (int i = 0; i < sampleCount && valid; i++) {
+                    double t = sampleCount == 1 ? 0 : (double) i / (sampleCount - 1);
+                    double elevation = elevationModel.applyAsDouble(Math2.interpolate(es[from], es[to], t),
+                            Math2.interpolate(ns[from], ns[to], t));
+                    valid = !Double.isNaN(elevation);
+                    quantized[i] = Math2.clamp(0, (int) Math.round(Math.scalb(elevation, 4)), MAX_Q12_4);
+                    if (i > 0) {
+                        int difference = quantized[i] - quantized[i - 1];
+                        maxDifference = Math.max(maxDifference, difference >= 0 ? difference : -difference - 1);
+                        if (difference > 0) chunk.gains[2 * (s - first)] += difference;
+                        else chunk.gains[2 * (s - first) + 1] -= difference;
+                    }
+                }
+                int local = s - first;
+                if (!valid) {
+                    chunk.gains[2 * local] = chunk.gains[2 * local + 1] = 0;
+                    continue;
+                }
+                chunk.gains[2 * local] = Math.min(chunk.gains[2 * local], MAX_Q12_4);
+                chunk.gains[2 * local + 1] = Math.min(chunk.gains[2 * local + 1], MAX_Q12_4);
+                int type = maxDifference < (1 << 3) ? 3 : maxDifference < (1 << 7) ? 2 : 1;
+                chunk.types[local] = (byte) type;
+                chunk.firstSamples[local] = chunk.size;
+                chunk.addProfile(quantized, sampleCount, type);
+            }
+            return chunk;
+        }
+
+        /**
+         * Méthode ajoutant les échantillons compressés d'un profil : le premier échantillon au format Q12.4, puis
+         * soit les suivants au même format (type 1), soit leurs différences successives, au format Q4.4 par paires
+         * (type 2) ou Q0.4 par quatre (type 3), la première différence occupant les bits de poids fort.
+         */
+        private void addProfile(int[] quantized, int sampleCount, int type) {
+            add(quantized[0]);
+            if (type == 1) {
+                for (int i = 1; i < sampleCount; i++) add(quantized[i]);
+                return;
+            }
+            int perShort = GraphEdges.samplesPerShort(type), bits = Short.SIZE / perShort;
+            int mask = (1 << bits) - 1;
+            for (int i = 1; i < sampleCount; i += perShort) {
+                int packed = 0;
+                for (int j = 0; j < perShort; j++) {
+                    int difference = i + j < sampleCount ? quantized[i + j] - quantized[i + j - 1] : 0;
+                    packed |= (difference & mask) << (bits * (perShort - 1 - j));
+                }
+                add(packed);
+            }
+        }
+
+        private void add(int sample) {
+            if (size == samples.length) samples = Arrays.copyOf(samples, 2 * size);
+            samples[size++] = (short) sample;
+        }
+    }
+
+    /**
+     * Méthode privée écrivant le fichier des nœuds : coordonnées au format Q28.4, puis degré sortant dans les 4 bits
+     * de poids fort et identité de la première arête sortante dans les autres.
+     */
+    private static void writeNodes(Path directory, int[] nodeOrder, double[] es, double[] ns, int[] firstEdges)
+            throws IOException {
+        try (DataOutputStream out = output(directory.resolve("nodes.bin"))) {
+            for (int nodeId = 0; nodeId < nodeOrder.length; nodeId++) {
+                int index = nodeOrder[nodeId];
+                out.writeInt((int) Math.round(Math.scalb(es[index], 4)));
+                out.writeInt((int) Math.round(Math.scalb(ns[index], 4)));
+                int outDegree = firstEdges[nodeId + 1] - firstEdges[nodeId];
+                out.writeInt((outDegree << 28) | firstEdges[nodeId]);
+            }
+        }
+    }
+
+    /**
+     * Méthode privée écrivant le fichier des secteurs : pour chacun des 128 x 128 secteurs, l'identité de son premier
+     * nœud et son nombre de nœuds.
+     */
+    private static void writeSectors(Path directory, int[] nodeOrder, double[] es, double[] ns) throws IOException {
+        int[] counts = new int[SECTORS_PER_SIDE * SECTORS_PER_SIDE];
+        for (int index : nodeOrder) counts[sectorIndex(es[index], ns[index])] += 1;
+        try (DataOutputStream out = output(directory.resolve("sectors.bin"))) {
+            int firstNodeId = 0;
+            for (int count : counts) {
+                if (count > MAX_SECTOR_NODES) throw new IllegalArgumentException("Secteur trop dense : " + count);
+                out.writeInt(firstNodeId);
+                out.writeShort(count);
+                firstNodeId += count;
+            }
+        }
+    }
+
+    /**
+     * Méthode privée écrivant les fichiers des arêtes et des identités de leurs profils, dans l'ordre des identités
+     * des arêtes. Une arête inversée a pour nœud cible le complément de son identité, et partage le profil de l'arête
+     * de même segment dans l'autre sens.
+     */
+    private static void writeEdges(Path directory, Segments segments, int[] nodeIds, int[] edgeSegments,
+                                   int[] profileIds, int[] gains) throws IOException {
+        try (DataOutputStream edges = output(directory.resolve("edges.bin"));
+             DataOutputStream profiles = output(directory.resolve("profile_ids.bin"))) {
+            for (int edge : edgeSegments) {
+                int segment = edge >>> 1;
+                boolean inverted = (edge & 1) == 1;
+                int target = nodeIds[inverted ? segments.from.get(segment) : segments.to.get(segment)];
+                edges.writeInt(inverted ? ~target : target);
+                edges.writeShort(segments.lengths.get(segment));
+                edges.writeShort(gains[2 * segment + (inverted ? 1 : 0)]);
+                edges.writeShort(segments.attributeIndices.get(segment));
+                profiles.writeInt(profileIds[segment]);
+            }
+        }
+    }
+
+    private static XMLStreamReader newReader(InputStream stream) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newDefaultFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory.createXMLStreamReader(stream);
+    }
+
+    private static DataOutputStream output(Path path) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), OUTPUT_BUFFER_SIZE));
+    }
+
+    private static Map<String, Attribute> attributesByKeyValue() {
+        Map<String, Attribute> attributes = new HashMap<>();
+        for (Attribute attribute : Attribute.ALL) attributes.put(attribute.keyValue(), attribute);
+        return Map.copyOf(attributes);
+    }
+
+    private static boolean isHighway(long bits) {
+        for (Attribute attribute : Attribute.ALL) {
+            if (attribute.key().equals(HIGHWAY_KEY) && (bits & (1L << attribute.ordinal())) != 0) return true;
+        }
+        return false;
+    }
+
+    private static int attributeSetIndex(Ways ways, long bits) {
+        return ways.attributeSetIndices.computeIfAbsent(bits, b -> {
+            if (ways.attributeSets.size() == MAX_ATTRIBUTE_SETS)
+                throw new IllegalArgumentException("Trop d'ensembles d'attributs");
+            ways.attributeSets.add(new AttributeSet(b));
+            return ways.attributeSets.size() - 1;
+        });
+    }
+
+    private static boolean isInSwitzerland(double[] es, double[] ns, int index) {
+        return index >= 0 && SwissBounds.containsEN(es[index], ns[index]);
+    }
+
+    private static int sectorIndex(double e, double n) {
+        int x = (int) Math2.clamp(0, (e - SwissBounds.MIN_E) / SECTOR_WIDTH, SECTORS_PER_SIDE - 1);
+        int y = (int) Math2.clamp(0, (n - SwissBounds.MIN_N) / SECTOR_HEIGHT, SECTORS_PER_SIDE - 1);
+        return y * SECTORS_PER_SIDE + x;
+    }
+
+    private static long[] distinctSorted(LongArray values) {
+        long[] sorted = Arrays.copyOf(values.values, values.size);
+        Arrays.parallelSort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) sorted[count++] = sorted[i];
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+
+    /**
+     * Classe privée représentant un tableau de long agrandi au besoin.
+     */
+    private static final class LongArray {
+        private long[] values = new long[1024];
+        private int size;
+
+        private void add(long value) {
+            if (size == values.length) values = Arrays.copyOf(values, 2 * size);
+            values[size++] = value;
+        }
+
+        private long get(int index) {
+            return values[index];
+        }
+    }
+
+    /**
+     * Classe privée représentant un tableau d'entiers agrandi au besoin.
+     */
+    private static final class IntArray {
+        private int[] values = new int[1024];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, 2 * size);
+            values[size++] = value;
+        }
+
+        private int get(int index) {
+            return values[index];
+        }
+    }
+}
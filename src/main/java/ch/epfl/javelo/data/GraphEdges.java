@@ -7,18 +7,18 @@ import ch.epfl.javelo.Q28_4;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
-import java.util.Arrays;
 
 import static ch.epfl.javelo.Q28_4.ofInt;
 
 /**
  * Enregistrement représentant le tableau de toutes les arêtes du graphe JaVelo
- * sous la forme de sa mémoire tampon edgesBuffer
+ * sous la forme de sa mémoire tampon edgesBuffer. Les mémoires tampons sont adressées
+ * en octets par des index de type long, afin de supporter des graphes de plus de 2 Go.
  *
  * @author Jean Perbet (341418)
  * @author Cassio Manuguerra (346232)
  */
-public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuffer elevations) {
+public record GraphEdges(GraphBuffer edgesBuffer, GraphBuffer profileIds, GraphBuffer elevations) {
 
     private static final int OFFSET_EDGE_DIRECTION_AND_ID = 0;
     private static final int OFFSET_LENGTH = OFFSET_EDGE_DIRECTION_AND_ID + Integer.BYTES;
@@ -34,6 +34,26 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
     private static final int TYPE_2_SAMPLES = 2 ;
     private static final int TYPE_3_SAMPLES = 4 ;
 
+    /**
+     * Constructeur secondaire permettant de créer le tableau des arêtes à partir des mémoires tampons de java.nio.
+     *
+     * @param edgesBuffer la mémoire tampon contenant les arêtes
+     * @param profileIds  la mémoire tampon contenant les identités des profils
+     * @param elevations  la mémoire tampon contenant les échantillons des profils
+     */
+    public GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuffer elevations) {
+        this(GraphBuffer.of(edgesBuffer), GraphBuffer.of(profileIds), GraphBuffer.of(elevations));
+    }
+
+    /**
+     * Fonction qui retourne le nombre total d'arêtes.
+     *
+     * @return le nombre total d'arêtes
+     */
+    public int count() {
+        return (int) (profileIds.byteSize() / Integer.BYTES);
+    }
+
     /**
      * Fonction qui retourne vrai si et seulement si l'arête d'identité donnée
      * va dans le sens inverse de la voie OSM dont elle provient.
@@ -42,7 +62,7 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
      * @return vrai si elle va dans le sens inverse de la voie dont elle provient et faux autrement
      */
     public boolean isInverted(int edgeId) {
-        return edgesBuffer.getInt(EDGE_INTS * edgeId + OFFSET_EDGE_DIRECTION_AND_ID) < 0;
+        return edgesBuffer.getInt(edgeIndex(edgeId) + OFFSET_EDGE_DIRECTION_AND_ID) < 0;
     }
 
     /**
@@ -52,7 +72,7 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
      * @return l'identité du nœud destination de l'arête donnée
      */
     public int targetNodeId(int edgeId) {
-        int nodeId = edgesBuffer.getInt(EDGE_INTS * edgeId + OFFSET_EDGE_DIRECTION_AND_ID);
+        int nodeId = edgesBuffer.getInt(edgeIndex(edgeId) + OFFSET_EDGE_DIRECTION_AND_ID);
         return nodeId < 0 ? ~nodeId : nodeId ;
     }
 
@@ -63,7 +83,7 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
      * @return la longueur de l'arête d'identité donnée
      */
     public double length(int edgeId) {
-        return Q28_4.asDouble(Short.toUnsignedInt(edgesBuffer.getShort(EDGE_INTS * edgeId + OFFSET_LENGTH)));
+        return Q28_4.asDouble(Short.toUnsignedInt(edgesBuffer.getShort(edgeIndex(edgeId) + OFFSET_LENGTH)));
     }
 
     /**
@@ -73,7 +93,7 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
      * @return le dénivelé positif de l'arête d'identité donnée
      */
     public double elevationGain(int edgeId) {
-        return Q28_4.asDouble(Short.toUnsignedInt(edgesBuffer.getShort(EDGE_INTS * edgeId + OFFSET_ELEVATION)));
+        return Q28_4.asDouble(Short.toUnsignedInt(edgesBuffer.getShort(edgeIndex(edgeId) + OFFSET_ELEVATION)));
     }
 
     /**
@@ -83,7 +103,7 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
      * @return vrai ssi l'arête d'identité donnée possède un profil et faux sinon
      */
     public boolean hasProfile(int edgeId) {
-        return Bits.extractUnsigned(profileIds.get(edgeId), OFFSET_PROFILE, PROFILE_LENGTH) != 0;
+        return Bits.extractUnsigned(profileId(edgeId), OFFSET_PROFILE, PROFILE_LENGTH) != 0;
     }
 
     /**
@@ -98,17 +118,20 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
         if (!hasProfile(edgeId)) return new float[]{};
 
         //Récupération des différentes données propres à l'arête d'identité edgeId : nb d'échantillons, type de profil et index du premier échantillon.
-        float[] profileSamples = new float[1 + Math2.ceilDiv(Short.toUnsignedInt(edgesBuffer.getShort(EDGE_INTS * edgeId + OFFSET_LENGTH)), ofInt(2))];
-        int profileType = Bits.extractUnsigned(profileIds.get(edgeId), OFFSET_PROFILE, PROFILE_LENGTH);
-        int firstSampleId = Bits.extractUnsigned(profileIds.get(edgeId), OFFSET_FIRST_SAMPLE_ID, FIRST_SAMPLE_ID_LENGTH);
-        profileSamples[0] = Q28_4.asFloat(Short.toUnsignedInt(elevations.get(firstSampleId)));
+        float[] profileSamples = new float[sampleCount(edgeId)];
+        int profileType = profileType(edgeId);
+        int firstSampleId = firstSampleId(edgeId);
+        //Les échantillons d'une arête inversée sont directement écrits depuis la fin du tableau, ce qui évite d'avoir à l'inverser ensuite.
+        boolean inverted = isInverted(edgeId);
+        int last = profileSamples.length - 1;
+        profileSamples[inverted ? last : 0] = Q28_4.asFloat(Short.toUnsignedInt(elevation(firstSampleId)));
 
 
         switch (profileType){
             //Si le profil est de type 1 on retourne seulement les différentes altitudes, données au format 12.4, suivant le premier échantillon de l'arête.
             case 1 :
                 for (int i = 1; i < profileSamples.length; i++)
-                    profileSamples[i] = Q28_4.asFloat(Short.toUnsignedInt(elevations.get(firstSampleId + i)));
+                    profileSamples[inverted ? last - i : i] = Q28_4.asFloat(Short.toUnsignedInt(elevation(firstSampleId + i)));
                 break;
 
             /* Si le profil est de type 2 ou 3, on cherche le nombre de différences d'altitudes (donc d'échantillons) empaquetées dans chaque short,
@@ -116,19 +139,20 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
             afin de récupérer la différence d'altitude et d'ajouter un nouvel échantillon au tableau jusqu'à ce que celui-ci soit rempli. */
             case 2 :
             case 3 :
-                float currentSample = profileSamples[0];
-                int samplesPerShort = profileType == 2 ? TYPE_2_SAMPLES : TYPE_3_SAMPLES, arrayIndex = 1;
+                float currentSample = profileSamples[inverted ? last : 0];
+                int samplesPerShort = samplesPerShort(profileType), arrayIndex = 1;
                 for (int i = 1; i <= Math2.ceilDiv(profileSamples.length - 1, samplesPerShort); i++) {
-                    short toExtract = elevations.get(firstSampleId + i);
+                    short toExtract = elevation(firstSampleId + i);
                     for (int j = samplesPerShort - 1; j >= 0 && arrayIndex < profileSamples.length; j--) {
                         currentSample += Q28_4.asFloat(Bits.extractSigned(toExtract, (Short.SIZE / samplesPerShort) * j, (Short.SIZE / samplesPerShort))); //8 ou 4 selon le profil
-                        profileSamples[arrayIndex++] = currentSample;
+                        profileSamples[inverted ? last - arrayIndex : arrayIndex] = currentSample;
+                        arrayIndex++;
                     }
                 }
                 break;
 
         }
-        return isInverted(edgeId) ? invertArray(profileSamples) : profileSamples;
+        return profileSamples;
     }
 
     /**
@@ -139,24 +163,80 @@ public record GraphEdges(ByteBuffer edgesBuffer, IntBuffer profileIds, ShortBuff
      * @return l'identité de l'ensemble d'attributs attaché à l'arête d'identité donnée.
      */
     public int attributesIndex(int edgeId) {
-        return Short.toUnsignedInt(edgesBuffer.getShort(EDGE_INTS * edgeId + OFFSET_ATTRIBUTE_SET_ID));
+        return Short.toUnsignedInt(edgesBuffer.getShort(edgeIndex(edgeId) + OFFSET_ATTRIBUTE_SET_ID));
+    }
+
+    //------------------------------------------ Package-private ------------------------------------------//
+
+    /**
+     * Fonction retournant le type du profil de l'arête d'identité donnée, qui vaut 0 si elle n'a pas de profil.
+     *
+     * @param edgeId l'identité de l'arête donnée
+     * @return le type (0, 1, 2 ou 3) du profil de l'arête d'identité donnée
+     */
+    int profileType(int edgeId) {
+        return Bits.extractUnsigned(profileId(edgeId), OFFSET_PROFILE, PROFILE_LENGTH);
+    }
+
+    /**
+     * Fonction retournant l'index, dans la mémoire tampon elevations, du premier échantillon de l'arête d'identité donnée.
+     *
+     * @param edgeId l'identité de l'arête donnée
+     * @return l'index du premier échantillon de l'arête d'identité donnée
+     */
+    int firstSampleId(int edgeId) {
+        return Bits.extractUnsigned(profileId(edgeId), OFFSET_FIRST_SAMPLE_ID, FIRST_SAMPLE_ID_LENGTH);
+    }
+
+    /**
+     * Fonction retournant le nombre d'échantillons du profil de l'arête d'identité donnée, espacés d'au plus 2 mètres.
+     *
+     * @param edgeId l'identité de l'arête donnée
+     * @return le nombre d'échantillons du profil de l'arête d'identité donnée
+     */
+    int sampleCount(int edgeId) {
+        return 1 + Math2.ceilDiv(Short.toUnsignedInt(edgesBuffer.getShort(edgeIndex(edgeId) + OFFSET_LENGTH)), ofInt(2));
+    }
+
+    /**
+     * Fonction retournant le nombre de différences d'altitude empaquetées dans chaque short d'un profil compressé.
+     *
+     * @param profileType le type du profil, 2 ou 3
+     * @return le nombre de différences d'altitude par short
+     */
+    static int samplesPerShort(int profileType) {
+        return profileType == 2 ? TYPE_2_SAMPLES : TYPE_3_SAMPLES;
+    }
+
+    /**
+     * Fonction retournant le short d'index donné dans la mémoire tampon des échantillons.
+     *
+     * @param sampleId l'index du short, en shorts
+     * @return le short d'index donné dans la mémoire tampon des échantillons
+     */
+    short elevation(int sampleId) {
+        return elevations.getShort((long) sampleId * Short.BYTES);
     }
 
     //---------------------------------------------- Private ----------------------------------------------//
 
     /**
-     * Fonction privée permettant d'inverser un tableau d'échantillons dans le cas
-     * où ce dernier correspond à une voie dans le sens inverse du sens OSM.
+     * Fonction privée retournant l'index, en octets, du début de l'arête d'identité donnée.
      *
-     * @param array le tableau que l'on veut inverser
-     * @return le tableau inversé
+     * @param edgeId l'identité de l'arête donnée
+     * @return l'index en octets du début de l'arête, calculé sur 64 bits pour éviter tout dépassement
      */
-    private float[] invertArray(float[] array) {
-        float[] invertedArray = Arrays.copyOf(array, array.length);
-        for (int i = 0; i < array.length / 2; i++){
-            invertedArray[i] = array[array.length - 1 - i];
-            invertedArray[array.length - 1 - i] = array[i];
-        }
-        return invertedArray;
+    private static long edgeIndex(int edgeId) {
+        return (long) EDGE_INTS * edgeId;
+    }
+
+    /**
+     * Fonction privée retournant l'entier décrivant le profil de l'arête d'identité donnée.
+     *
+     * @param edgeId l'identité de l'arête donnée
+     * @return l'entier contenant le type de profil et l'index du premier échantillon de l'arête
+     */
+    private int profileId(int edgeId) {
+        return profileIds.getInt((long) edgeId * Integer.BYTES);
     }
 }
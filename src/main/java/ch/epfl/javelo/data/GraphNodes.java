@@ -7,25 +7,34 @@ import java.nio.IntBuffer;
 
 /**
  * Enregistrement représentant le tableau de tous les nœuds du graphe JaVelo
- * sous la forme de son seul attribut : la mémoire tampon buffer.
+ * sous la forme de son seul attribut : la mémoire tampon buffer, adressée en octets.
  *
  * @author Jean Perbet (341418)
  * @author Cassio Manuguerra (346232)
  */
-public record GraphNodes(IntBuffer buffer) {
+public record GraphNodes(GraphBuffer buffer) {
 
     private static final int OFFSET_E = 0;
     private static final int OFFSET_N = OFFSET_E + 1;
     private static final int OFFSET_OUT_EDGES = OFFSET_N + 1;
     private static final int NODE_INTS = OFFSET_OUT_EDGES + 1;
 
+    /**
+     * Constructeur secondaire permettant de créer le tableau des nœuds à partir d'un IntBuffer.
+     *
+     * @param buffer la mémoire tampon contenant les nœuds
+     */
+    public GraphNodes(IntBuffer buffer) {
+        this(GraphBuffer.of(buffer));
+    }
+
     /**
      * Fonction qui retourne le nombre total de nœuds.
      *
      * @return le nombre total de noeuds
      */
     public int count() {
-        return buffer.capacity() / 3;
+        return (int) (buffer.byteSize() / (NODE_INTS * Integer.BYTES));
     }
 
     /**
@@ -35,7 +44,7 @@ public record GraphNodes(IntBuffer buffer) {
      * @return la coordonnée E du nœud d'identité nodeId
      */
     public double nodeE(int nodeId) {
-        return Q28_4.asDouble(buffer.get(nodeId * NODE_INTS + OFFSET_E));
+        return Q28_4.asDouble(buffer.getInt(intIndex(nodeId, OFFSET_E)));
     }
 
     /**
@@ -45,7 +54,7 @@ public record GraphNodes(IntBuffer buffer) {
      * @return la coordonnée N du nœud d'identité nodeId
      */
     public double nodeN(int nodeId) {
-        return Q28_4.asDouble(buffer.get(nodeId * NODE_INTS + OFFSET_N));
+        return Q28_4.asDouble(buffer.getInt(intIndex(nodeId, OFFSET_N)));
     }
 
     /**
@@ -55,7 +64,7 @@ public record GraphNodes(IntBuffer buffer) {
      * @return le nombre d'arêtes du nœud d'identité nodeId
      */
     public int outDegree(int nodeId) {
-        int toExtract = buffer.get(nodeId * NODE_INTS + OFFSET_OUT_EDGES);
+        int toExtract = buffer.getInt(intIndex(nodeId, OFFSET_OUT_EDGES));
         return Bits.extractUnsigned(toExtract, 28, 4);
     }
 
@@ -71,7 +80,20 @@ public record GraphNodes(IntBuffer buffer) {
      */
     public int edgeId(int nodeId, int edgeIndex) {
         assert 0 <= edgeIndex && edgeIndex < outDegree(nodeId);
-        int toExtract = buffer.get(nodeId * NODE_INTS + OFFSET_OUT_EDGES);
+        int toExtract = buffer.getInt(intIndex(nodeId, OFFSET_OUT_EDGES));
         return Bits.extractUnsigned(toExtract, 0, 28) + edgeIndex;
     }
+
+    //---------------------------------------------- Private ----------------------------------------------//
+
+    /**
+     * Fonction privée retournant l'index, en octets, de l'entier d'offset donné du nœud d'identité donnée.
+     *
+     * @param nodeId l'identité du nœud dans le graphe JaVelo
+     * @param offset l'offset de l'entier recherché, en entiers
+     * @return l'index en octets de l'entier recherché, calculé sur 64 bits
+     */
+    private static long intIndex(int nodeId, int offset) {
+        return ((long) nodeId * NODE_INTS + offset) * Integer.BYTES;
+    }
 }
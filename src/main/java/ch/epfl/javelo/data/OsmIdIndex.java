@@ -0,0 +1,266 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.Preconditions;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Classe représentant la correspondance entre les identités des nœuds du graphe et celles des nœuds OpenStreetMap
+ * dont ils proviennent.
+ * <p>
+ * L'identité OSM de chaque nœud est lue directement dans le fichier nodes_osmid.bin, à raison d'un long par nœud.
+ * La correspondance inverse utilise un index secondaire, le fichier nodes_osmid_index.bin, contenant pour chaque
+ * nœud un long formé de son identité OSM dans les bits de poids fort et de son identité dans les NODE_ID_BITS bits de
+ * poids faible, ces longs étant triés. S'il n'existe pas, cet index est construit lors de la première recherche, et
+ * écrit à côté des autres fichiers du graphe si possible, dans un fichier temporaire sinon. Dans les deux cas, il est
+ * "mappé" en mémoire et parcouru par une recherche par interpolation, sans qu'aucune table associative ne soit créée.
+ * Un index existant est comparé entièrement au fichier nodes_osmid.bin lors de la première recherche ; s'il ne lui
+ * correspond pas exactement, par ex. parce qu'il a été laissé à côté d'un graphe régénéré, il est considéré comme
+ * périmé et reconstruit.
+ *
+ * @author Jean Perbet (341418)
+ * @author Cassio Manuguerra (346232)
+ */
+final class OsmIdIndex {
+
+    static final String IDS_FILE = "nodes_osmid.bin";
+    static final String INDEX_FILE = "nodes_osmid_index.bin";
+
+    private static final int NODE_ID_BITS = 28;
+    private static final long MAX_OSM_ID = (1L << (Long.SIZE - 1 - NODE_ID_BITS)) - 1;
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    private final GraphBuffer osmIds;
+    private final Path directory;
+    private volatile GraphBuffer index;
+
+    /**
+     * Constructeur privé d'une correspondance d'identités.
+     *
+     * @param osmIds    l'identité OSM de chaque nœud
+     * @param directory le répertoire du graphe, dans lequel l'index est lu ou écrit, ou null s'il est construit en
+     *                  mémoire
+     */
+    private OsmIdIndex(GraphBuffer osmIds, Path directory) {
+        this.osmIds = osmIds;
+        this.directory = directory;
+    }
+
+    /**
+     * Fonction retournant la correspondance d'identités du graphe dont les fichiers se trouvent dans le répertoire
+     * donné, en "mappant" son fichier nodes_osmid.bin en mémoire. L'index secondaire n'est lu, vérifié ou construit
+     * que lors de la première recherche.
+     *
+     * @param directory le répertoire du graphe
+     * @return la correspondance d'identités, ou null si le répertoire ne contient pas le fichier nodes_osmid.bin
+     * @throws IOException en cas d'erreur d'entrée/sortie
+     */
+    static OsmIdIndex mapped(Path directory) throws IOException {
+        if (!Files.exists(directory.resolve(IDS_FILE))) return null;
+        return new OsmIdIndex(GraphBuffer.mapped(directory.resolve(IDS_FILE)), directory);
+    }
+
+    /**
+     * Fonction retournant la correspondance d'identités dont les identités OSM sont lues dans le flot donné, qui est
+     * fermé, l'index secondaire étant construit en mémoire au premier besoin.
+     *
+     * @param stream le flot contenant le fichier nodes_osmid.bin, ou null
+     * @return la correspondance d'identités, ou null si le flot est null
+     * @throws IOException en cas d'erreur de lecture
+     */
+    static OsmIdIndex of(InputStream stream) throws IOException {
+        if (stream == null) return null;
+        try (stream) {
+            return new OsmIdIndex(GraphBuffer.of(ByteBuffer.wrap(stream.readAllBytes())), null);
+        }
+    }
+
+    /**
+     * Méthode écrivant l'index secondaire du fichier nodes_osmid.bin du répertoire donné dans ce même répertoire.
+     *
+     * @param directory le répertoire du graphe
+     * @throws IOException              en cas d'erreur d'entrée/sortie
+     * @throws IllegalArgumentException si une identité OSM est négative ou dépasse MAX_OSM_ID, ou si le graphe a plus
+     *                                  de 2^NODE_ID_BITS nœuds
+     */
+    static void writeIndex(Path directory) throws IOException {
+        writeIndex(GraphBuffer.mapped(directory.resolve(IDS_FILE)), directory.resolve(INDEX_FILE));
+    }
+
+    /**
+     * Fonction retournant l'identité OSM du nœud d'identité donnée.
+     *
+     * @param nodeId l'identité du nœud
+     * @return l'identité OSM du nœud
+     */
+    long osmIdOf(int nodeId) {
+        return osmIds.getLong((long) nodeId * Long.BYTES);
+    }
+
+    /**
+     * Fonction retournant l'identité du nœud provenant du nœud OSM d'identité donnée. Les identités OSM étant
+     * réparties de manière assez régulière, la recherche estime la position de l'identité par interpolation ; elle
+     * alterne toutefois avec une recherche dichotomique, ce qui garantit un nombre d'étapes logarithmique même
+     * lorsque les identités sont très irrégulières.
+     *
+     * @param osmId l'identité OSM du nœud
+     * @return l'identité du nœud, ou -1 si aucun nœud du graphe ne provient de ce nœud OSM
+     * @throws UncheckedIOException en cas d'erreur d'entrée/sortie lors de la construction de l'index
+     */
+    int nodeIdOf(long osmId) {
+        GraphBuffer index = index();
+        long low = 0, high = index.byteSize() / Long.BYTES - 1;
+        boolean interpolate = true;
+        while (low <= high) {
+            long lowId = osmIdAt(index, low), highId = osmIdAt(index, high);
+            if (osmId < lowId || osmId > highId) return -1;
+
+            long middle = interpolate && highId > lowId
+                    ? low + (long) ((double) (osmId - lowId) / (highId - lowId) * (high - low))
+                    : (low + high) >>> 1;
+            interpolate = !interpolate;
+
+            long entry = index.getLong(middle * Long.BYTES);
+            long middleId = entry >>> NODE_ID_BITS;
+            if (middleId == osmId) return (int) (entry & ((1L << NODE_ID_BITS) - 1));
+            if (middleId < osmId) low = middle + 1;
+            else high = middle - 1;
+        }
+        return -1;
+    }
+
+    //---------------------------------------------- Private ----------------------------------------------//
+
+    /**
+     * Fonction privée vérifiant que l'index donné correspond exactement aux identités OSM données : il doit avoir une
+     * entrée par nœud, ses entrées doivent être strictement croissantes, et chacune doit désigner un nœud existant de
+     * même identité OSM. Les entrées étant alors distinctes, chaque nœud figure exactement une fois dans l'index.
+     *
+     * @param index  l'index secondaire existant
+     * @param osmIds l'identité OSM de chaque nœud
+     * @return vrai si et seulement si l'index correspond aux identités OSM
+     */
+    private static boolean matches(GraphBuffer index, GraphBuffer osmIds) {
+        if (index.byteSize() != osmIds.byteSize()) return false;
+        long count = index.byteSize() / Long.BYTES;
+        long previous = -1;
+        for (long i = 0; i < count; i++) {
+            long entry = index.getLong(i * Long.BYTES);
+            long nodeId = entry & ((1L << NODE_ID_BITS) - 1);
+            if (entry <= previous || nodeId >= count
+                    || osmIds.getLong(nodeId * Long.BYTES) != entry >>> NODE_ID_BITS) return false;
+            previous = entry;
+        }
+        return true;
+    }
+
+    private static long osmIdAt(GraphBuffer index, long position) {
+        return index.getLong(position * Long.BYTES) >>> NODE_ID_BITS;
+    }
+
+    /**
+     * Fonction privée retournant l'index secondaire, en le lisant ou en le construisant s'il ne l'est pas encore.
+     *
+     * @return l'index secondaire
+     */
+    private GraphBuffer index() {
+        GraphBuffer result = index;
+        if (result != null) return result;
+        synchronized (this) {
+            if (index == null) {
+                try {
+                    index = directory == null ? GraphBuffer.of(ByteBuffer.wrap(sortedEntriesBytes())) : existingOrWrittenIndex();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Fonction privée retournant l'index secondaire existant du répertoire du graphe, "mappé" en mémoire, s'il
+     * correspond exactement aux identités OSM, et l'index écrit par writtenIndex sinon.
+     *
+     * @return l'index secondaire "mappé" en mémoire
+     * @throws IOException en cas d'erreur d'entrée/sortie
+     */
+    private GraphBuffer existingOrWrittenIndex() throws IOException {
+        Path indexFile = directory.resolve(INDEX_FILE);
+        if (Files.isRegularFile(indexFile)) {
+            GraphBuffer existing = GraphBuffer.mapped(indexFile);
+            if (matches(existing, osmIds)) return existing;
+        }
+        return writtenIndex();
+    }
+
+    /**
+     * Fonction privée écrivant l'index secondaire dans le répertoire du graphe, ou, si ce n'est pas possible, dans
+     * un fichier temporaire supprimé à la fin de l'exécution, et le retournant "mappé" en mémoire. L'index est
+     * d'abord écrit dans un fichier temporaire du répertoire, puis renommé, afin qu'un autre programme ne puisse
+     * jamais lire un index incomplet.
+     *
+     * @return l'index secondaire "mappé" en mémoire
+     * @throws IOException en cas d'erreur d'entrée/sortie
+     */
+    private GraphBuffer writtenIndex() throws IOException {
+        Path indexFile = directory.resolve(INDEX_FILE);
+        Path partial = null;
+        try {
+            partial = Files.createTempFile(directory, INDEX_FILE, ".part");
+            writeIndex(osmIds, partial);
+            Files.move(partial, indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            if (partial != null) Files.deleteIfExists(partial);
+            indexFile = Files.createTempFile(INDEX_FILE, null);
+            indexFile.toFile().deleteOnExit();
+            writeIndex(osmIds, indexFile);
+        }
+        return GraphBuffer.mapped(indexFile);
+    }
+
+    private byte[] sortedEntriesBytes() {
+        long[] entries = sortedEntries(osmIds);
+        ByteBuffer bytes = ByteBuffer.allocate(entries.length * Long.BYTES);
+        bytes.asLongBuffer().put(entries);
+        return bytes.array();
+    }
+
+    private static void writeIndex(GraphBuffer osmIds, Path file) throws IOException {
+        long[] entries = sortedEntries(osmIds);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), OUTPUT_BUFFER_SIZE))) {
+            for (long entry : entries) out.writeLong(entry);
+        }
+    }
+
+    /**
+     * Fonction privée retournant les entrées triées de l'index secondaire correspondant aux identités OSM données.
+     *
+     * @param osmIds l'identité OSM de chaque nœud
+     * @return les entrées triées de l'index
+     * @throws IllegalArgumentException si une identité OSM est négative ou dépasse MAX_OSM_ID, ou s'il y a plus de
+     *                                  2^NODE_ID_BITS nœuds
+     */
+    private static long[] sortedEntries(GraphBuffer osmIds) {
+        long count = osmIds.byteSize() / Long.BYTES;
+        Preconditions.checkArgument(count <= 1L << NODE_ID_BITS);
+        long[] entries = new long[(int) count];
+        for (int nodeId = 0; nodeId < entries.length; nodeId++) {
+            long osmId = osmIds.getLong((long) nodeId * Long.BYTES);
+            Preconditions.checkArgument(0 <= osmId && osmId <= MAX_OSM_ID);
+            entries[nodeId] = (osmId << NODE_ID_BITS) | nodeId;
+        }
+        Arrays.parallelSort(entries);
+        return entries;
+    }
+}
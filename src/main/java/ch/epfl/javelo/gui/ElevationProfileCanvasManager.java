@@ -0,0 +1,341 @@
+package ch.epfl.javelo.gui;
+
+import ch.epfl.javelo.routing.ElevationProfile;
+import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.*;
+import javafx.geometry.Insets;
+import javafx.geometry.Rectangle2D;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Line;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextAlignment;
+
+import java.util.Arrays;
+
+/**
+ * Classe gérant l'interaction et l'affichage avec le profil en long de l'itinéraire, offrant les mêmes services que
+ * ElevationProfileManager mais dessinant le profil, la grille et les étiquettes sur un unique canevas.
+ * <p>
+ * Le dessin est fait à partir de tableaux de coordonnées réutilisés d'un dessin à l'autre, et au plus une fois par
+ * battement, si bien que le redimensionnement du panneau ne crée ni nœuds JavaFX ni objets par point du profil.
+ *
+ * @author Jean Perbet (341418)
+ * @author Cassio Manuguerra (346232)
+ */
+public final class ElevationProfileCanvasManager {
+
+    private final ReadOnlyObjectProperty<ElevationProfile> elevationProfile;
+    private final ReadOnlyDoubleProperty highlightedPosition;
+
+    private final Insets insets;
+
+    private final Canvas canvas;
+    private final Line line;
+    private final Pane pane;
+    private final Text stats;
+    private final BorderPane borderPane;
+
+    private final DoubleProperty mousePositionOnProfile;
+    private final ObjectProperty<Rectangle2D> rectangle;
+    private boolean redrawNeeded;
+
+    //Tableaux réutilisés d'un dessin à l'autre, agrandis si nécessaire
+    private double[] xPoints, yPoints;
+    private float[] mins, maxs, columnElevations;
+    private double[] columnPositions;
+
+    //Couleurs et police identiques à celles de la feuille de style elevation_profile.css
+    private static final Color PROFILE_FILL = Color.hsb(0, 1, 1, 0.5);
+    private static final Color PROFILE_STROKE = Color.hsb(0, 0, 0, 0.2);
+    private static final Color GRID_STROKE = Color.rgb(128, 128, 128, 0.5);
+    private static final Font LABEL_FONT = Font.font("Avenir", 10);
+
+    /**
+     * Constructeur public du gestionnaire de profil en long.
+     *
+     * @param elevationProfile    la propriété contenant le profil à afficher
+     * @param highlightedPosition la propriété contenant la position mise en évidence sur le profil
+     */
+    public ElevationProfileCanvasManager(ReadOnlyObjectProperty<ElevationProfile> elevationProfile,
+                                         ReadOnlyDoubleProperty highlightedPosition) {
+        this.elevationProfile = elevationProfile;
+        this.highlightedPosition = highlightedPosition;
+
+        //Paddings entre les bords du rectangle contenant le profil et ceux de son panneau parent
+        insets = new Insets(10, 10, 20, 40);
+
+        //Nœuds JavaFX servant à la représentation du profil et de la grille, de la ligne et des statistiques
+        canvas = new Canvas();
+        line = new Line();
+        pane = new Pane(canvas, line);
+        stats = new Text();
+        VBox vBox = new VBox(stats);
+        borderPane = new BorderPane(pane, null, null, vBox, null);
+
+        rectangle = new SimpleObjectProperty<>(Rectangle2D.EMPTY);
+        mousePositionOnProfile = new SimpleDoubleProperty(ElevationProfileSupport.MOUSE_ILLEGAL_VALUE);
+
+        xPoints = yPoints = columnPositions = new double[0];
+        mins = maxs = columnElevations = new float[0];
+
+        vBox.setId("profile_data");
+        borderPane.getStylesheets().add("elevation_profile.css");
+
+        //Redimensionnement automatique du canevas en fonction du panneau qui le contient
+        canvas.widthProperty().bind(pane.widthProperty());
+        canvas.heightProperty().bind(pane.heightProperty());
+
+        /* Régulation de redrawIfNeeded à une fois par battement, le panneau pouvant être retiré de la scène puis y être
+        ajouté à nouveau selon qu'un itinéraire existe ou non */
+        Runnable pulseListener = this::redrawIfNeeded;
+        canvas.sceneProperty().addListener((p, oldS, newS) -> {
+            if (oldS != null) oldS.removePreLayoutPulseListener(pulseListener);
+            if (newS != null) {
+                newS.addPreLayoutPulseListener(pulseListener);
+                redrawOnNextPulse();
+            }
+        });
+
+        installLine();
+        installListeners();
+        installHandlers();
+    }
+
+    /**
+     * Méthode retournant le panneau JavaFX affichant le profil en long de l'itinéraire.
+     *
+     * @return le panneau affichant le profil en long
+     */
+    public Pane pane() {
+        return borderPane;
+    }
+
+    /**
+     * Méthode retournant une propriété en lecture seule contenant la position de la souris sur le profil.
+     *
+     * @return la propriété en lecture seule contenant la position de la souris sur le profil, en mètres.
+     */
+    public ReadOnlyDoubleProperty mousePositionOnProfileProperty() {
+        return mousePositionOnProfile;
+    }
+
+    //---------------------------------------------- Private ----------------------------------------------//
+
+    /**
+     * Méthode appelant le redessin du profil sur le prochain battement.
+     */
+    private void redrawOnNextPulse() {
+        redrawNeeded = true;
+        Platform.requestNextPulse();
+    }
+
+    /**
+     * Méthode privée redessinant le profil et sa grille si et seulement si redrawNeeded est vrai, et si le panneau est
+     * assez grand pour les accueillir.
+     */
+    private void redrawIfNeeded() {
+        if (!redrawNeeded) return;
+        redrawNeeded = false;
+
+        GraphicsContext graphicsContext = canvas.getGraphicsContext2D();
+        graphicsContext.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+
+        double width = pane.getWidth() - insets.getLeft() - insets.getRight();
+        double height = pane.getHeight() - insets.getTop() - insets.getBottom();
+        ElevationProfile profile = elevationProfile.get();
+        if (profile == null || width <= 0 || height <= 0) return;
+        rectangle.set(new Rectangle2D(insets.getLeft(), insets.getTop(), width, height));
+
+        drawProfile(graphicsContext, profile);
+        drawGrid(graphicsContext, profile);
+    }
+
+    /**
+     * Méthode privée dessinant le profil sous la forme d'un polygone dont les points hauts sont l'altitude minimum et
+     * maximum de chaque colonne d'environ un pixel de large, comme le fait ElevationProfileManager.
+     *
+     * @param graphicsContext le contexte graphique du canevas
+     * @param profile         le profil à dessiner
+     */
+    private void drawProfile(GraphicsContext graphicsContext, ElevationProfile profile) {
+        Rectangle2D rect = rectangle.get();
+        int columns = Math.max(1, (int) Math.floor(rect.getWidth()));
+        double stepWorld = profile.length() / columns;
+        ensureCapacity(columns);
+
+        //Altitudes minimum et maximum de chaque colonne, et altitudes des bords des colonnes
+        profile.extremaBetween(0, profile.length(), mins, maxs);
+        for (int x = 0; x <= columns; x++) columnPositions[x] = x * stepWorld;
+        profile.elevationsAt(columnPositions, columnElevations);
+
+        int count = 0;
+        count = addPoint(count, 0, profile.minElevation(), profile);
+        count = addPoint(count, 0, columnElevations[0], profile);
+        for (int x = 0; x < columns; x++) {
+            boolean rising = columnElevations[x] <= columnElevations[x + 1];
+            count = addPoint(count, (x + 0.5) * stepWorld, rising ? mins[x] : maxs[x], profile);
+            count = addPoint(count, (x + 0.5) * stepWorld, rising ? maxs[x] : mins[x], profile);
+        }
+        count = addPoint(count, profile.length(), columnElevations[columns], profile);
+        count = addPoint(count, profile.length(), profile.minElevation(), profile);
+
+        graphicsContext.setFill(PROFILE_FILL);
+        graphicsContext.fillPolygon(xPoints, yPoints, count);
+        graphicsContext.setStroke(PROFILE_STROKE);
+        graphicsContext.setLineWidth(2);
+        graphicsContext.strokePolygon(xPoints, yPoints, count);
+    }
+
+    /**
+     * Méthode privée dessinant la grille et ses étiquettes, espacées de la même manière que dans
+     * ElevationProfileManager.
+     *
+     * @param graphicsContext le contexte graphique du canevas
+     * @param profile         le profil dont on dessine la grille
+     */
+    private void drawGrid(GraphicsContext graphicsContext, ElevationProfile profile) {
+        Rectangle2D rect = rectangle.get();
+        double scaleX = scaleX(profile), scaleY = scaleY(profile);
+
+        //Calcul des espacements entre les lignes et les colonnes dans le monde réel, puis à l'écran
+        int horizontalSpacingWorld = ElevationProfileSupport.positionSpacing(scaleX);
+        int verticalSpacingWorld = ElevationProfileSupport.elevationSpacing(scaleY);
+        double horizontalSpacingScreen = horizontalSpacingWorld * scaleX;
+        double verticalSpacingScreen = verticalSpacingWorld * scaleY;
+
+        graphicsContext.setStroke(GRID_STROKE);
+        graphicsContext.setLineWidth(1);
+        graphicsContext.setFill(Color.BLACK);
+        graphicsContext.setFont(LABEL_FONT);
+
+        //Colonnes verticales et étiquettes des positions, en kilomètres
+        graphicsContext.setTextAlign(TextAlignment.CENTER);
+        graphicsContext.setTextBaseline(VPos.TOP);
+        for (int i = 0; i < rect.getWidth() / horizontalSpacingScreen; i++) {
+            double x = rect.getMinX() + i * horizontalSpacingScreen;
+            graphicsContext.strokeLine(x, rect.getMinY(), x, rect.getMaxY());
+            graphicsContext.fillText(String.valueOf(i * horizontalSpacingWorld / 1000), x, rect.getMaxY());
+        }
+
+        //Lignes horizontales, alignées sur les multiples de l'espacement, et étiquettes des altitudes
+        double offset = (profile.maxElevation() % verticalSpacingWorld) * scaleY;
+        graphicsContext.setTextAlign(TextAlignment.RIGHT);
+        graphicsContext.setTextBaseline(VPos.CENTER);
+        for (int i = 0; i < rect.getHeight() / verticalSpacingScreen; i++) {
+            double y = i * verticalSpacingScreen + offset;
+            if (y > rect.getHeight()) break;
+            graphicsContext.strokeLine(rect.getMinX(), rect.getMinY() + y, rect.getMaxX(), rect.getMinY() + y);
+            int elevation = (int) (profile.maxElevation() - profile.maxElevation() % verticalSpacingWorld
+                    - i * verticalSpacingWorld);
+            graphicsContext.fillText(String.valueOf(elevation), rect.getMinX() - 2, rect.getMinY() + y);
+        }
+    }
+
+    /**
+     * Méthode privée ajoutant aux tableaux de coordonnées le point du profil de coordonnées données dans le monde réel.
+     *
+     * @param count     le nombre de points déjà ajoutés
+     * @param position  la position du point sur le profil, en mètres
+     * @param elevation l'altitude du point, en mètres
+     * @param profile   le profil dessiné
+     * @return le nombre de points après l'ajout
+     */
+    private int addPoint(int count, double position, double elevation, ElevationProfile profile) {
+        xPoints[count] = rectangle.get().getMinX() + position * scaleX(profile);
+        yPoints[count] = rectangle.get().getMinY() + (profile.maxElevation() - elevation) * scaleY(profile);
+        return count + 1;
+    }
+
+    /**
+     * Méthode privée agrandissant si nécessaire les tableaux réutilisés pour qu'ils puissent contenir le nombre de
+     * colonnes donné.
+     *
+     * @param columns le nombre de colonnes du profil
+     */
+    private void ensureCapacity(int columns) {
+        if (mins.length == columns) return;
+        mins = new float[columns];
+        maxs = new float[columns];
+        columnElevations = new float[columns + 1];
+        columnPositions = new double[columns + 1];
+        if (xPoints.length < 2 * columns + 4) {
+            xPoints = Arrays.copyOf(xPoints, 2 * (2 * columns + 4));
+            yPoints = Arrays.copyOf(yPoints, xPoints.length);
+        }
+    }
+
+    /**
+     * Fonction privée retournant le nombre d'unités JavaFX à l'écran correspondant à un mètre de position.
+     *
+     * @param profile le profil dessiné
+     * @return le facteur d'échelle horizontal
+     */
+    private double scaleX(ElevationProfile profile) {
+        return rectangle.get().getWidth() / profile.length();
+    }
+
+    /**
+     * Fonction privée retournant le nombre d'unités JavaFX à l'écran correspondant à un mètre d'altitude, un profil
+     * plat étant dessiné comme s'il s'étendait sur un mètre.
+     *
+     * @param profile le profil dessiné
+     * @return le facteur d'échelle vertical
+     */
+    private double scaleY(ElevationProfile profile) {
+        double elevationRange = profile.maxElevation() - profile.minElevation();
+        return rectangle.get().getHeight() / (elevationRange == 0 ? 1 : elevationRange);
+    }
+
+    /**
+     * Méthode privée mettant à jour les statistiques affichées sous le profil à chaque changement de ce dernier.
+     */
+    private void updateStats() {
+        stats.setText(ElevationProfileSupport.statsText(elevationProfile.get()));
+    }
+
+    /**
+     * Méthode privée permettant de lier les propriétés de la ligne à celles de la position mise en évidence et du
+     * rectangle contenant le profil.
+     */
+    private void installLine() {
+        ElevationProfileSupport.installLine(line, Bindings.createDoubleBinding(
+                () -> elevationProfile.get() == null
+                        ? 0
+                        : rectangle.get().getMinX() + highlightedPosition.get() * scaleX(elevationProfile.get()),
+                highlightedPosition, rectangle, elevationProfile), rectangle, highlightedPosition);
+    }
+
+    /**
+     * Méthode privée installant des listeners sur le canevas et sur le profil afin de redessiner ce dernier, au plus
+     * une fois par battement, lorsque l'un d'eux change.
+     */
+    private void installListeners() {
+        canvas.widthProperty().addListener((o, oldS, newS) -> redrawOnNextPulse());
+        canvas.heightProperty().addListener((o, oldS, newS) -> redrawOnNextPulse());
+        elevationProfile.addListener((o, oldS, newS) -> {
+            updateStats();
+            redrawOnNextPulse();
+        });
+    }
+
+    /**
+     * Méthode privée installant les gestionnaires d'évènement des actions de la souris sur le rectangle contenant
+     * le profil afin d'ajuster la propriété contenant la position de la souris sur le profil en conséquence.
+     */
+    private void installHandlers() {
+        ElevationProfileSupport.installHandlers(pane, rectangle, mousePositionOnProfile, x -> {
+            ElevationProfile profile = elevationProfile.get();
+            return profile == null
+                    ? ElevationProfileSupport.MOUSE_ILLEGAL_VALUE
+                    : (x - rectangle.get().getMinX()) / scaleX(profile);
+        });
+    }
+}
@@ -45,15 +45,6 @@ public final class ElevationProfileManager {
     private final ObjectProperty<Transform> worldToScreen;
     private final ObjectProperty<Transform> screenToWorld;
 
-    private static final int[] POS_STEPS =
-            { 1000, 2000, 5000, 10_000, 25_000, 50_000, 100_000 };
-    private static final int[] ELE_STEPS =
-            { 5, 10, 20, 25, 50, 100, 200, 250, 500, 1_000 };
-
-    private static final int MIN_SCREEN_SPACING_HORIZONTAL = 50;
-    private static final int MIN_SCREEN_SPACING_VERTICAL = 25;
-    private static final double MOUSE_ILLEGAL_VALUE = Double.NaN;
-
     public ElevationProfileManager(ReadOnlyObjectProperty<ElevationProfile> elevationProfile,
                                    ReadOnlyDoubleProperty highlightedPosition) {
 
@@ -78,7 +69,7 @@ public final class ElevationProfileManager {
 
         /* Propriété contenant la position de la souris le long du profil en mètres, initialisée à NaN pour garantir
         l'invisibilité de la ligne au lancement de la fenêtre si le curseur n'est pas sur le panneau */
-        mousePositionOnProfile = new SimpleDoubleProperty(MOUSE_ILLEGAL_VALUE);
+        mousePositionOnProfile = new SimpleDoubleProperty(ElevationProfileSupport.MOUSE_ILLEGAL_VALUE);
 
         /* Transformations affines permettant de passer du système de coordonnées du monde réel à celui de la fenêtre graphique,
         initialisées comme des transformations affines vides afin de pouvoir leur lier la ligne avant même de leur donner une valeur */
@@ -132,20 +123,41 @@ public final class ElevationProfileManager {
         Point2D startPoint = worldToScreen.get().transform(0, elevationProfile.get().minElevation());
         polygon.getPoints().addAll(startPoint.getX(), startPoint.getY());
 
-        //Distance correspondant dans le monde réel à une unité JavaFX sur l'écran.
-        double stepWorld = elevationProfile.get().length() / rectangle.get().getWidth();
-
-        //Tous les poins hauts du polygone correspondant à toutes les élévations
-        for (double x = 0; x <= rectangle.get().getWidth() ; x++) {
-            Point2D pointToAdd = worldToScreen.get().transform(x * stepWorld, elevationProfile.get().elevationAt(x * stepWorld));
-            polygon.getPoints().addAll(pointToAdd.getX(), pointToAdd.getY());
+        //Distance correspondant dans le monde réel à une colonne d'environ un pixel de large sur l'écran
+        int columns = Math.max(1, (int) Math.floor(rectangle.get().getWidth()));
+        double stepWorld = elevationProfile.get().length() / columns;
+
+        //Altitudes minimum et maximum de chaque colonne, évaluées en une seule fois
+        float[] mins = new float[columns], maxs = new float[columns];
+        elevationProfile.get().extremaBetween(0, elevationProfile.get().length(), mins, maxs);
+
+        /* Tous les points hauts du polygone : l'altitude minimum et maximum de chaque colonne, dans l'ordre où elles
+        sont vraisemblablement atteintes, afin que les pics et les creux plus étroits qu'un pixel restent visibles */
+        addPolygonPoint(0, elevationProfile.get().elevationAt(0));
+        for (int x = 0; x < columns; x++) {
+            boolean rising = elevationProfile.get().elevationAt(x * stepWorld)
+                    <= elevationProfile.get().elevationAt((x + 1) * stepWorld);
+            addPolygonPoint((x + 0.5) * stepWorld, rising ? mins[x] : maxs[x]);
+            addPolygonPoint((x + 0.5) * stepWorld, rising ? maxs[x] : mins[x]);
         }
+        addPolygonPoint(elevationProfile.get().length(), elevationProfile.get().elevationAt(elevationProfile.get().length()));
 
         //Point du polygone en bas à droite
         Point2D endPoint = worldToScreen.get().transform(elevationProfile.get().length(), elevationProfile.get().minElevation());
         polygon.getPoints().addAll(endPoint.getX(), endPoint.getY());
     }
 
+    /**
+     * Méthode privée ajoutant au polygone le point du profil de coordonnées données dans le monde réel.
+     *
+     * @param position  la position du point sur le profil, en mètres
+     * @param elevation l'altitude du point, en mètres
+     */
+    private void addPolygonPoint(double position, double elevation) {
+        Point2D point = worldToScreen.get().transform(position, elevation);
+        polygon.getPoints().addAll(point.getX(), point.getY());
+    }
+
     /**
      * Méthode privée permettant de calculer les transformations affines passant des coordonnées du monde réel à celles
      * du panneau graphique et son inverse, appelée à chaque changement de la taille du panneau ou du profil.
@@ -193,8 +205,10 @@ public final class ElevationProfileManager {
         labels.getChildren().clear();
 
         //Calcul des espacements minimaux entre les lignes et les colonnes dans le monde réel, en mètres
-        int horizontalSpacingWorld = findOptimalSpacing(POS_STEPS, MIN_SCREEN_SPACING_HORIZONTAL, true);
-        int verticalSpacingWorld = findOptimalSpacing(ELE_STEPS, MIN_SCREEN_SPACING_VERTICAL, false);
+        int horizontalSpacingWorld = ElevationProfileSupport.positionSpacing(
+                worldToScreen.get().deltaTransform(1, 0).getX());
+        int verticalSpacingWorld = ElevationProfileSupport.elevationSpacing(
+                worldToScreen.get().deltaTransform(0, -1).getY());
 
         //Calcul des espacements minimaux entre les lignes et les colonnes à l'écran, en unités JavaFX
         double horizontalSpacingScreen = worldToScreen.get().deltaTransform(horizontalSpacingWorld, 0).getX() ;
@@ -248,15 +262,7 @@ public final class ElevationProfileManager {
      */
     private void updateStats() {
         vBox.getChildren().clear();
-        Text text = new Text(String.format("Longueur : %.1f km" +
-                                           "     Montée : %.0f m" +
-                                           "     Descente : %.0f m" +
-                                           "     Altitude : de %.0f m à %.0f m",
-                                            elevationProfile.get().length() / 1000,
-                                            elevationProfile.get().totalAscent(),
-                                            elevationProfile.get().totalDescent(),
-                                            elevationProfile.get().minElevation(),
-                                            elevationProfile.get().maxElevation()));
+        Text text = new Text(ElevationProfileSupport.statsText(elevationProfile.get()));
         vBox.getChildren().add(text);
     }
 
@@ -273,29 +279,6 @@ public final class ElevationProfileManager {
         }
     }
 
-    /**
-     * Méthode privée permettant, lors de la mise à jour de la grille, de calculer l'espacement optimal entre
-     * deux lignes / colonnes en termes de mètres dans le monde réel pour leur laisser au moins min unités JavaFX
-     * d'espace à l'écran.
-     *
-     * @param spacings le tableau des différents espacements possibles dans le monde réel
-     * @param min l'espacement minimum à l'écran entre deux lignes / colonnes, en unités JaaFX
-     * @param horizontal à true si l'on cherche l'espacement entre les colonnes, et false si l'on cherche celui des lignes
-     * @return l'espacement optimal entre deux lignes / colonnes en termes de mètres dans le monde réel
-     */
-    private int findOptimalSpacing(int[] spacings, int min, boolean horizontal){
-        int stepWorld = spacings[spacings.length - 1];
-        for (int i = 0; i < spacings.length - 1; i++) {
-            double stepScreen = horizontal ?  worldToScreen.get().deltaTransform(spacings[i], 0).getX() :
-                                              worldToScreen.get().deltaTransform(0, -spacings[i]).getY();
-            if (stepScreen >= min) {
-                stepWorld = spacings[i];
-                break ;
-            }
-        }
-        return stepWorld ;
-    }
-
     /**
      * Méthode privée permettant de créer les étiquettes affichant les informations de la grille.
      *
@@ -320,13 +303,9 @@ public final class ElevationProfileManager {
      * de la position mise en évidence et du rectangle bleu.
      */
     private void installLine() {
-        line.layoutXProperty().bind(Bindings.createDoubleBinding(
+        ElevationProfileSupport.installLine(line, Bindings.createDoubleBinding(
                 () -> worldToScreen.get().transform(highlightedPosition.get(),0).getX(),
-                highlightedPosition, worldToScreen)
-        );
-        line.startYProperty().bind(Bindings.select(rectangle, "minY"));
-        line.endYProperty().bind(Bindings.select(rectangle, "maxY"));
-        line.visibleProperty().bind(highlightedPosition.greaterThanOrEqualTo(0));
+                highlightedPosition, worldToScreen), rectangle, highlightedPosition);
     }
 
     /**
@@ -355,12 +334,7 @@ public final class ElevationProfileManager {
      * le profil afin d'ajuster la propriété contenant la position de la souris sur le profil en conséquence.
      */
     private void installHandlers() {
-        pane.setOnMouseMoved(event -> {
-            if(rectangle.get().contains(event.getX(), event.getY()))
-                mousePositionOnProfile.set((int) screenToWorld.get().transform(event.getX(), 0).getX());
-            else mousePositionOnProfile.set(MOUSE_ILLEGAL_VALUE);
-        });
-
-        pane.setOnMouseExited(event -> mousePositionOnProfile.set(MOUSE_ILLEGAL_VALUE));
+        ElevationProfileSupport.installHandlers(pane, rectangle, mousePositionOnProfile,
+                x -> screenToWorld.get().transform(x, 0).getX());
     }
 }
@@ -0,0 +1,135 @@
+package ch.epfl.javelo.gui;
+
+import ch.epfl.javelo.routing.ElevationProfile;
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.value.ObservableDoubleValue;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.layout.Pane;
+import javafx.scene.shape.Line;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Classe regroupant les éléments communs aux gestionnaires de profil en long ElevationProfileManager et
+ * ElevationProfileCanvasManager : espacement de la grille, statistiques, ligne de mise en évidence et gestion de la
+ * souris.
+ *
+ * @author Jean Perbet (341418)
+ * @author Cassio Manuguerra (346232)
+ */
+final class ElevationProfileSupport {
+
+    static final double MOUSE_ILLEGAL_VALUE = Double.NaN;
+
+    private static final int[] POS_STEPS =
+            { 1000, 2000, 5000, 10_000, 25_000, 50_000, 100_000 };
+    private static final int[] ELE_STEPS =
+            { 5, 10, 20, 25, 50, 100, 200, 250, 500, 1_000 };
+
+    private static final int MIN_SCREEN_SPACING_HORIZONTAL = 50;
+    private static final int MIN_SCREEN_SPACING_VERTICAL = 25;
+
+    private ElevationProfileSupport() {}
+
+    /**
+     * Fonction retournant l'espacement entre deux colonnes de la grille, en mètres dans le monde réel, leur laissant
+     * au moins MIN_SCREEN_SPACING_HORIZONTAL unités JavaFX d'espace à l'écran.
+     *
+     * @param scaleX le nombre d'unités JavaFX correspondant à un mètre de position
+     * @return l'espacement entre deux colonnes, en mètres
+     */
+    static int positionSpacing(double scaleX) {
+        return findOptimalSpacing(POS_STEPS, MIN_SCREEN_SPACING_HORIZONTAL, scaleX);
+    }
+
+    /**
+     * Fonction retournant l'espacement entre deux lignes de la grille, en mètres dans le monde réel, leur laissant
+     * au moins MIN_SCREEN_SPACING_VERTICAL unités JavaFX d'espace à l'écran.
+     *
+     * @param scaleY le nombre d'unités JavaFX correspondant à un mètre d'altitude
+     * @return l'espacement entre deux lignes, en mètres
+     */
+    static int elevationSpacing(double scaleY) {
+        return findOptimalSpacing(ELE_STEPS, MIN_SCREEN_SPACING_VERTICAL, scaleY);
+    }
+
+    /**
+     * Fonction retournant le texte des statistiques affichées sous le profil donné.
+     *
+     * @param profile le profil, ou null
+     * @return le texte des statistiques, vide si le profil est null
+     */
+    static String statsText(ElevationProfile profile) {
+        return profile == null ? "" : String.format("Longueur : %.1f km" +
+                                                    "     Montée : %.0f m" +
+                                                    "     Descente : %.0f m" +
+                                                    "     Altitude : de %.0f m à %.0f m",
+                profile.length() / 1000,
+                profile.totalAscent(),
+                profile.totalDescent(),
+                profile.minElevation(),
+                profile.maxElevation());
+    }
+
+    /**
+     * Méthode liant les propriétés de la ligne de mise en évidence à la position mise en évidence et au rectangle
+     * contenant le profil.
+     *
+     * @param line                la ligne de mise en évidence
+     * @param layoutX             l'abscisse à l'écran de la position mise en évidence
+     * @param rectangle           la propriété contenant le rectangle du profil
+     * @param highlightedPosition la propriété contenant la position mise en évidence
+     */
+    static void installLine(Line line, ObservableDoubleValue layoutX, ObjectProperty<Rectangle2D> rectangle,
+                            ReadOnlyDoubleProperty highlightedPosition) {
+        line.layoutXProperty().bind(layoutX);
+        line.startYProperty().bind(Bindings.select(rectangle, "minY"));
+        line.endYProperty().bind(Bindings.select(rectangle, "maxY"));
+        line.visibleProperty().bind(highlightedPosition.greaterThanOrEqualTo(0));
+    }
+
+    /**
+     * Méthode installant les gestionnaires d'évènement des actions de la souris sur le panneau donné, afin que la
+     * propriété donnée contienne la position sur le profil correspondant à la souris lorsque celle-ci se trouve dans
+     * le rectangle du profil, et MOUSE_ILLEGAL_VALUE sinon.
+     *
+     * @param pane                   le panneau contenant le profil
+     * @param rectangle              la propriété contenant le rectangle du profil
+     * @param mousePositionOnProfile la propriété contenant la position de la souris sur le profil
+     * @param screenToPosition       la fonction donnant la position sur le profil, en mètres, correspondant à une
+     *                               abscisse à l'écran, ou MOUSE_ILLEGAL_VALUE s'il n'y a pas de profil
+     */
+    static void installHandlers(Pane pane, ObjectProperty<Rectangle2D> rectangle,
+                                DoubleProperty mousePositionOnProfile, DoubleUnaryOperator screenToPosition) {
+        pane.setOnMouseMoved(event -> {
+            Rectangle2D rect = rectangle.get();
+            if (rect != null && rect.contains(event.getX(), event.getY())) {
+                double position = screenToPosition.applyAsDouble(event.getX());
+                mousePositionOnProfile.set(Double.isNaN(position) ? MOUSE_ILLEGAL_VALUE : (int) position);
+            } else mousePositionOnProfile.set(MOUSE_ILLEGAL_VALUE);
+        });
+
+        pane.setOnMouseExited(event -> mousePositionOnProfile.set(MOUSE_ILLEGAL_VALUE));
+    }
+
+    //---------------------------------------------- Private ----------------------------------------------//
+
+    /**
+     * Méthode privée permettant de calculer l'espacement optimal entre deux lignes / colonnes en termes de mètres dans
+     * le monde réel pour leur laisser au moins min unités JavaFX d'espace à l'écran.
+     *
+     * @param spacings le tableau des différents espacements possibles dans le monde réel
+     * @param min      l'espacement minimum à l'écran entre deux lignes / colonnes, en unités JavaFX
+     * @param scale    le nombre d'unités JavaFX correspondant à un mètre dans la direction considérée
+     * @return l'espacement optimal entre deux lignes / colonnes en termes de mètres dans le monde réel
+     */
+    private static int findOptimalSpacing(int[] spacings, int min, double scale) {
+        for (int i = 0; i < spacings.length - 1; i++) {
+            if (spacings[i] * scale >= min) return spacings[i];
+        }
+        return spacings[spacings.length - 1];
+    }
+}
@@ -21,24 +21,40 @@ public final class RouteBean {
     private final ObjectProperty<ElevationProfile> elevationProfile ;
     private final DoubleProperty highlightedPosition ;
     private final RouteComputer routeComputer ;
-    private final Map<Pair<Integer, Integer>, Route> cacheMemory ;
+    private final RouteCache routeCache ;
+    private final int costProfile ;
 
-    private static final int MAX_ENTRIES = 20 ;
+    private static final long DEFAULT_CACHE_BYTES = 16L << 20 ;
     private static final int MAX_STEP_LENGTH = 5 ;
 
+    /**
+     * Constructeur public d'un bean d'itinéraire disposant de son propre cache d'itinéraires.
+     *
+     * @param routeComputer le planificateur d'itinéraire utilisé
+     */
     public RouteBean(RouteComputer routeComputer) {
+        this(routeComputer, new RouteCache(0, DEFAULT_CACHE_BYTES), 0);
+    }
+
+    /**
+     * Constructeur public d'un bean d'itinéraire utilisant le cache d'itinéraires donné, éventuellement partagé avec
+     * d'autres beans, et dans lequel ses itinéraires sont associés au profil de coût donné.
+     *
+     * @param routeComputer le planificateur d'itinéraire utilisé
+     * @param routeCache    le cache d'itinéraires utilisé
+     * @param costProfile   l'index, dans le cache, du profil de coût de routeComputer
+     */
+    public RouteBean(RouteComputer routeComputer, RouteCache routeCache, int costProfile) {
 
         this.routeComputer = routeComputer;
+        this.routeCache = routeCache;
+        this.costProfile = costProfile;
 
         waypoints = FXCollections.observableArrayList();
         route = new SimpleObjectProperty<>();
         elevationProfile = new SimpleObjectProperty<>();
         highlightedPosition = new SimpleDoubleProperty();
 
-        /* Cache mémoire permettant d'enregistrer les itinéraires simples déjà calculés, dans la limite de 100 itinéraires.
-        Cela permet de limiter le coût mémoire lors du recalcul d'itinéraire, qui est une opération parfois coûteuse */
-        cacheMemory = new LinkedHashMap<>(20, 0.75f, true);
-
         /* Vérification à chaque changement de la liste des points de passage qu'il y ait au moins deux points
          dans la liste et appel de la méthode recomputeRoute() le cas échéant */
         waypoints.addListener((ListChangeListener<? super Waypoint>) (c -> {
@@ -109,31 +125,29 @@ public final class RouteBean {
         List<Route> segments = new ArrayList<>();
         boolean aSegmentIsNull = false ;
 
-        /* Parcours de la liste des waypoints : à chaque waypoint, création d'une paire entre celui-ci et le suivant et calcul
-        de l'itinéraire simple les séparant. Si tous les itinéraires simples ainsi calculés sont non nuls, création d'un
+        /* Parcours de la liste des waypoints : à chaque waypoint, recherche dans le cache, ou à défaut calcul, de
+        l'itinéraire simple le séparant du suivant. Si tous les itinéraires simples ainsi calculés sont non nuls, création d'un
         itinéraire multiple les rassemblant tous et ajout de celui-ci dans la propriété route. */
         for (int i = 0; i < waypoints.size() - 1; i++) {
-            Pair<Integer, Integer> singleRoute = new Pair<>(waypoints.get(i).closestNodeId(), waypoints.get(i+1).closestNodeId());
+            int startNodeId = waypoints.get(i).closestNodeId();
+            int endNodeId = waypoints.get(i + 1).closestNodeId();
 
             //Si deux points de passage successifs sont associés au même nœud, aucune tentative de calcul d'itinéraire n'est faite
-            if(singleRoute.firstElement.equals(singleRoute.secondElement)) continue;
-
-            if(cacheMemory.containsKey(singleRoute))
-                segments.add(cacheMemory.get(singleRoute));
-            else {
-                Route temp = routeComputer.bestRouteBetween(singleRoute.firstElement, singleRoute.secondElement);
-                if(temp != null) {
-                    segments.add(temp);
-                    //Contrôle du grossissement du cache mémoire en supprimant son élément le plus ancien
-                    if(cacheMemory.size() > MAX_ENTRIES) cacheMemory.remove(cacheMemory.keySet().iterator().next());
-                    cacheMemory.put(singleRoute, temp);
-                } else {
+            if (startNodeId == endNodeId) continue;
+
+            //Le cache d'itinéraires limite lui-même sa taille en évinçant ses itinéraires les moins récemment utilisés
+            Route segment = routeCache.get(startNodeId, endNodeId, costProfile);
+            if (segment == null) {
+                segment = routeComputer.bestRouteBetween(startNodeId, endNodeId);
+                if (segment == null) {
                     aSegmentIsNull = true ;
                     route.set(null);
                     elevationProfile.set(null);
                     break ;
                 }
+                routeCache.put(startNodeId, endNodeId, costProfile, segment);
             }
+            segments.add(segment);
         }
         if(!aSegmentIsNull && !segments.isEmpty()) {
             route.set(new MultiRoute(segments));
@@ -141,13 +155,4 @@ public final class RouteBean {
         }
 
     }
-
-    /**
-     * Enregistrement représentant une paire d'éléments, utile pour le cache mémoire.
-     * @param <T> le type du premier élément
-     * @param <S> le type du second élément
-     * @param firstElement le premier élément
-     * @param secondElement le second élément
-     */
-    private record Pair<T, S>(T firstElement, S secondElement) {}
 }
@@ -1,6 +1,12 @@
 package ch.epfl.javelo.gui;
 
+import ch.epfl.javelo.Preconditions;
+import ch.epfl.javelo.data.Graph;
 import ch.epfl.javelo.projection.PointCh;
+import ch.epfl.javelo.routing.GpxTrack;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Enregistrement représentant un point de passage de l'itinéraire dans le système de coordonnées suisse.
@@ -11,4 +17,39 @@ import ch.epfl.javelo.projection.PointCh;
  * @param wayPoint la position du point dans le système de coordonnées suisse
  * @param closestNodeId l'identité du nœud le plus proche du point de passage
  */
-public record Waypoint(PointCh wayPoint, int closestNodeId) {}
+public record Waypoint(PointCh wayPoint, int closestNodeId) {
+
+    public static final int MAX_GPX_WAYPOINTS = 100;
+
+    private static final int SEARCH_DISTANCE = 500;
+    private static final double TRACK_TOLERANCE = 50;
+
+    /**
+     * Fonction retournant au plus MAX_GPX_WAYPOINTS points de passage correspondant aux points lus dans un fichier
+     * GPX : tous les points d'un itinéraire, ou ceux d'une version simplifiée d'une trace enregistrée, qui ne s'en
+     * écarte pas de plus de TRACK_TOLERANCE mètres, cette tolérance étant doublée autant de fois que nécessaire pour
+     * que la trace simplifiée n'ait pas plus de MAX_GPX_WAYPOINTS points. Les points hors de la Suisse ou loin de
+     * toute route sont ignorés, de même que ceux dont le nœud le plus proche est celui du point de passage précédent.
+     *
+     * @param graph le graphe dans lequel chercher les nœuds les plus proches des points
+     * @param track les points lus dans le fichier GPX
+     * @return la liste, non modifiable, des points de passage
+     * @throws IllegalArgumentException si les points sont ceux d'un itinéraire de plus de MAX_GPX_WAYPOINTS points
+     */
+    public static List<Waypoint> fromGpx(Graph graph, GpxTrack track) {
+        Preconditions.checkArgument(!track.isRoute() || track.size() <= MAX_GPX_WAYPOINTS);
+        int[] indices = track.isRoute() ? null : track.simplified(TRACK_TOLERANCE, MAX_GPX_WAYPOINTS);
+        int count = indices == null ? track.size() : indices.length;
+
+        List<Waypoint> waypoints = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            PointCh point = track.pointAt(indices == null ? i : indices[i]);
+            if (point == null) continue;
+            int closestNodeId = graph.nodeClosestTo(point, SEARCH_DISTANCE);
+            if (closestNodeId == -1) continue;
+            if (!waypoints.isEmpty() && waypoints.get(waypoints.size() - 1).closestNodeId() == closestNodeId) continue;
+            waypoints.add(new Waypoint(point, closestNodeId));
+        }
+        return List.copyOf(waypoints);
+    }
+}
@@ -1,5 +1,7 @@
 package ch.epfl.javelo.projection;
 
+import ch.epfl.javelo.Preconditions;
+
 /**
  * Classe permettant de convertir des cordonnées WGS 84 en coordonnées suisses et inversement.
  *
@@ -20,15 +22,7 @@ public final class Ch1903 {
      * de longitude lon dans le système de coordonnées WGS84
      */
     public static double e(double lon, double lat) {
-
-        double lonDegrees = Math.toDegrees(lon);
-        double latDegrees = Math.toDegrees(lat);
-
-        double lon1 = 1e-4 * (3600 * lonDegrees - 26_782.5);
-        double lat1 = 1e-4 * (3600 * latDegrees - 169_028.66);
-
-        return 2_600_072.37 + 211_455.93 * lon1 - 10_938.51 * lon1 * lat1 -
-                0.36 * lon1 * Math.pow(lat1, 2) - 44.54 * Math.pow(lon1, 3);
+        return eOfDegrees(Math.toDegrees(lon), Math.toDegrees(lat));
     }
 
     /**
@@ -41,15 +35,30 @@ public final class Ch1903 {
      * de longitude lon dans le système de coordonnées WGS84
      */
     public static double n(double lon, double lat) {
+        return nOfDegrees(Math.toDegrees(lon), Math.toDegrees(lat));
+    }
 
-        double lonDegrees = Math.toDegrees(lon);
-        double latDegrees = Math.toDegrees(lat);
-
-        double lon1 = 1e-4 * (3600 * lonDegrees - 26_782.5);
-        double lat1 = 1e-4 * (3600 * latDegrees - 169_028.66);
-
-        return 1_200_147.07 + 308_807.95 * lat1 + 3745.25 * Math.pow(lon1, 2) + 76.63 * Math.pow(lat1, 2) -
-                194.56 * Math.pow(lon1, 2) * lat1 + 119.79 * Math.pow(lat1, 3);
+    /**
+     * Méthode qui convertit en coordonnées E et N dans le système Ch1903 les count premiers points dont la longitude
+     * et la latitude dans le système WGS84 sont données en degrés, comme dans les fichiers GPX, ce qui évite de les
+     * convertir en radians. Les tableaux de résultats peuvent être ceux des longitudes et latitudes, qui sont alors
+     * remplacées.
+     *
+     * @param lons  les longitudes des points à convertir, en degrés
+     * @param lats  les latitudes des points à convertir, en degrés
+     * @param es    le tableau dans lequel placer la coordonnée E de chaque point
+     * @param ns    le tableau dans lequel placer la coordonnée N de chaque point
+     * @param count le nombre de points à convertir
+     * @throws IllegalArgumentException si l'un des tableaux contient moins de count éléments
+     */
+    public static void toEN(double[] lons, double[] lats, double[] es, double[] ns, int count) {
+        Preconditions.checkArgument(0 <= count && count <= lons.length && count <= lats.length
+                && count <= es.length && count <= ns.length);
+        for (int i = 0; i < count; i++) {
+            double e = eOfDegrees(lons[i], lats[i]), n = nOfDegrees(lons[i], lats[i]);
+            es[i] = e;
+            ns[i] = n;
+        }
     }
 
     /**
@@ -90,4 +99,40 @@ public final class Ch1903 {
 
         return Math.toRadians(lat0 * (100 / 36.0));
     }
+
+    //---------------------------------------------- Private ----------------------------------------------//
+
+    /**
+     * Fonction privée retournant la coordonnée E (est) dans le système Ch1903 du point de longitude et de latitude
+     * données, en degrés, dans le système WGS84.
+     *
+     * @param lonDegrees la longitude du point, en degrés
+     * @param latDegrees la latitude du point, en degrés
+     * @return la coordonnée E du point dans le système CH1903
+     */
+    private static double eOfDegrees(double lonDegrees, double latDegrees) {
+
+        double lon1 = 1e-4 * (3600 * lonDegrees - 26_782.5);
+        double lat1 = 1e-4 * (3600 * latDegrees - 169_028.66);
+
+        return 2_600_072.37 + 211_455.93 * lon1 - 10_938.51 * lon1 * lat1 -
+                0.36 * lon1 * Math.pow(lat1, 2) - 44.54 * Math.pow(lon1, 3);
+    }
+
+    /**
+     * Fonction privée retournant la coordonnée N (nord) dans le système Ch1903 du point de longitude et de latitude
+     * données, en degrés, dans le système WGS84.
+     *
+     * @param lonDegrees la longitude du point, en degrés
+     * @param latDegrees la latitude du point, en degrés
+     * @return la coordonnée N du point dans le système CH1903
+     */
+    private static double nOfDegrees(double lonDegrees, double latDegrees) {
+
+        double lon1 = 1e-4 * (3600 * lonDegrees - 26_782.5);
+        double lat1 = 1e-4 * (3600 * latDegrees - 169_028.66);
+
+        return 1_200_147.07 + 308_807.95 * lat1 + 3745.25 * Math.pow(lon1, 2) + 76.63 * Math.pow(lat1, 2) -
+                194.56 * Math.pow(lon1, 2) * lat1 + 119.79 * Math.pow(lat1, 3);
+    }
 }
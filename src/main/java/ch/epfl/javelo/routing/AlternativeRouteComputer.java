@@ -0,0 +1,169 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Preconditions;
+import ch.epfl.javelo.data.Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Classe représentant un planificateur d'itinéraires alternatifs, utilisant la méthode des pénalités : après chaque
+ * recherche, le coût des arêtes de l'itinéraire trouvé est augmenté, et une nouvelle recherche produit un itinéraire
+ * qui tend à les éviter. Seuls les itinéraires distincts et suffisamment différents des précédents, et pas trop longs
+ * par rapport à l'itinéraire optimal, sont retenus.
+ *
+ * @author Jean Perbet (341418)
+ * @author Cassio Manuguerra (346232)
+ */
+public final class AlternativeRouteComputer {
+
+    private static final double PENALTY_FACTOR = 1.4;
+    private static final int MAX_SEARCHES_PER_ROUTE = 3;
+
+    private final Graph graph;
+    private final CostFunction costFunction;
+    private final RouteComputer routeComputer;
+    private final double maxOverlap;
+    private final double maxStretch;
+
+    /**
+     * Constructeur public d'un planificateur d'itinéraires alternatifs.
+     *
+     * @param graph        le graphe dans lequel les itinéraires sont calculés
+     * @param costFunction la fonction de coût utilisée
+     * @param maxOverlap   la proportion maximale de la longueur d'un itinéraire alternatif pouvant être partagée avec
+     *                     les itinéraires retenus avant lui
+     * @param maxStretch   le rapport maximal entre la longueur d'un itinéraire alternatif et celle de l'itinéraire
+     *                     optimal
+     * @throws IllegalArgumentException si maxOverlap n'est pas compris entre 0 et 1, ou si maxStretch est inférieur à 1
+     */
+    public AlternativeRouteComputer(Graph graph, CostFunction costFunction, double maxOverlap, double maxStretch) {
+        Preconditions.checkArgument(0 <= maxOverlap && maxOverlap <= 1 && maxStretch >= 1);
+        this.graph = graph;
+        this.costFunction = costFunction;
+        this.routeComputer = new RouteComputer(graph, costFunction);
+        this.maxOverlap = maxOverlap;
+        this.maxStretch = maxStretch;
+    }
+
+    /**
+     * Fonction retournant au plus maxCount itinéraires allant du nœud d'identité startNodeId au nœud d'identité
+     * endNodeId, le premier étant l'itinéraire optimal et les suivants des alternatives respectant les contraintes de
+     * recouvrement et d'allongement. Au plus MAX_SEARCHES_PER_ROUTE recherches sont faites par itinéraire demandé.
+     *
+     * @param startNodeId l'identité du nœud de départ
+     * @param endNodeId   l'identité du nœud d'arrivée
+     * @param maxCount    le nombre maximal d'itinéraires à retourner
+     * @return la liste, non modifiable, des itinéraires trouvés, vide si aucun itinéraire n'existe
+     * @throws IllegalArgumentException si le nœud de départ et d'arrivée sont identiques, ou si maxCount n'est pas
+     *                                  strictement positif
+     */
+    public List<Route> routesBetween(int startNodeId, int endNodeId, int maxCount) {
+        Preconditions.checkArgument(maxCount > 0);
+        Route best = routeComputer.bestRouteBetween(startNodeId, endNodeId);
+        if (best == null) return List.of();
+
+        List<Route> routes = new ArrayList<>(List.of(best));
+        int[] bestEdgeIds = RouteComputer.edgeIds(graph, best);
+        List<int[]> routesEdgeIds = new ArrayList<>(List.of(bestEdgeIds));
+
+        //Identités triées des arêtes des itinéraires retenus
+        int[] usedEdgeIds = sortedUnion(new int[0], bestEdgeIds);
+
+        //Identités triées des arêtes pénalisées, et nombre d'itinéraires trouvés auxquels chacune appartient
+        Penalties penalties = Penalties.of(bestEdgeIds);
+        for (int search = 1; search < MAX_SEARCHES_PER_ROUTE * maxCount && routes.size() < maxCount; search++) {
+            Penalties currentPenalties = penalties;
+            Route candidate = routeComputer.bestRouteBetween(startNodeId, endNodeId,
+                    (nodeId, edgeId) -> costFunction.costFactor(nodeId, edgeId) * currentPenalties.factor(edgeId));
+            int[] candidateEdgeIds = RouteComputer.edgeIds(graph, candidate);
+            penalties = penalties.with(candidateEdgeIds);
+
+            /* Un itinéraire trop long n'arrête pas la recherche, les pénalités suivantes pouvant en produire un plus
+            court, et un itinéraire déjà retenu, possible lorsque maxOverlap vaut 1, est ignoré */
+            if (candidate.length() > maxStretch * best.length() || contains(routesEdgeIds, candidateEdgeIds)) continue;
+            double sharedLength = 0;
+            for (int i = 0; i < candidateEdgeIds.length; i++) {
+                if (Arrays.binarySearch(usedEdgeIds, candidateEdgeIds[i]) >= 0)
+                    sharedLength += candidate.edges().get(i).length();
+            }
+            if (sharedLength > maxOverlap * candidate.length()) continue;
+
+            routes.add(candidate);
+            routesEdgeIds.add(candidateEdgeIds);
+            usedEdgeIds = sortedUnion(usedEdgeIds, candidateEdgeIds);
+        }
+        return List.copyOf(routes);
+    }
+
+    //---------------------------------------------- Private ----------------------------------------------//
+
+    /**
+     * Fonction privée indiquant si la liste donnée contient une séquence d'identités d'arêtes égale à celle donnée.
+     *
+     * @param routesEdgeIds les séquences d'identités d'arêtes des itinéraires retenus
+     * @param edgeIds       la séquence d'identités d'arêtes d'un itinéraire
+     * @return true si l'itinéraire a déjà été retenu, false sinon
+     */
+    private static boolean contains(List<int[]> routesEdgeIds, int[] edgeIds) {
+        for (int[] routeEdgeIds : routesEdgeIds) {
+            if (Arrays.equals(routeEdgeIds, edgeIds)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Fonction privée retournant les identités, triées par ordre croissant et sans doublons, des arêtes appartenant à
+     * l'un ou l'autre des tableaux donnés.
+     *
+     * @param sortedEdgeIds des identités d'arêtes, triées par ordre croissant et sans doublons
+     * @param edgeIds       des identités d'arêtes quelconques
+     * @return l'union triée, sans doublons, des deux tableaux
+     */
+    private static int[] sortedUnion(int[] sortedEdgeIds, int[] edgeIds) {
+        int[] union = Arrays.copyOf(sortedEdgeIds, sortedEdgeIds.length + edgeIds.length);
+        System.arraycopy(edgeIds, 0, union, sortedEdgeIds.length, edgeIds.length);
+        Arrays.sort(union);
+
+        int count = 0;
+        for (int i = 0; i < union.length; i++) {
+            if (i == 0 || union[i] != union[i - 1]) union[count++] = union[i];
+        }
+        return Arrays.copyOf(union, count);
+    }
+
+    /**
+     * Enregistrement privé représentant les pénalités appliquées aux arêtes, le facteur de coût d'une arête étant
+     * multiplié par PENALTY_FACTOR pour chacun des itinéraires trouvés auxquels elle appartient. Les identités des
+     * arêtes étant triées, la pénalité d'une arête est obtenue par recherche dichotomique, sans allocation.
+     *
+     * @param edgeIds les identités des arêtes pénalisées, triées par ordre croissant
+     * @param factors le facteur de pénalité de chacune des arêtes
+     */
+    private record Penalties(int[] edgeIds, double[] factors) {
+
+        static Penalties of(int[] edgeIds) {
+            return new Penalties(new int[0], new double[0]).with(edgeIds);
+        }
+
+        double factor(int edgeId) {
+            int index = Arrays.binarySearch(edgeIds, edgeId);
+            return index >= 0 ? factors[index] : 1;
+        }
+
+        Penalties with(int[] routeEdgeIds) {
+            //Union sans doublons, chaque arête n'étant pénalisée qu'une fois par itinéraire
+            int[] newEdgeIds = sortedUnion(edgeIds, routeEdgeIds);
+
+            int[] sortedRouteEdgeIds = routeEdgeIds.clone();
+            Arrays.sort(sortedRouteEdgeIds);
+            double[] newFactors = new double[newEdgeIds.length];
+            for (int i = 0; i < newEdgeIds.length; i++) {
+                boolean inRoute = Arrays.binarySearch(sortedRouteEdgeIds, newEdgeIds[i]) >= 0;
+                newFactors[i] = factor(newEdgeIds[i]) * (inRoute ? PENALTY_FACTOR : 1);
+            }
+            return new Penalties(newEdgeIds, newFactors);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.AttributeSet;
+
+/**
+ * Interface représentant une fonction de coût dont le facteur se décompose en une partie ne dépendant que des
+ * attributs OSM de l'arête et de son sens, et en une correction ne dépendant que de sa pente moyenne. Une telle
+ * fonction peut être mémoïsée par MemoizedCostFunction.
+ *
+ * @author Jean Perbet (341418)
+ * @author Cassio Manuguerra (346232)
+ */
+public interface AttributeCostFunction extends CostFunction {
+
+    /**
+     * Fonction qui retourne la partie du facteur de coût d'une arête ne dépendant que de ses attributs et de son sens.
+     *
+     * @param attributes les attributs OSM de l'arête
+     * @param inverted   vrai si et seulement si l'arête va dans le sens inverse de la voie OSM dont elle provient
+     * @return le facteur de coût de l'arête, sans tenir compte de sa pente
+     */
+    double attributeCostFactor(AttributeSet attributes, boolean inverted);
+
+    /**
+     * Fonction qui retourne le facteur de coût final d'une arête à partir de sa partie dépendant des attributs,
+     * calculée par attributeCostFactor, et de la pente moyenne de l'arête.
+     *
+     * @param attributeCostFactor la partie du facteur de coût ne dépendant que des attributs et du sens de l'arête
+     * @param averageUpSlope      la pente moyenne montante de l'arête, c.-à-d. son dénivelé positif divisé par sa longueur
+     * @return le facteur de coût final de l'arête
+     */
+    double slopeCostFactor(double attributeCostFactor, double averageUpSlope);
+}
@@ -11,7 +11,7 @@ import static ch.epfl.javelo.data.Attribute.*;
 // https://github.com/abrensch/brouter/blob/15e84c81ea23408abde8605bd57a87a777003ce2/misc/profiles2/trekking.brf
 
 @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
-public record CityBikeCF(Graph graph) implements CostFunction {
+public record CityBikeCF(Graph graph) implements AttributeCostFunction {
     // Any kind of marked cycle route (international, national, regional or local)
     private static final AttributeSet CYCLE_ROUTE =
             AttributeSet.of(ICN_YES, NCN_YES, RCN_YES, LCN_YES);
@@ -62,15 +62,21 @@ public record CityBikeCF(Graph graph) implements CostFunction {
     private static final Optional<Boolean> FALSE = Optional.of(Boolean.FALSE);
     private static final Optional<Boolean> UNKNOWN = Optional.empty();
 
+    // Cost factor of steps, which does not depend on the slope.
+    private static final double STEPS_COST_FACTOR = 40d;
+
     @Override
     public double costFactor(int nodeId, int edgeId) {
-        var edgeAttributes = graph.edgeAttributes(edgeId);
+        var flatCost = attributeCostFactor(graph.edgeAttributes(edgeId), graph.edgeIsInverted(edgeId));
+        return slopeCostFactor(flatCost, graph.edgeElevationGain(edgeId) / graph.edgeLength(edgeId));
+    }
 
+    @Override
+    public double attributeCostFactor(AttributeSet edgeAttributes, boolean isInverted) {
         // Exclude motorways.
         if (edgeAttributes.contains(HIGHWAY_MOTORWAY)) return Double.POSITIVE_INFINITY;
 
         // Exclude forbidden one-way streets.
-        var isInverted = graph.edgeIsInverted(edgeId);
         var wrongOneWay = isInverted
                 ? edgeAttributes.intersects(ONEWAY_FORWARD)
                 : edgeAttributes.contains(ONEWAY_M1);
@@ -78,7 +84,7 @@ public record CityBikeCF(Graph graph) implements CostFunction {
             return Double.POSITIVE_INFINITY;
 
         // Penalize steps, as the bike has to be carried.
-        if (edgeAttributes.contains(HIGHWAY_STEPS)) return 40d;
+        if (edgeAttributes.contains(HIGHWAY_STEPS)) return STEPS_COST_FACTOR;
 
         var isCycleRoute = edgeAttributes.intersects(CYCLE_ROUTE);
 
@@ -91,11 +97,16 @@ public record CityBikeCF(Graph graph) implements CostFunction {
         if (!isAccessible) return Double.POSITIVE_INFINITY;
 
         // Marked cycle routes are always considered as perfect, anything else is worse.
-        var flatCost = isCycleRoute
+        return isCycleRoute
                 ? 1d
                 : 0.05 + nonCycleRouteCostFactor(edgeAttributes);
+    }
+
+    @Override
+    public double slopeCostFactor(double flatCost, double averageUpSlope) {
+        // Steps and forbidden edges have a fixed cost, greater than that of any other edge.
+        if (flatCost >= STEPS_COST_FACTOR) return flatCost;
 
-        var averageUpSlope = graph.edgeElevationGain(edgeId) / graph.edgeLength(edgeId);
         if (averageUpSlope < 0.01) return flatCost;
         else if (averageUpSlope < 0.03) return flatCost * 1.2;
         else if (averageUpSlope < 0.05) return flatCost * 1.4;
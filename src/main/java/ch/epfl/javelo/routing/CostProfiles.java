@@ -0,0 +1,64 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Preconditions;
+import ch.epfl.javelo.data.Graph;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Classe immuable représentant un registre de profils de coût nommés (par ex. vélo de ville, vélo de route, vélo
+ * électrique) pour un même graphe. Chaque profil est précalculé sous la forme d'une table de coûts, si bien qu'un
+ * unique planificateur d'itinéraire, et une unique copie du graphe en mémoire, suffisent à servir tous les profils.
+ *
+ * @author Jean Perbet (341418)
+ * @author Cassio Manuguerra (346232)
+ */
+public final class CostProfiles {
+
+    private final Map<String, CostTable> profiles;
+
+    /**
+     * Constructeur public d'un registre de profils de coût, qui précalcule la table de coûts de chacun des profils
+     * donnés. Les profils étant déjà des tables de coûts, par ex. chargées depuis un fichier, sont utilisés tels quels.
+     *
+     * @param graph    le graphe sur lequel les profils sont définis
+     * @param profiles les fonctions de coût des profils, associées à leur nom
+     * @throws IllegalArgumentException si aucun profil n'est donné, ou si une table ne couvre pas toutes les arêtes
+     */
+    public CostProfiles(Graph graph, Map<String, ? extends CostFunction> profiles) {
+        Preconditions.checkArgument(!profiles.isEmpty());
+        Map<String, CostTable> tables = new HashMap<>();
+        for (Map.Entry<String, ? extends CostFunction> profile : profiles.entrySet()) {
+            CostTable table = profile.getValue() instanceof CostTable costTable
+                    ? costTable
+                    : CostTable.of(graph, profile.getValue());
+            Preconditions.checkArgument(table.size() == graph.edgeCount());
+            tables.put(profile.getKey(), table);
+        }
+        this.profiles = Map.copyOf(tables);
+    }
+
+    /**
+     * Fonction retournant l'ensemble des noms des profils du registre.
+     *
+     * @return l'ensemble, non modifiable, des noms des profils
+     */
+    public Set<String> names() {
+        return profiles.keySet();
+    }
+
+    /**
+     * Fonction retournant la fonction de coût précalculée du profil de nom donné.
+     *
+     * @param name le nom du profil
+     * @return la table de coûts du profil de nom donné
+     * @throws IllegalArgumentException si aucun profil ne porte ce nom
+     */
+    public CostFunction get(String name) {
+        CostTable table = profiles.get(name);
+        Preconditions.checkArgument(table != null);
+        return table;
+    }
+}
@@ -0,0 +1,115 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Preconditions;
+import ch.epfl.javelo.data.Graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Classe immuable représentant une fonction de coût précalculée : le facteur de coût de chaque arête du graphe est
+ * calculé une seule fois, stocké dans un tableau de float indexé par l'identité de l'arête, et le calcul d'itinéraire
+ * n'a plus qu'à lire ce tableau. Une telle table peut être enregistrée dans un fichier binaire à côté du graphe, qui
+ * contient les facteurs de coût des arêtes successives sous la forme de float en big-endian.
+ *
+ * @author Jean Perbet (341418)
+ * @author Cassio Manuguerra (346232)
+ */
+public final class CostTable implements CostFunction {
+
+    private final float[] costFactors;
+
+    /**
+     * Constructeur privé d'une table de coûts, qui ne copie pas le tableau donné.
+     *
+     * @param costFactors le facteur de coût de chaque arête, indexé par son identité
+     */
+    private CostTable(float[] costFactors) {
+        this.costFactors = costFactors;
+    }
+
+    /**
+     * Méthode de construction retournant la table des coûts de toutes les arêtes du graphe donné, selon la fonction de
+     * coût donnée. Chaque arête sortant d'un unique nœud, son facteur de coût est calculé depuis ce nœud.
+     *
+     * @param graph        le graphe dont on veut la table des coûts
+     * @param costFunction la fonction de coût à précalculer
+     * @return la table des coûts des arêtes du graphe selon la fonction de coût donnée
+     */
+    public static CostTable of(Graph graph, CostFunction costFunction) {
+        //Les arêtes ne sortant d'aucun nœud ne sont jamais empruntées, et sont considérées infranchissables
+        float[] costFactors = new float[graph.edgeCount()];
+        Arrays.fill(costFactors, Float.POSITIVE_INFINITY);
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+            for (int i = 0; i < graph.nodeOutDegree(nodeId); i++) {
+                int edgeId = graph.nodeOutEdgeId(nodeId, i);
+                costFactors[edgeId] = (float) costFunction.costFactor(nodeId, edgeId);
+            }
+        }
+        return new CostTable(costFactors);
+    }
+
+    /**
+     * Méthode de construction chargeant la table des coûts du graphe donné contenue dans le fichier donné.
+     *
+     * @param path  le chemin d'accès au fichier contenant la table
+     * @param graph le graphe dont le fichier contient la table des coûts
+     * @return la table des coûts contenue dans le fichier
+     * @throws IOException              en cas d'erreur d'entrée/sortie, par ex. si le fichier n'existe pas
+     * @throws IllegalArgumentException si le fichier ne contient pas exactement un facteur de coût par arête du
+     *                                  graphe, par ex. s'il a été écrit pour un autre graphe
+     */
+    public static CostTable loadFrom(Path path, Graph graph) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        Preconditions.checkArgument(buffer.capacity() == (long) Float.BYTES * graph.edgeCount());
+        float[] costFactors = new float[graph.edgeCount()];
+        buffer.asFloatBuffer().get(costFactors);
+        return new CostTable(costFactors);
+    }
+
+    /**
+     * Méthode permettant d'écrire la table des coûts dans le fichier donné.
+     *
+     * @param path le chemin d'accès au fichier dans lequel écrire la table
+     * @throws IOException en cas d'erreur d'entrée/sortie
+     */
+    public void writeTo(Path path) throws IOException {
+        try (DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            for (float costFactor : costFactors) stream.writeFloat(costFactor);
+        }
+    }
+
+    /**
+     * Fonction retournant le nombre d'arêtes couvertes par la table.
+     *
+     * @return le nombre d'arêtes couvertes par la table
+     */
+    public int size() {
+        return costFactors.length;
+    }
+
+    @Override
+    public double costFactor(int nodeId, int edgeId) {
+        return costFactors[edgeId];
+    }
+
+    /**
+     * Outil en ligne de commande précalculant la table des coûts de CityBikeCF pour le graphe contenu dans le
+     * répertoire donné en premier argument, et l'enregistrant dans ce même répertoire sous le nom donné en second
+     * argument, ou city_bike_costs.bin par défaut.
+     *
+     * @param args le répertoire du graphe, puis éventuellement le nom du fichier à créer
+     * @throws IOException en cas d'erreur d'entrée/sortie
+     */
+    public static void main(String[] args) throws IOException {
+        Path basePath = Path.of(args[0]);
+        String fileName = args.length > 1 ? args[1] : "city_bike_costs.bin";
+        Graph graph = Graph.loadFrom(basePath);
+        CostTable.of(graph, new CityBikeCF(graph)).writeTo(basePath.resolve(fileName));
+    }
+}
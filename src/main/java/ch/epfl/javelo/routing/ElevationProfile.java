@@ -1,13 +1,19 @@
 package ch.epfl.javelo.routing;
 
 import ch.epfl.javelo.Functions;
+import ch.epfl.javelo.Math2;
 import ch.epfl.javelo.Preconditions;
 
 import java.util.Arrays;
 import java.util.DoubleSummaryStatistics;
+import java.util.function.DoubleUnaryOperator;
 
 /**
  * Classe immuable représentant le profil en long d'un itinéraire simple ou multiple.
+ * <p>
+ * Les statistiques du profil complet sont calculées à la construction. Celles d'une partie du profil sont obtenues en
+ * temps constant grâce à un index construit au premier besoin, formé d'une table clairsemée des minima et maxima et des
+ * sommes cumulées des dénivelés.
  *
  * @author Jean Perbet (341418)
  * @author Cassio Manuguerra (346232)
@@ -16,6 +22,9 @@ public final class ElevationProfile {
 
     private final double length;
     private final float[] elevationSamples;
+    private final DoubleUnaryOperator profile;
+    private final double minElevation, maxElevation, totalAscent, totalDescent;
+    private volatile RangeIndex rangeIndex;
 
     /**
      * Constructeur public du profil en long d'un itinéraire simple ou multiple.
@@ -29,6 +38,13 @@ public final class ElevationProfile {
         Preconditions.checkArgument(length > 0 && elevationSamples.length >= 2);
         this.length = length;
         this.elevationSamples = Arrays.copyOf(elevationSamples, elevationSamples.length);
+        this.profile = Functions.sampled(elevationSamples, length);
+
+        DoubleSummaryStatistics stats = stats(elevationSamples);
+        this.minElevation = stats.getMin();
+        this.maxElevation = stats.getMax();
+        this.totalAscent = computeElevationDifference(true, elevationSamples);
+        this.totalDescent = computeElevationDifference(false, elevationSamples);
     }
 
     /**
@@ -46,7 +62,7 @@ public final class ElevationProfile {
      * @return l'altitude minimum du profil en mètres
      */
     public double minElevation() {
-        return stats(elevationSamples).getMin();
+        return minElevation;
     }
 
     /**
@@ -55,7 +71,7 @@ public final class ElevationProfile {
      * @return l'altitude maximum du profil en mètres
      */
     public double maxElevation() {
-        return stats(elevationSamples).getMax();
+        return maxElevation;
     }
 
     /**
@@ -64,7 +80,7 @@ public final class ElevationProfile {
      * @return le dénivelé positif total du profil en mètres
      */
     public double totalAscent() {
-        return computeElevationDifference(true, elevationSamples);
+        return totalAscent;
     }
 
     /**
@@ -73,7 +89,7 @@ public final class ElevationProfile {
      * @return le dénivelé négatif total du profil en mètres
      */
     public double totalDescent() {
-        return computeElevationDifference(false, elevationSamples);
+        return totalDescent;
     }
 
     /**
@@ -86,7 +102,109 @@ public final class ElevationProfile {
      * @return l'altitude du profil à la position donnée
      */
     public double elevationAt(double position) {
-        return Functions.sampled(elevationSamples, length).applyAsDouble(position);
+        return profile.applyAsDouble(position);
+    }
+
+    /**
+     * Méthode qui place dans le tableau out l'altitude du profil à chacune des positions données, de la même manière
+     * que elevationAt, afin d'évaluer un grand nombre de positions, par ex. une par pixel, sans allocation.
+     *
+     * @param positions les positions auxquelles évaluer le profil
+     * @param out       le tableau dans lequel placer les altitudes, à l'index de leur position
+     * @throws IllegalArgumentException si le tableau out est plus petit que celui des positions
+     */
+    public void elevationsAt(double[] positions, float[] out) {
+        Preconditions.checkArgument(out.length >= positions.length);
+        for (int i = 0; i < positions.length; i++) out[i] = (float) profile.applyAsDouble(positions[i]);
+    }
+
+    /**
+     * Méthode qui place dans le tableau out l'altitude du profil à chacune des positions données, de la même manière
+     * que elevationAt, sans perte de précision par rapport à celle-ci.
+     *
+     * @param positions les positions auxquelles évaluer le profil
+     * @param out       le tableau dans lequel placer les altitudes, à l'index de leur position
+     * @throws IllegalArgumentException si le tableau out est plus petit que celui des positions
+     */
+    public void elevationsAt(double[] positions, double[] out) {
+        Preconditions.checkArgument(out.length >= positions.length);
+        for (int i = 0; i < positions.length; i++) out[i] = profile.applyAsDouble(positions[i]);
+    }
+
+    /**
+     * Fonction qui retourne l'altitude minimum, en mètres, de la partie du profil comprise entre les positions
+     * données, ramenées entre zéro et la longueur du profil.
+     *
+     * @param from la position de début de la partie du profil
+     * @param to   la position de fin de la partie du profil
+     * @return l'altitude minimum de la partie du profil, en mètres
+     * @throws IllegalArgumentException si la position de début est supérieure à celle de fin
+     */
+    public double minElevation(double from, double to) {
+        return extremum(from, to, false);
+    }
+
+    /**
+     * Fonction qui retourne l'altitude maximum, en mètres, de la partie du profil comprise entre les positions
+     * données, ramenées entre zéro et la longueur du profil.
+     *
+     * @param from la position de début de la partie du profil
+     * @param to   la position de fin de la partie du profil
+     * @return l'altitude maximum de la partie du profil, en mètres
+     * @throws IllegalArgumentException si la position de début est supérieure à celle de fin
+     */
+    public double maxElevation(double from, double to) {
+        return extremum(from, to, true);
+    }
+
+    /**
+     * Fonction qui retourne le dénivelé positif, en mètres, de la partie du profil comprise entre les positions
+     * données, ramenées entre zéro et la longueur du profil.
+     *
+     * @param from la position de début de la partie du profil
+     * @param to   la position de fin de la partie du profil
+     * @return le dénivelé positif de la partie du profil, en mètres
+     * @throws IllegalArgumentException si la position de début est supérieure à celle de fin
+     */
+    public double ascent(double from, double to) {
+        return elevationDifference(from, to, true);
+    }
+
+    /**
+     * Fonction qui retourne le dénivelé négatif, en mètres, de la partie du profil comprise entre les positions
+     * données, ramenées entre zéro et la longueur du profil.
+     *
+     * @param from la position de début de la partie du profil
+     * @param to   la position de fin de la partie du profil
+     * @return le dénivelé négatif de la partie du profil, en mètres
+     * @throws IllegalArgumentException si la position de début est supérieure à celle de fin
+     */
+    public double descent(double from, double to) {
+        return elevationDifference(from, to, false);
+    }
+
+    /**
+     * Méthode qui découpe la partie du profil comprise entre les positions données en mins.length intervalles de même
+     * longueur, par ex. un par pixel, et place dans les tableaux mins et maxs l'altitude minimum et maximum de chacun
+     * d'eux. Contrairement à l'évaluation du profil en une position par intervalle, les pics et les creux situés entre
+     * deux positions sont conservés, et chaque intervalle est traité en temps constant quelle que soit sa longueur.
+     *
+     * @param from la position de début de la partie du profil
+     * @param to   la position de fin de la partie du profil
+     * @param mins le tableau dans lequel placer l'altitude minimum de chaque intervalle
+     * @param maxs le tableau dans lequel placer l'altitude maximum de chaque intervalle
+     * @throws IllegalArgumentException si la position de début n'est pas inférieure à celle de fin, si les tableaux
+     *                                  sont vides ou s'ils n'ont pas la même taille
+     */
+    public void extremaBetween(double from, double to, float[] mins, float[] maxs) {
+        Preconditions.checkArgument(from < to && mins.length > 0 && mins.length == maxs.length);
+        double bucketLength = (to - from) / mins.length;
+        for (int i = 0; i < mins.length; i++) {
+            double bucketFrom = from + i * bucketLength;
+            double bucketTo = i == mins.length - 1 ? to : bucketFrom + bucketLength;
+            mins[i] = (float) extremum(bucketFrom, bucketTo, false);
+            maxs[i] = (float) extremum(bucketFrom, bucketTo, true);
+        }
     }
 
     //---------------------------------------------- Private ----------------------------------------------//
@@ -120,4 +238,135 @@ public final class ElevationProfile {
         }
         return elevationDifference;
     }
+
+    /**
+     * Méthode privée retournant l'altitude minimum ou maximum de la partie du profil comprise entre les positions
+     * données : celle-ci est atteinte soit à l'une des deux extrémités, soit en l'un des échantillons situés entre
+     * elles, l'altitude variant linéairement entre deux échantillons.
+     *
+     * @param from la position de début de la partie du profil
+     * @param to   la position de fin de la partie du profil
+     * @param max  vrai si on cherche l'altitude maximum et faux si on cherche l'altitude minimum
+     * @return l'altitude minimum ou maximum de la partie du profil
+     */
+    private double extremum(double from, double to, boolean max) {
+        Preconditions.checkArgument(from <= to);
+        from = Math2.clamp(0, from, length);
+        to = Math2.clamp(0, to, length);
+        double fromElevation = elevationAt(from), toElevation = elevationAt(to);
+        double extremum = max ? Math.max(fromElevation, toElevation) : Math.min(fromElevation, toElevation);
+
+        int first = firstSampleAfter(from), last = lastSampleBefore(to);
+        if (first > last) return extremum;
+        double samplesExtremum = rangeIndex().extremum(first, last, max);
+        return max ? Math.max(extremum, samplesExtremum) : Math.min(extremum, samplesExtremum);
+    }
+
+    /**
+     * Méthode privée retournant le dénivelé positif ou négatif de la partie du profil comprise entre les positions
+     * données, égal à celui entre l'altitude de début et le premier échantillon situé entre elles, plus celui entre les
+     * échantillons intermédiaires, obtenu par différence de sommes cumulées, plus celui entre le dernier échantillon et
+     * l'altitude de fin.
+     *
+     * @param from     la position de début de la partie du profil
+     * @param to       la position de fin de la partie du profil
+     * @param positive vrai si on cherche le dénivelé positif et faux si on cherche le dénivelé négatif
+     * @return le dénivelé positif ou négatif de la partie du profil
+     */
+    private double elevationDifference(double from, double to, boolean positive) {
+        Preconditions.checkArgument(from <= to);
+        from = Math2.clamp(0, from, length);
+        to = Math2.clamp(0, to, length);
+        double sign = positive ? 1 : -1;
+        double previous = elevationAt(from);
+        double elevationDifference = 0;
+
+        int first = firstSampleAfter(from), last = lastSampleBefore(to);
+        if (first <= last) {
+            double[] cumulated = positive ? rangeIndex().ascents() : rangeIndex().descents();
+            elevationDifference += Math.max(0, sign * (elevationSamples[first] - previous))
+                    + cumulated[last] - cumulated[first];
+            previous = elevationSamples[last];
+        }
+        return elevationDifference + Math.max(0, sign * (elevationAt(to) - previous));
+    }
+
+    /**
+     * Méthode privée retournant l'index du premier échantillon situé strictement après la position donnée.
+     *
+     * @param position la position, comprise entre zéro et la longueur du profil
+     * @return l'index du premier échantillon situé après la position
+     */
+    private int firstSampleAfter(double position) {
+        return (int) Math.floor(position / (length / (elevationSamples.length - 1))) + 1;
+    }
+
+    /**
+     * Méthode privée retournant l'index du dernier échantillon situé strictement avant la position donnée.
+     *
+     * @param position la position, comprise entre zéro et la longueur du profil
+     * @return l'index du dernier échantillon situé avant la position
+     */
+    private int lastSampleBefore(double position) {
+        return Math.min(elevationSamples.length - 1,
+                (int) Math.ceil(position / (length / (elevationSamples.length - 1))) - 1);
+    }
+
+    /**
+     * Méthode privée retournant l'index des parties du profil, construit au premier appel seulement.
+     *
+     * @return l'index des parties du profil
+     */
+    private RangeIndex rangeIndex() {
+        RangeIndex index = rangeIndex;
+        if (index == null) rangeIndex = index = RangeIndex.of(elevationSamples);
+        return index;
+    }
+
+    /**
+     * Enregistrement privé représentant l'index des parties du profil. Le niveau k des tables clairsemées contient, à
+     * l'index i, le minimum, respectivement le maximum, des 2^k échantillons commençant à l'index i, si bien que
+     * l'extremum de n'importe quelle suite d'échantillons est celui de deux entrées d'un même niveau qui la recouvrent.
+     * Chaque niveau est donc une version du profil à une résolution 2^k fois moindre, dont les intervalles ne sont pas
+     * seulement alignés sur les multiples de 2^k mais commencent à chaque échantillon.
+     * Les tableaux de dénivelés contiennent, à l'index i, le dénivelé positif, respectivement négatif, cumulé entre le
+     * premier échantillon et celui d'index i.
+     *
+     * @param mins     la table clairsemée des minima, dont le niveau 0 est le tableau des échantillons
+     * @param maxs     la table clairsemée des maxima, dont le niveau 0 est le tableau des échantillons
+     * @param ascents  les dénivelés positifs cumulés
+     * @param descents les dénivelés négatifs cumulés
+     */
+    private record RangeIndex(float[][] mins, float[][] maxs, double[] ascents, double[] descents) {
+
+        static RangeIndex of(float[] samples) {
+            int levels = 32 - Integer.numberOfLeadingZeros(samples.length);
+            float[][] mins = new float[levels][], maxs = new float[levels][];
+            mins[0] = samples;
+            maxs[0] = samples;
+            for (int k = 1; k < levels; k++) {
+                int half = 1 << (k - 1);
+                mins[k] = new float[samples.length - 2 * half + 1];
+                maxs[k] = new float[mins[k].length];
+                for (int i = 0; i < mins[k].length; i++) {
+                    mins[k][i] = Math.min(mins[k - 1][i], mins[k - 1][i + half]);
+                    maxs[k][i] = Math.max(maxs[k - 1][i], maxs[k - 1][i + half]);
+                }
+            }
+
+            double[] ascents = new double[samples.length], descents = new double[samples.length];
+            for (int i = 1; i < samples.length; i++) {
+                ascents[i] = ascents[i - 1] + Math.max(0, (double) samples[i] - samples[i - 1]);
+                descents[i] = descents[i - 1] + Math.max(0, (double) samples[i - 1] - samples[i]);
+            }
+            return new RangeIndex(mins, maxs, ascents, descents);
+        }
+
+        double extremum(int first, int last, boolean max) {
+            int k = 31 - Integer.numberOfLeadingZeros(last - first + 1);
+            float[] level = max ? maxs[k] : mins[k];
+            float a = level[first], b = level[last - (1 << k) + 1];
+            return max ? Math.max(a, b) : Math.min(a, b);
+        }
+    }
 }
@@ -4,6 +4,7 @@ import ch.epfl.javelo.Math2;
 import ch.epfl.javelo.Preconditions;
 
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * Classe représentant un calculateur de profil en long pour calculer
@@ -34,75 +35,124 @@ public final class ElevationProfileComputer {
         //L'espacement entre les échantillons compte tenu de maxStepLength et de la longueur de l'itinéraire
         double stepLength = route.length() / (elevationSamples.length - 1.0);
 
-        //Remplissage du tableau, en comptant les éventuels NaN
-        for (int i = 0; i < elevationSamples.length; i++)
-            elevationSamples[i] = (float) route.elevationAt(i * stepLength);
+        /* Les positions des échantillons étant croissantes, les segments de l'itinéraire puis les arêtes de chaque
+        segment sont parcourus en une seule passe, sans recherche dichotomique. Chaque suite de NaN est remplacée dès
+        que l'échantillon valide qui la suit est connu. */
+        int leafCount = route instanceof MultiRoute multiRoute ? multiRoute.leafCount() : 1;
+        int leaf = 0, edge = 0;
+        int lastValid = -1;
+        for (int i = 0; i < elevationSamples.length; i++) {
+            double position = Math2.clamp(0, i * stepLength, route.length());
+            while (leaf < leafCount - 1 && position > leafPosition(route, leaf + 1)) {
+                leaf += 1;
+                edge = 0;
+            }
+            Route segment = route instanceof MultiRoute multiRoute ? multiRoute.leaf(leaf) : route;
+            double positionOnSegment = position - leafPosition(route, leaf);
+
+            float elevation;
+            if (segment instanceof SingleRoute singleRoute) {
+                double[] positions = singleRoute.positions();
+                positionOnSegment = Math2.clamp(0, positionOnSegment, singleRoute.length());
+                while (edge < positions.length - 1 && positions[edge + 1] <= positionOnSegment) edge += 1;
+                elevation = (float) elevationAt(singleRoute, edge, positionOnSegment);
+            } else {
+                elevation = (float) segment.elevationAt(positionOnSegment);
+            }
 
+            elevationSamples[i] = elevation;
+            if (!Float.isNaN(elevation)) lastValid = fillNaNBefore(elevationSamples, lastValid, i);
+        }
+        fillTrailingNaN(elevationSamples, lastValid);
 
-        //Recherche du nombre d'éléments invalides au début et à la fin du tableau
-        int startInvalids = invalidElements(elevationSamples, false);
-        int endInvalids = invalidElements(elevationSamples, true);
+        return new ElevationProfile(route.length(), elevationSamples);
+    }
 
-        //Retour d'un profil d'altitude 0 si uniquement des NaN
-        if (startInvalids == elevationSamples.length) {
-            Arrays.fill(elevationSamples, 0, elevationSamples.length, 0);
-            return new ElevationProfile(route.length(), elevationSamples);
+    /**
+     * Méthode remplaçant les valeurs invalides (NaN) du tableau d'échantillons donné : celles situées au début et à la
+     * fin du tableau prennent la valeur du premier, respectivement du dernier, échantillon valide, et celles situées
+     * entre deux échantillons valides sont interpolées linéairement. Si aucun échantillon n'est valide, tous valent 0.
+     * Le tableau est parcouru une seule fois, chaque suite de NaN étant remplie dès que sa fin est connue.
+     *
+     * @param elevationSamples le tableau d'échantillons à compléter
+     */
+    static void fillNaN(float[] elevationSamples) {
+        int lastValid = -1;
+        for (int i = 0; i < elevationSamples.length; i++) {
+            if (!Float.isNaN(elevationSamples[i])) lastValid = fillNaNBefore(elevationSamples, lastValid, i);
         }
+        fillTrailingNaN(elevationSamples, lastValid);
+    }
 
-        //Remplissage des premières et dernières valeurs invalides du tableau
-        Arrays.fill(elevationSamples, 0, startInvalids, elevationSamples[startInvalids]);
-        Arrays.fill(elevationSamples, elevationSamples.length - 1 - endInvalids, elevationSamples.length,
-                elevationSamples[elevationSamples.length - 1 - endInvalids]);
-
-        //Remplissage des éléments invalides du tableau situés entre des éléments valides
-        fillMiddleNaN(elevationSamples);
+    //---------------------------------------------- Private ----------------------------------------------//
 
-        return new ElevationProfile(route.length(), elevationSamples);
+    /**
+     * Fonction privée retournant la position de début du segment aplati d'index donné de l'itinéraire, qui n'a qu'un
+     * seul segment s'il n'est pas multiple.
+     *
+     * @param route l'itinéraire
+     * @param leaf  l'index du segment aplati
+     * @return la position de début du segment
+     */
+    private static double leafPosition(Route route, int leaf) {
+        if (route instanceof MultiRoute multiRoute) return multiRoute.leafPosition(leaf);
+        return leaf == 0 ? 0 : route.length();
     }
 
-    //---------------------------------------------- Private ----------------------------------------------//
+    /**
+     * Fonction privée retournant l'altitude de l'itinéraire simple donné à la position donnée, sachant qu'elle se
+     * trouve sur l'arête d'index donné ou à son début, de la même manière que SingleRoute.elevationAt.
+     *
+     * @param route    l'itinéraire simple
+     * @param edge     l'index de l'arête, dont la position de début est inférieure ou égale à la position donnée
+     * @param position la position sur l'itinéraire, comprise entre 0 et sa longueur
+     * @return l'altitude de l'itinéraire à la position donnée, éventuellement NaN
+     */
+    private static double elevationAt(SingleRoute route, int edge, double position) {
+        List<Edge> edges = route.edges();
+        double[] positions = route.positions();
+        if (position != positions[edge]) return edges.get(edge).elevationAt(position - positions[edge]);
+
+        //Cas où la position correspond exactement à celle d'un nœud
+        if (edge == edges.size()) return edges.get(edge - 1).elevationAt(edges.get(edge - 1).length());
+        if (edge == 0) return edges.get(0).elevationAt(0);
+        double elevation = edges.get(edge).elevationAt(0);
+        return Float.isNaN((float) elevation)
+                ? edges.get(edge - 1).elevationAt(edges.get(edge - 1).length())
+                : elevation;
+    }
 
     /**
-     * Méthode privée permettant de remplacer dans le tableau elevationSamples les valeurs valant Float.NaN
-     * par des valeurs calculées par interpolation linéaire entre leurs voisins valides les plus proches : le
-     * tableau doit au préalable avoir au moins ses deux extrémités de valides.
+     * Méthode privée remplaçant la suite d'échantillons invalides précédant l'échantillon valide d'index donné : par
+     * la valeur de celui-ci si elle se trouve au début du tableau, et par interpolation linéaire entre lui et le
+     * dernier échantillon valide sinon.
      *
-     * @param elevationSamples le tableau à analyser
+     * @param elevationSamples le tableau d'échantillons
+     * @param lastValid        l'index du dernier échantillon valide avant valid, ou -1 s'il n'y en a pas
+     * @param valid            l'index de l'échantillon valide
+     * @return l'index de l'échantillon valide, qui devient le dernier échantillon valide
      */
-    private static void fillMiddleNaN(float[] elevationSamples) {
-        for (int i = 0; i < elevationSamples.length; i++) {
-            if (Float.isNaN(elevationSamples[i])) {
-                //Recherche du nombre d'éléments invalides consécutifs dans le tableau
-                double invalidElements = 1;
-                for (int j = 1; j < elevationSamples.length - 1; j++) {
-                    if (!Float.isNaN(elevationSamples[i + j])) break;
-                    else invalidElements++;
-                }
-                //Remplacement des éléments invalides consécutifs par interpolation linéaire
-                for (int j = 0; j < invalidElements; j++)
-                    elevationSamples[i + j] = (float) Math2.interpolate(elevationSamples[i - 1],
-                            elevationSamples[(int) (i + invalidElements)], (j + 1) / (invalidElements + 1));
-            }
+    private static int fillNaNBefore(float[] elevationSamples, int lastValid, int valid) {
+        if (lastValid == -1) {
+            Arrays.fill(elevationSamples, 0, valid, elevationSamples[valid]);
+            return valid;
         }
+        double invalidElements = valid - lastValid - 1;
+        for (int j = 0; j < invalidElements; j++)
+            elevationSamples[lastValid + 1 + j] = (float) Math2.interpolate(elevationSamples[lastValid],
+                    elevationSamples[valid], (j + 1) / (invalidElements + 1));
+        return valid;
     }
 
     /**
-     * Méthode privée permettant de calculer le nombre d'éléments invalides avant le premier élément valide à partir d'une
-     * extrémité du tableau array, en itérant à partir de la fin si inverted est à true et à partir du début si inverted est à false.
+     * Méthode privée remplaçant les échantillons invalides suivant le dernier échantillon valide par la valeur de
+     * celui-ci, ou tous les échantillons par 0 s'il n'y a aucun échantillon valide.
      *
-     * @param array    le tableau à analyser
-     * @param inverted vrai si chercher dans l'ordre inverse et faux si chercher dans l'ordre du tableau
-     * @return l'index du prochain élément valide
+     * @param elevationSamples le tableau d'échantillons
+     * @param lastValid        l'index du dernier échantillon valide, ou -1 s'il n'y en a pas
      */
-    private static int invalidElements(float[] array, boolean inverted) {
-        int invalidElements = 0;
-        if (!inverted) {
-            while (invalidElements < array.length && Float.isNaN(array[invalidElements]))
-                invalidElements++;
-        } else {
-            while (invalidElements < array.length && Float.isNaN(array[array.length - 1 - invalidElements]))
-                invalidElements++;
-        }
-        return invalidElements;
+    private static void fillTrailingNaN(float[] elevationSamples, int lastValid) {
+        if (lastValid == -1) Arrays.fill(elevationSamples, 0);
+        else Arrays.fill(elevationSamples, lastValid + 1, elevationSamples.length, elevationSamples[lastValid]);
     }
 }
@@ -7,13 +7,15 @@ import org.w3c.dom.Element;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.*;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import java.io.FileWriter;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 
 /**
  * Classe représentant un générateur d'itinéraire au format GPX.
@@ -23,6 +25,9 @@ import java.nio.file.Path;
  */
 public class GpxGenerator {
 
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final int INDENT_AMOUNT = 4;
+
     private GpxGenerator(){}
 
     /**
@@ -60,12 +65,23 @@ public class GpxGenerator {
         root.appendChild(rte);
 
         //Ajout du point de départ au fichier
-        addStartToGpx(doc, rte, route);
+        addStartToGpx(doc, rte, route, profile);
+
+        //Altitudes de la fin de chaque arête, évaluées en une seule fois
+        List<Edge> edges = route.edges();
+        double[] positions = new double[edges.size()];
         double position = 0;
+        for (int i = 0; i < edges.size(); i++) {
+            position += edges.get(i).length();
+            positions[i] = position;
+        }
+        double[] elevations = new double[edges.size()];
+        profile.elevationsAt(positions, elevations);
 
         //Parcours de toutes les arêtes pour compléter le document GPX
-        for (Edge edge : route.edges()) {
-            
+        for (int i = 0; i < edges.size(); i++) {
+            Edge edge = edges.get(i);
+
             //Création de la balise rtept (route point)
             Element rtept = doc.createElement("rtept");
             rtept.setAttribute("lat", "" + Math.toDegrees(edge.toPoint().lat()));
@@ -73,9 +89,8 @@ public class GpxGenerator {
             rte.appendChild(rtept);
 
             //Création de la balise ele (elevation)
-            position += edge.length() ;
             Element ele = doc.createElement("ele");
-            ele.setTextContent("" + profile.elevationAt(position));
+            ele.setTextContent("" + elevations[i]);
             rtept.appendChild(ele);
         }
         return doc ;
@@ -83,22 +98,74 @@ public class GpxGenerator {
 
     /**
      * Méthode permettant d'écrire le document GPX correspondant à l'itinéraire dans le fichier passés en arguments.
+     * Le document est écrit au fur et à mesure du parcours des arêtes, sans être construit en mémoire, et le fichier
+     * obtenu est identique à celui qu'on obtiendrait en écrivant le document retourné par createGpx avec indentation.
      *
      * @param path le chemin d'accès au fichier dans lequel on veut écrire le document GPX
      * @param route l'itinéraire dont on veut écrire le GPX dans le fichier fileName
      * @param profile le profil de l'itinéraire
-     * @throws IOException si le fileName est invalide
+     * @throws IOException si le fileName est invalide ou en cas d'erreur d'écriture
      */
     public static void writeGpx(Path path, Route route, ElevationProfile profile) throws IOException {
-        Document doc = createGpx(route, profile);
-        Writer w = new FileWriter(path.toString());
-        Transformer transformer;
+        try (Writer w = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writeGpx(w, route, profile);
+        }
+    }
+
+    /**
+     * Méthode permettant d'écrire le document GPX correspondant à l'itinéraire dans le flot de caractères donné, qui
+     * n'est pas fermé, de la même manière que writeGpx(Path, Route, ElevationProfile).
+     *
+     * @param writer le flot dans lequel écrire le document GPX
+     * @param route l'itinéraire dont on veut écrire le GPX
+     * @param profile le profil de l'itinéraire
+     * @throws IOException en cas d'erreur d'écriture
+     */
+    public static void writeGpx(Writer writer, Route route, ElevationProfile profile) throws IOException {
+        //Déclaration écrite directement, XMLStreamWriter ne sachant pas écrire l'attribut standalone
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+        writer.write(LINE_SEPARATOR);
         try {
-            transformer = TransformerFactory.newDefaultInstance().newTransformer();
-            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            transformer.transform(new DOMSource(doc), new StreamResult(w));
-        } catch (TransformerException e){
-            throw new Error(e); //Ne va jamais arriver, permet d'éviter l'annotation throws ...
+            XMLStreamWriter xml = XMLOutputFactory.newDefaultFactory().createXMLStreamWriter(writer);
+
+            //Attributs de la balise gpx dans l'ordre, alphabétique, où le DOM les écrit
+            xml.writeStartElement("gpx");
+            xml.writeAttribute("creator", "JaVelo");
+            xml.writeAttribute("version", "1.1");
+            xml.writeNamespace("xsi", "https://www.w3.org/2001/XMLSchema-instance");
+            xml.writeAttribute("xsi", "https://www.w3.org/2001/XMLSchema-instance", "schemaLocation",
+                    "https://www.topografix.com/GPX/1/1 " + "https://www.topografix.com/GPX/1/1/gpx.xsd");
+            xml.writeDefaultNamespace("https://www.topografix.com/GPX/1/1");
+
+            //Balises metadata et name
+            indent(xml, 1);
+            xml.writeStartElement("metadata");
+            indent(xml, 2);
+            xml.writeStartElement("name");
+            xml.writeCharacters("Route JaVelo");
+            xml.writeEndElement();
+            indent(xml, 1);
+            xml.writeEndElement();
+
+            //Balise rte, contenant le point de départ puis la fin de chaque arête
+            indent(xml, 1);
+            xml.writeStartElement("rte");
+            writeRoutePoint(xml, route.points().get(0), profile.elevationAt(0));
+            double position = 0;
+            for (Edge edge : route.edges()) {
+                position += edge.length();
+                writeRoutePoint(xml, edge.toPoint(), profile.elevationAt(position));
+            }
+            indent(xml, 1);
+            xml.writeEndElement();
+
+            indent(xml, 0);
+            xml.writeEndElement();
+            xml.writeCharacters(LINE_SEPARATOR);
+            xml.flush();
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
         }
     }
 
@@ -108,8 +175,9 @@ public class GpxGenerator {
      * @param doc le document GPX auquel ajouter le point de départ
      * @param rte la balise dans laquelle ajouter le point de départ
      * @param route l'itinéraire dont on veut ajouter le point de départ
+     * @param profile le profil de l'itinéraire, donnant l'altitude du point de départ comme celle des autres points
      */
-    private static void addStartToGpx(Document doc, Element rte, Route route){
+    private static void addStartToGpx(Document doc, Element rte, Route route, ElevationProfile profile){
         //Balise rtept
         Element firstRtept = doc.createElement("rtept");
         PointCh startPoint = route.points().get(0);
@@ -119,7 +187,7 @@ public class GpxGenerator {
         
         //Balise ele
         Element ele = doc.createElement("ele");
-        ele.setTextContent("" + route.elevationAt(0));
+        ele.setTextContent("" + profile.elevationAt(0));
         firstRtept.appendChild(ele);
     }
 
@@ -138,4 +206,39 @@ public class GpxGenerator {
             throw new Error(e); // Should never happen
         }
     }
+
+    /**
+     * Méthode privée écrivant une balise rtept, et sa balise ele, au niveau d'indentation des points de l'itinéraire.
+     *
+     * @param xml le flot XML dans lequel écrire la balise
+     * @param point le point de l'itinéraire
+     * @param elevation l'altitude du point
+     * @throws XMLStreamException en cas d'erreur d'écriture
+     */
+    private static void writeRoutePoint(XMLStreamWriter xml, PointCh point, double elevation)
+            throws XMLStreamException {
+        indent(xml, 2);
+        xml.writeStartElement("rtept");
+        xml.writeAttribute("lat", "" + Math.toDegrees(point.lat()));
+        xml.writeAttribute("lon", "" + Math.toDegrees(point.lon()));
+        indent(xml, 3);
+        xml.writeStartElement("ele");
+        xml.writeCharacters("" + elevation);
+        xml.writeEndElement();
+        indent(xml, 2);
+        xml.writeEndElement();
+    }
+
+    /**
+     * Méthode privée écrivant un retour à la ligne suivi de l'indentation du niveau donné, de INDENT_AMOUNT espaces
+     * par niveau comme celle du Transformer.
+     *
+     * @param xml le flot XML dans lequel écrire l'indentation
+     * @param level le niveau d'indentation
+     * @throws XMLStreamException en cas d'erreur d'écriture
+     */
+    private static void indent(XMLStreamWriter xml, int level) throws XMLStreamException {
+        xml.writeCharacters(LINE_SEPARATOR);
+        xml.writeCharacters(" ".repeat(INDENT_AMOUNT * level));
+    }
 }
@@ -0,0 +1,142 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.projection.Ch1903;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Classe représentant un lecteur de fichiers GPX, extrayant les points d'une trace (trkpt) ou d'un itinéraire (rtept).
+ * <p>
+ * Le fichier est lu au fil de l'eau au moyen d'un analyseur StAX, sans construction de document, et les coordonnées
+ * sont directement placées dans des tableaux de type primitif puis converties en coordonnées suisses en une fois, si
+ * bien que la mémoire utilisée ne dépend que du nombre de points et non de la taille du fichier.
+ *
+ * @author Jean Perbet (341418)
+ * @author Cassio Manuguerra (346232)
+ */
+public final class GpxReader {
+
+    private GpxReader() {}
+
+    /**
+     * Fonction retournant les points du fichier GPX donné : ceux de ses traces s'il en contient, ceux de ses
+     * itinéraires sinon. Les points d'une même catégorie sont donnés dans l'ordre du fichier.
+     *
+     * @param path le chemin d'accès au fichier GPX
+     * @return les points du fichier
+     * @throws IOException en cas d'erreur de lecture ou si le fichier n'est pas un fichier GPX valide
+     */
+    public static GpxTrack readGpx(Path path) throws IOException {
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(path))) {
+            return readGpx(stream);
+        }
+    }
+
+    /**
+     * Fonction retournant les points du document GPX lu dans le flot donné, qui n'est pas fermé, de la même manière
+     * que readGpx(Path).
+     *
+     * @param stream le flot contenant le document GPX
+     * @return les points du document
+     * @throws IOException en cas d'erreur de lecture ou si le document n'est pas un document GPX valide
+     */
+    public static GpxTrack readGpx(InputStream stream) throws IOException {
+        //Analyseur ne résolvant aucune entité externe, le fichier pouvant provenir de n'importe où
+        XMLInputFactory factory = XMLInputFactory.newDefaultFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        Points trackPoints = new Points(), routePoints = new Points();
+        try {
+            XMLStreamReader xml = factory.createXMLStreamReader(stream);
+            Points current = null;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (xml.getLocalName()) {
+                        case "trkpt", "rtept" -> {
+                            current = xml.getLocalName().equals("trkpt") ? trackPoints : routePoints;
+                            String lon = xml.getAttributeValue(null, "lon");
+                            String lat = xml.getAttributeValue(null, "lat");
+                            if (lon == null || lat == null) throw new IOException("Point sans longitude ou latitude");
+                            current.add(Double.parseDouble(lon), Double.parseDouble(lat));
+                        }
+                        case "ele" -> {
+                            if (current != null) current.setLastElevation(Float.parseFloat(xml.getElementText().trim()));
+                        }
+                        default -> {}
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT
+                        && (xml.getLocalName().equals("trkpt") || xml.getLocalName().equals("rtept"))) {
+                    current = null;
+                }
+            }
+            xml.close();
+        } catch (XMLStreamException | NumberFormatException e) {
+            throw new IOException(e);
+        }
+
+        return trackPoints.size > 0 ? trackPoints.toTrack(false) : routePoints.toTrack(true);
+    }
+
+    //---------------------------------------------- Private ----------------------------------------------//
+
+    /**
+     * Classe privée représentant les points lus jusqu'ici d'une catégorie, stockés dans des tableaux agrandis au
+     * besoin.
+     */
+    private static final class Points {
+        private double[] lons = new double[1024], lats = new double[1024];
+        private float[] elevations = new float[1024];
+        private int size;
+
+        /**
+         * Méthode ajoutant un point, d'altitude inconnue.
+         *
+         * @param lon la longitude du point, en degrés
+         * @param lat la latitude du point, en degrés
+         */
+        private void add(double lon, double lat) {
+            if (size == lons.length) {
+                lons = Arrays.copyOf(lons, 2 * size);
+                lats = Arrays.copyOf(lats, 2 * size);
+                elevations = Arrays.copyOf(elevations, 2 * size);
+            }
+            lons[size] = lon;
+            lats[size] = lat;
+            elevations[size] = Float.NaN;
+            size += 1;
+        }
+
+        /**
+         * Méthode fixant l'altitude du dernier point ajouté.
+         *
+         * @param elevation l'altitude du point, en mètres
+         */
+        private void setLastElevation(float elevation) {
+            elevations[size - 1] = elevation;
+        }
+
+        /**
+         * Fonction convertissant en une fois les coordonnées des points en coordonnées suisses, en réutilisant les
+         * tableaux des longitudes et latitudes, et retournant la suite de points correspondante.
+         *
+         * @param route vrai si les points sont ceux d'un itinéraire
+         * @return la suite de points
+         */
+        private GpxTrack toTrack(boolean route) {
+            Ch1903.toEN(lons, lats, lons, lats, size);
+            return new GpxTrack(Arrays.copyOf(lons, size), Arrays.copyOf(lats, size),
+                    Arrays.copyOf(elevations, size), route);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Math2;
+import ch.epfl.javelo.Preconditions;
+import ch.epfl.javelo.projection.PointCh;
+import ch.epfl.javelo.projection.SwissBounds;
+
+import java.util.Arrays;
+
+/**
+ * Classe immuable représentant la suite de points lue dans un fichier GPX, soit les points d'une trace enregistrée
+ * (trk), soit ceux d'un itinéraire (rte). Les coordonnées sont stockées dans des tableaux de type primitif, afin
+ * qu'une trace de plusieurs millions de points n'occupe qu'une vingtaine d'octets par point.
+ *
+ * @author Jean Perbet (341418)
+ * @author Cassio Manuguerra (346232)
+ */
+public final class GpxTrack {
+
+    private final double[] es, ns;
+    private final float[] elevations;
+    private final boolean route;
+
+    /**
+     * Constructeur d'une suite de points GPX, qui prend possession des tableaux donnés.
+     *
+     * @param es         la coordonnée E de chaque point
+     * @param ns         la coordonnée N de chaque point
+     * @param elevations l'altitude de chaque point, NaN si elle est inconnue
+     * @param route      vrai si les points sont ceux d'un itinéraire et faux s'ils sont ceux d'une trace
+     * @throws IllegalArgumentException si les tableaux n'ont pas la même taille
+     */
+    GpxTrack(double[] es, double[] ns, float[] elevations, boolean route) {
+        Preconditions.checkArgument(es.length == ns.length && es.length == elevations.length);
+        this.es = es;
+        this.ns = ns;
+        this.elevations = elevations;
+        this.route = route;
+    }
+
+    /**
+     * Fonction qui retourne le nombre de points.
+     *
+     * @return le nombre de points
+     */
+    public int size() {
+        return es.length;
+    }
+
+    /**
+     * Fonction qui retourne vrai si et seulement si les points sont ceux d'un itinéraire (rte), dont chaque point est
+     * un point de passage voulu, plutôt que ceux d'une trace enregistrée (trk).
+     *
+     * @return vrai si les points sont ceux d'un itinéraire
+     */
+    public boolean isRoute() {
+        return route;
+    }
+
+    /**
+     * Fonction qui retourne la coordonnée E du point d'index donné.
+     *
+     * @param index l'index du point
+     * @return la coordonnée E du point
+     */
+    public double e(int index) {
+        return es[index];
+    }
+
+    /**
+     * Fonction qui retourne la coordonnée N du point d'index donné.
+     *
+     * @param index l'index du point
+     * @return la coordonnée N du point
+     */
+    public double n(int index) {
+        return ns[index];
+    }
+
+    /**
+     * Fonction qui retourne l'altitude du point d'index donné, en mètres.
+     *
+     * @param index l'index du point
+     * @return l'altitude du point, ou NaN si le fichier ne la donnait pas
+     */
+    public double elevation(int index) {
+        return elevations[index];
+    }
+
+    /**
+     * Fonction qui retourne le point d'index donné.
+     *
+     * @param index l'index du point
+     * @return le point d'index donné, ou null s'il se trouve hors de la Suisse
+     */
+    public PointCh pointAt(int index) {
+        return SwissBounds.containsEN(es[index], ns[index]) ? new PointCh(es[index], ns[index]) : null;
+    }
+
+    /**
+     * Fonction qui retourne les index des points d'une version simplifiée de la suite de points, obtenue par
+     * l'algorithme de Douglas-Peucker : aucun des points retirés n'est à plus de tolerance mètres de la ligne brisée
+     * formée des points gardés, qui comprennent toujours le premier et le dernier point.
+     *
+     * @param tolerance la distance maximale entre un point retiré et la ligne simplifiée, en mètres
+     * @return les index, croissants, des points gardés
+     * @throws IllegalArgumentException si la tolérance est négative
+     */
+    public int[] simplified(double tolerance) {
+        Preconditions.checkArgument(tolerance >= 0);
+        if (size() <= 2) return Arrays.copyOf(new int[]{0, 1}, size());
+
+        boolean[] kept = new boolean[size()];
+        kept[0] = kept[size() - 1] = true;
+
+        //Pile des intervalles restant à simplifier, évitant une récursion dont la profondeur pourrait être la taille
+        int[] stack = new int[64];
+        int stackSize = 0;
+        stack[stackSize++] = 0;
+        stack[stackSize++] = size() - 1;
+        while (stackSize > 0) {
+            int last = stack[--stackSize], first = stack[--stackSize];
+            int farthest = -1;
+            double farthestDistance = tolerance;
+            for (int i = first + 1; i < last; i++) {
+                double distance = distanceToSegment(i, first, last);
+                if (distance > farthestDistance) {
+                    farthest = i;
+                    farthestDistance = distance;
+                }
+            }
+            if (farthest == -1) continue;
+
+            kept[farthest] = true;
+            if (stackSize + 4 > stack.length) stack = Arrays.copyOf(stack, 2 * stack.length);
+            stack[stackSize++] = first;
+            stack[stackSize++] = farthest;
+            stack[stackSize++] = farthest;
+            stack[stackSize++] = last;
+        }
+
+        int count = 0;
+        for (boolean k : kept) if (k) count++;
+        int[] indices = new int[count];
+        for (int i = 0, j = 0; i < kept.length; i++) if (kept[i]) indices[j++] = i;
+        return indices;
+    }
+
+    /**
+     * Fonction qui retourne les index des points de la version simplifiée de la suite de points ayant au plus maxCount
+     * points : la tolérance donnée est doublée jusqu'à ce que la simplification ne garde pas plus de maxCount points.
+     *
+     * @param tolerance la distance maximale initiale entre un point retiré et la ligne simplifiée, en mètres
+     * @param maxCount  le nombre maximal de points gardés
+     * @return les index, croissants, des points gardés
+     * @throws IllegalArgumentException si la tolérance n'est pas strictement positive, ou si maxCount est inférieur à 2
+     */
+    public int[] simplified(double tolerance, int maxCount) {
+        Preconditions.checkArgument(tolerance > 0 && maxCount >= 2);
+        int[] indices = simplified(tolerance);
+        while (indices.length > maxCount) {
+            tolerance *= 2;
+            indices = simplified(tolerance);
+        }
+        return indices;
+    }
+
+    //---------------------------------------------- Private ----------------------------------------------//
+
+    /**
+     * Fonction privée retournant la distance entre le point d'index donné et le segment reliant les deux autres.
+     *
+     * @param index l'index du point
+     * @param from  l'index du point de début du segment
+     * @param to    l'index du point de fin du segment
+     * @return la distance entre le point et le segment, en mètres
+     */
+    private double distanceToSegment(int index, int from, int to) {
+        double segmentLength = Math2.norm(es[to] - es[from], ns[to] - ns[from]);
+        if (segmentLength == 0) return Math2.norm(es[index] - es[from], ns[index] - ns[from]);
+        double position = Math2.clamp(0,
+                Math2.projectionLength(es[from], ns[from], es[to], ns[to], es[index], ns[index]), segmentLength);
+        double e = Math2.interpolate(es[from], es[to], position / segmentLength);
+        double n = Math2.interpolate(ns[from], ns[to], position / segmentLength);
+        return Math2.norm(es[index] - e, ns[index] - n);
+    }
+}
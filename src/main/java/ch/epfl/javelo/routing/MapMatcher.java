@@ -0,0 +1,591 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Math2;
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.data.GraphSectors;
+import ch.epfl.javelo.projection.PointCh;
+import ch.epfl.javelo.projection.SwissBounds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Classe représentant un apparieur de traces GPS, qui transforme une trace enregistrée en un itinéraire formé
+ * d'arêtes du graphe au moyen d'un modèle de Markov caché et de l'algorithme de Viterbi.
+ * <p>
+ * Les états cachés sont les positions, sur les arêtes proches, de chacun des points de la trace. Le coût d'émission
+ * d'une position croît avec le carré de sa distance au point mesuré, et le coût de transition entre deux positions
+ * successives avec l'écart entre la longueur du plus court chemin les reliant et la distance à vol d'oiseau entre
+ * les points mesurés. Ces longueurs sont obtenues par des recherches de plus court chemin bornées, les chemins trop
+ * longs par rapport à la distance à vol d'oiseau étant considérés comme impossibles.
+ * <p>
+ * Les tableaux du treillis et des recherches sont propres à chaque fil d'exécution et réutilisés d'une trace à
+ * l'autre, si bien qu'un même apparieur peut traiter plusieurs traces en parallèle.
+ *
+ * @author Jean Perbet (341418)
+ * @author Cassio Manuguerra (346232)
+ */
+public final class MapMatcher {
+
+    private static final double GPS_SIGMA = 10;
+    private static final double BETA = 20;
+    private static final double CANDIDATE_RADIUS = 50;
+    private static final double NODE_SEARCH_DISTANCE = CANDIDATE_RADIUS + 250;
+    private static final double LONG_EDGE_LENGTH = NODE_SEARCH_DISTANCE - CANDIDATE_RADIUS;
+    private static final double LONG_EDGE_CELL_SIZE = 1000;
+    private static final int MAX_CANDIDATES = 8;
+    private static final double MIN_OBSERVATION_SPACING = 2 * GPS_SIGMA;
+    private static final double MAX_DETOUR_FACTOR = 2;
+    private static final double DETOUR_SLACK = 2 * CANDIDATE_RADIUS + 200;
+
+    private final Graph graph;
+    private final CostFunction costFunction;
+    private final RouteComputer routeComputer;
+    private final LongEdges longEdges;
+    private final ThreadLocal<Lattice> lattices;
+    private final ThreadLocal<Search> searches;
+
+    /**
+     * Constructeur public d'un apparieur de traces.
+     *
+     * @param graph        le graphe sur lequel les traces sont appariées
+     * @param costFunction la fonction de coût, les arêtes de coût infini n'étant jamais empruntées
+     */
+    public MapMatcher(Graph graph, CostFunction costFunction) {
+        this.graph = graph;
+        this.costFunction = costFunction;
+        this.routeComputer = new RouteComputer(graph, costFunction);
+        this.longEdges = LongEdges.of(graph);
+        this.lattices = ThreadLocal.withInitial(Lattice::new);
+        this.searches = ThreadLocal.withInitial(() -> new Search(graph.nodeCount()));
+    }
+
+    /**
+     * Fonction retournant l'itinéraire le plus vraisemblablement suivi lors de l'enregistrement de la trace donnée.
+     * Les points hors de la Suisse, loin de toute arête ou trop proches du point précédent sont ignorés. Lorsque deux
+     * points successifs ne peuvent être reliés par un chemin vraisemblable, par ex. après une interruption de
+     * l'enregistrement, l'appariement reprend à partir du second, et les deux morceaux sont reliés par le meilleur
+     * itinéraire entre eux, s'il existe.
+     *
+     * @param track la trace à apparier
+     * @return l'itinéraire correspondant à la trace, ou null si aucun point n'a pu être apparié
+     */
+    public Route match(GpxTrack track) {
+        Lattice lattice = lattices.get();
+        Search search = searches.get();
+        lattice.steps = 0;
+
+        List<Route> pieces = new ArrayList<>();
+        int chainStart = 0;
+        double lastE = Double.NaN, lastN = Double.NaN;
+        for (int i = 0; i < track.size(); i++) {
+            double e = track.e(i), n = track.n(i);
+            if (!SwissBounds.containsEN(e, n)) continue;
+            double straightDistance = Math2.norm(e - lastE, n - lastN);
+            if (lattice.steps > chainStart && straightDistance < MIN_OBSERVATION_SPACING) continue;
+
+            int step = lattice.addStep();
+            if (findCandidates(lattice, step, e, n) == 0) {
+                lattice.steps -= 1;
+                continue;
+            }
+            if (step == chainStart || !transition(lattice, step, straightDistance, search)) {
+                //Début d'une nouvelle chaîne, l'éventuelle chaîne précédente étant terminée au pas précédent
+                if (step > chainStart) pieces.add(bestPath(lattice, chainStart, step - 1, search));
+                chainStart = step;
+                for (int j = 0; j < lattice.counts[step]; j++) {
+                    int cell = step * MAX_CANDIDATES + j;
+                    lattice.costs[cell] = lattice.emissions[cell];
+                    lattice.backs[cell] = -1;
+                }
+            }
+            lastE = e;
+            lastN = n;
+        }
+        if (lattice.steps > chainStart) pieces.add(bestPath(lattice, chainStart, lattice.steps - 1, search));
+        return joined(pieces);
+    }
+
+    /**
+     * Fonction retournant les itinéraires correspondant aux traces données, appariées en parallèle.
+     *
+     * @param tracks les traces à apparier
+     * @return la liste, non modifiable, des itinéraires correspondant aux traces, dans le même ordre, un élément
+     * valant null si la trace correspondante n'a pu être appariée
+     */
+    public List<Route> matchAll(List<GpxTrack> tracks) {
+        return tracks.parallelStream().map(this::match).toList();
+    }
+
+    //---------------------------------------------- Private ----------------------------------------------//
+
+    /**
+     * Méthode privée plaçant dans le treillis, au pas donné, les MAX_CANDIDATES positions sur les arêtes les plus
+     * proches du point donné, à au plus CANDIDATE_RADIUS mètres de celui-ci, triées par distance croissante.
+     * <p>
+     * Les deux extrémités d'une arête d'au plus LONG_EDGE_LENGTH mètres se trouvant à au plus NODE_SEARCH_DISTANCE
+     * mètres de tout point proche d'elle, ces arêtes sont trouvées, dans les deux sens, à partir des nœuds proches du
+     * point. Les arêtes plus longues, dont les extrémités peuvent être bien plus éloignées, sont trouvées au moyen de
+     * la grille longEdges.
+     *
+     * @param lattice le treillis
+     * @param step    le pas du treillis
+     * @param e       la coordonnée E du point mesuré
+     * @param n       la coordonnée N du point mesuré
+     * @return le nombre de positions candidates trouvées
+     */
+    private int findCandidates(Lattice lattice, int step, double e, double n) {
+        int base = step * MAX_CANDIDATES;
+        int count = 0;
+        for (GraphSectors.Sector sector : graph.sectorsInArea(new PointCh(e, n), NODE_SEARCH_DISTANCE)) {
+            for (int nodeId = sector.startNodeId(); nodeId < sector.endNodeId(); nodeId++) {
+                PointCh from = graph.nodePoint(nodeId);
+                if (Math.abs(from.e() - e) > NODE_SEARCH_DISTANCE || Math.abs(from.n() - n) > NODE_SEARCH_DISTANCE)
+                    continue;
+                for (int k = 0; k < graph.nodeOutDegree(nodeId); k++) {
+                    int edgeId = graph.nodeOutEdgeId(nodeId, k);
+                    if (graph.edgeLength(edgeId) > LONG_EDGE_LENGTH) continue;
+                    count = addCandidate(lattice, base, count, nodeId, edgeId, e, n);
+                }
+            }
+        }
+        int cell = longEdges.cellOf(e, n);
+        for (int k = longEdges.cellStarts[cell]; k < longEdges.cellStarts[cell + 1]; k++)
+            count = addCandidate(lattice, base, count, longEdges.fromNodeIds[k], longEdges.edgeIds[k], e, n);
+
+        //Remplacement des distances par les coûts d'émission
+        double[] distances = lattice.emissions;
+        for (int j = 0; j < count; j++) {
+            double d = distances[base + j] / GPS_SIGMA;
+            distances[base + j] = 0.5 * d * d;
+        }
+        lattice.counts[step] = count;
+        return count;
+    }
+
+    /**
+     * Méthode privée ajoutant aux positions candidates triées du pas commençant à l'index donné du treillis la
+     * projection du point donné sur l'arête donnée, si celle-ci est praticable, que le point en est à au plus
+     * CANDIDATE_RADIUS mètres et qu'elle fait partie des MAX_CANDIDATES plus proches.
+     *
+     * @param lattice    le treillis, dont le tableau emissions contient provisoirement les distances
+     * @param base       l'index, dans le treillis, de la première position candidate du pas
+     * @param count      le nombre de positions candidates déjà trouvées
+     * @param fromNodeId l'identité du nœud de départ de l'arête
+     * @param edgeId     l'identité de l'arête
+     * @param e          la coordonnée E du point mesuré
+     * @param n          la coordonnée N du point mesuré
+     * @return le nombre de positions candidates après l'éventuel ajout
+     */
+    private int addCandidate(Lattice lattice, int base, int count, int fromNodeId, int edgeId, double e, double n) {
+        if (costFunction.costFactor(fromNodeId, edgeId) == Double.POSITIVE_INFINITY) return count;
+
+        //Projection du point sur le segment représentant l'arête
+        PointCh from = graph.nodePoint(fromNodeId);
+        PointCh to = graph.nodePoint(graph.edgeTargetNodeId(edgeId));
+        double segmentLength = from.distanceTo(to);
+        double t = segmentLength == 0 ? 0 : Math2.clamp(0,
+                Math2.projectionLength(from.e(), from.n(), to.e(), to.n(), e, n) / segmentLength, 1);
+        double distance = Math2.norm(Math2.interpolate(from.e(), to.e(), t) - e,
+                Math2.interpolate(from.n(), to.n(), t) - n);
+        double[] distances = lattice.emissions;
+        if (distance > CANDIDATE_RADIUS) return count;
+        if (count == MAX_CANDIDATES && distance >= distances[base + count - 1]) return count;
+
+        //Insertion à sa place parmi les candidats triés, le plus éloigné étant éventuellement écarté
+        int slot = Math.min(count, MAX_CANDIDATES - 1);
+        while (slot > 0 && distances[base + slot - 1] > distance) {
+            lattice.copyCell(base + slot - 1, base + slot);
+            slot -= 1;
+        }
+        lattice.edgeIds[base + slot] = edgeId;
+        lattice.fromNodeIds[base + slot] = fromNodeId;
+        lattice.positions[base + slot] = t * graph.edgeLength(edgeId);
+        distances[base + slot] = distance;
+        return Math.min(count + 1, MAX_CANDIDATES);
+    }
+
+    /**
+     * Méthode privée calculant le coût minimal de chaque position candidate du pas donné, et la position du pas
+     * précédent permettant de l'atteindre, au moyen d'une recherche bornée depuis chaque position précédente.
+     *
+     * @param lattice          le treillis
+     * @param step             le pas du treillis, qui n'est pas le premier de sa chaîne
+     * @param straightDistance la distance à vol d'oiseau entre les points mesurés des deux pas
+     * @param search           la recherche de plus courts chemins à utiliser
+     * @return vrai si et seulement si au moins une position du pas donné est atteignable
+     */
+    private boolean transition(Lattice lattice, int step, double straightDistance, Search search) {
+        int base = step * MAX_CANDIDATES, previousBase = base - MAX_CANDIDATES;
+        int count = lattice.counts[step], previousCount = lattice.counts[step - 1];
+        Arrays.fill(lattice.costs, base, base + count, Double.POSITIVE_INFINITY);
+        double maxDistance = MAX_DETOUR_FACTOR * straightDistance + DETOUR_SLACK;
+
+        boolean reachable = false;
+        for (int i = previousBase; i < previousBase + previousCount; i++) {
+            if (lattice.costs[i] == Double.POSITIVE_INFINITY) continue;
+            double remaining = graph.edgeLength(lattice.edgeIds[i]) - lattice.positions[i];
+            search.run(graph, costFunction, graph.edgeTargetNodeId(lattice.edgeIds[i]), maxDistance - remaining, -1);
+
+            for (int j = base; j < base + count; j++) {
+                double routeDistance = lattice.edgeIds[i] == lattice.edgeIds[j]
+                        && lattice.positions[j] >= lattice.positions[i]
+                        ? lattice.positions[j] - lattice.positions[i]
+                        : remaining + search.distanceTo(lattice.fromNodeIds[j]) + lattice.positions[j];
+                if (routeDistance > maxDistance) continue;
+
+                double cost = lattice.costs[i] + Math.abs(routeDistance - straightDistance) / BETA
+                        + lattice.emissions[j];
+                if (cost < lattice.costs[j]) {
+                    lattice.costs[j] = cost;
+                    lattice.backs[j] = i;
+                    reachable = true;
+                }
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * Fonction privée retournant l'itinéraire correspondant au chemin de coût minimal de la chaîne de pas donnée,
+     * formé des arêtes entières des positions choisies et des plus courts chemins les reliant.
+     *
+     * @param lattice   le treillis
+     * @param firstStep le premier pas de la chaîne
+     * @param lastStep  le dernier pas de la chaîne
+     * @param search    la recherche de plus courts chemins à utiliser
+     * @return l'itinéraire correspondant à la chaîne
+     */
+    private Route bestPath(Lattice lattice, int firstStep, int lastStep, Search search) {
+        //Position de coût minimal du dernier pas, puis remontée des positions précédentes
+        int cell = lastStep * MAX_CANDIDATES;
+        for (int j = cell; j < lastStep * MAX_CANDIDATES + lattice.counts[lastStep]; j++) {
+            if (lattice.costs[j] < lattice.costs[cell]) cell = j;
+        }
+        int[] cells = new int[lastStep - firstStep + 1];
+        for (int step = lastStep; step >= firstStep; step--) {
+            cells[step - firstStep] = cell;
+            cell = lattice.backs[cell];
+        }
+
+        List<Edge> edges = new ArrayList<>();
+        edges.add(edgeOf(lattice, cells[0]));
+        for (int k = 1; k < cells.length; k++) {
+            int previous = cells[k - 1], current = cells[k];
+            if (lattice.edgeIds[previous] == lattice.edgeIds[current]
+                    && lattice.positions[current] >= lattice.positions[previous]) continue;
+
+            //Plus court chemin entre la fin de l'arête précédente et le début de l'arête courante
+            int startNodeId = graph.edgeTargetNodeId(lattice.edgeIds[previous]);
+            int endNodeId = lattice.fromNodeIds[current];
+            search.run(graph, costFunction, startNodeId, Double.POSITIVE_INFINITY, endNodeId);
+            int pathStart = edges.size();
+            for (int nodeId = endNodeId; nodeId != startNodeId; nodeId = search.predecessors[nodeId]) {
+                edges.add(shortestEdgeBetween(search.predecessors[nodeId], nodeId));
+            }
+            Collections.reverse(edges.subList(pathStart, edges.size()));
+            edges.add(edgeOf(lattice, current));
+        }
+        return new SingleRoute(edges);
+    }
+
+    /**
+     * Fonction privée retournant l'itinéraire formé des morceaux donnés, reliés par le meilleur itinéraire entre la
+     * fin de l'un et le début du suivant lorsqu'ils ne se touchent pas et qu'un tel itinéraire existe.
+     *
+     * @param pieces les morceaux d'itinéraire
+     * @return l'itinéraire formé des morceaux, ou null s'il n'y en a aucun
+     */
+    private Route joined(List<Route> pieces) {
+        if (pieces.isEmpty()) return null;
+        List<Route> segments = new ArrayList<>(List.of(pieces.get(0)));
+        for (int i = 1; i < pieces.size(); i++) {
+            List<Edge> previousEdges = pieces.get(i - 1).edges();
+            int endNodeId = previousEdges.get(previousEdges.size() - 1).toNodeId();
+            int startNodeId = pieces.get(i).edges().get(0).fromNodeId();
+            if (endNodeId != startNodeId) {
+                Route gap = routeComputer.bestRouteBetween(endNodeId, startNodeId);
+                if (gap != null) segments.add(gap);
+            }
+            segments.add(pieces.get(i));
+        }
+        return segments.size() == 1 ? segments.get(0) : new MultiRoute(segments);
+    }
+
+    /**
+     * Fonction privée retournant l'arête de la position candidate donnée du treillis.
+     *
+     * @param lattice le treillis
+     * @param cell    l'index de la position candidate
+     * @return l'arête de la position candidate
+     */
+    private Edge edgeOf(Lattice lattice, int cell) {
+        int edgeId = lattice.edgeIds[cell];
+        return Edge.of(graph, edgeId, lattice.fromNodeIds[cell], graph.edgeTargetNodeId(edgeId));
+    }
+
+    /**
+     * Fonction privée retournant la plus courte des arêtes allant du premier nœud donné au second.
+     *
+     * @param fromNodeId l'identité du nœud de départ
+     * @param toNodeId   l'identité du nœud d'arrivée
+     * @return la plus courte arête entre les deux nœuds
+     */
+    private Edge shortestEdgeBetween(int fromNodeId, int toNodeId) {
+        int bestEdgeId = -1;
+        for (int i = 0; i < graph.nodeOutDegree(fromNodeId); i++) {
+            int edgeId = graph.nodeOutEdgeId(fromNodeId, i);
+            if (graph.edgeTargetNodeId(edgeId) == toNodeId
+                    && (bestEdgeId == -1 || graph.edgeLength(edgeId) < graph.edgeLength(bestEdgeId)))
+                bestEdgeId = edgeId;
+        }
+        return Edge.of(graph, bestEdgeId, fromNodeId, toNodeId);
+    }
+
+    /**
+     * Classe privée représentant une grille régulière de cellules de LONG_EDGE_CELL_SIZE mètres de côté recouvrant
+     * la Suisse, associant à chaque cellule les arêtes de plus de LONG_EDGE_LENGTH mètres dont un point se trouve
+     * peut-être à au plus CANDIDATE_RADIUS mètres d'un point de la cellule. Ces arêtes étant rares, la grille est
+     * petite, et chaque arête n'apparaît qu'une seule fois dans une cellule donnée.
+     *
+     * @param cellStarts  l'index, dans les tableaux suivants, de la première arête de chaque cellule, suivi du nombre
+     *                    total d'entrées
+     * @param edgeIds     l'identité des arêtes de chaque cellule
+     * @param fromNodeIds l'identité du nœud de départ des arêtes de chaque cellule
+     */
+    private record LongEdges(int[] cellStarts, int[] edgeIds, int[] fromNodeIds) {
+
+        private static final int COLUMNS = (int) Math.ceil(SwissBounds.WIDTH / LONG_EDGE_CELL_SIZE);
+        private static final int ROWS = (int) Math.ceil(SwissBounds.HEIGHT / LONG_EDGE_CELL_SIZE);
+
+        /**
+         * Fonction construisant la grille des arêtes longues du graphe donné, en le parcourant deux fois : la première
+         * pour compter les arêtes de chaque cellule, la seconde pour les y placer.
+         *
+         * @param graph le graphe
+         * @return la grille des arêtes longues du graphe
+         */
+        private static LongEdges of(Graph graph) {
+            int[] cellStarts = new int[COLUMNS * ROWS + 1];
+            forEachLongEdgeCell(graph, (cell, nodeId, edgeId) -> cellStarts[cell + 1] += 1);
+            for (int i = 0; i < COLUMNS * ROWS; i++) cellStarts[i + 1] += cellStarts[i];
+
+            int[] edgeIds = new int[cellStarts[COLUMNS * ROWS]], fromNodeIds = new int[edgeIds.length];
+            int[] next = Arrays.copyOf(cellStarts, COLUMNS * ROWS);
+            forEachLongEdgeCell(graph, (cell, nodeId, edgeId) -> {
+                edgeIds[next[cell]] = edgeId;
+                fromNodeIds[next[cell]] = nodeId;
+                next[cell] += 1;
+            });
+            return new LongEdges(cellStarts, edgeIds, fromNodeIds);
+        }
+
+        /**
+         * Fonction retournant l'index de la cellule contenant le point donné, qui se trouve en Suisse.
+         *
+         * @param e la coordonnée E du point
+         * @param n la coordonnée N du point
+         * @return l'index de la cellule contenant le point
+         */
+        private int cellOf(double e, double n) {
+            return row(n) * COLUMNS + column(e);
+        }
+
+        private static int column(double e) {
+            return Math2.clamp(0, (int) ((e - SwissBounds.MIN_E) / LONG_EDGE_CELL_SIZE), COLUMNS - 1);
+        }
+
+        private static int row(double n) {
+            return Math2.clamp(0, (int) ((n - SwissBounds.MIN_N) / LONG_EDGE_CELL_SIZE), ROWS - 1);
+        }
+
+        /**
+         * Méthode appelant l'action donnée pour chaque arête longue du graphe et chacune des cellules recouvertes
+         * par le rectangle englobant le segment la représentant, agrandi de CANDIDATE_RADIUS mètres.
+         *
+         * @param graph  le graphe
+         * @param action l'action à appeler avec l'index de la cellule, l'identité du nœud de départ et de l'arête
+         */
+        private static void forEachLongEdgeCell(Graph graph, CellAction action) {
+            for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+                PointCh from = graph.nodePoint(nodeId);
+                for (int k = 0; k < graph.nodeOutDegree(nodeId); k++) {
+                    int edgeId = graph.nodeOutEdgeId(nodeId, k);
+                    if (graph.edgeLength(edgeId) <= LONG_EDGE_LENGTH) continue;
+                    PointCh to = graph.nodePoint(graph.edgeTargetNodeId(edgeId));
+                    int minColumn = column(Math.min(from.e(), to.e()) - CANDIDATE_RADIUS);
+                    int maxColumn = column(Math.max(from.e(), to.e()) + CANDIDATE_RADIUS);
+                    int minRow = row(Math.min(from.n(), to.n()) - CANDIDATE_RADIUS);
+                    int maxRow = row(Math.max(from.n(), to.n()) + CANDIDATE_RADIUS);
+                    for (int row = minRow; row <= maxRow; row++) {
+                        for (int column = minColumn; column <= maxColumn; column++)
+                            action.accept(row * COLUMNS + column, nodeId, edgeId);
+                    }
+                }
+            }
+        }
+
+        private interface CellAction {
+            void accept(int cell, int nodeId, int edgeId);
+        }
+    }
+
+    /**
+     * Classe privée représentant le treillis de l'algorithme de Viterbi, formé de MAX_CANDIDATES cellules par pas,
+     * la cellule j du pas s ayant l'index s * MAX_CANDIDATES + j dans chacun des tableaux. Ceux-ci sont agrandis au
+     * besoin et réutilisés d'une trace à l'autre.
+     */
+    private static final class Lattice {
+        private int steps;
+        private int[] counts = new int[256];
+        private int[] edgeIds = new int[256 * MAX_CANDIDATES];
+        private int[] fromNodeIds = new int[256 * MAX_CANDIDATES];
+        private int[] backs = new int[256 * MAX_CANDIDATES];
+        private double[] positions = new double[256 * MAX_CANDIDATES];
+        private double[] emissions = new double[256 * MAX_CANDIDATES];
+        private double[] costs = new double[256 * MAX_CANDIDATES];
+
+        /**
+         * Fonction ajoutant un pas, vide, au treillis.
+         *
+         * @return l'index du pas ajouté
+         */
+        private int addStep() {
+            if (steps == counts.length) {
+                counts = Arrays.copyOf(counts, 2 * steps);
+                edgeIds = Arrays.copyOf(edgeIds, 2 * edgeIds.length);
+                fromNodeIds = Arrays.copyOf(fromNodeIds, 2 * fromNodeIds.length);
+                backs = Arrays.copyOf(backs, 2 * backs.length);
+                positions = Arrays.copyOf(positions, 2 * positions.length);
+                emissions = Arrays.copyOf(emissions, 2 * emissions.length);
+                costs = Arrays.copyOf(costs, 2 * costs.length);
+            }
+            counts[steps] = 0;
+            return steps++;
+        }
+
+        /**
+         * Méthode copiant la position candidate d'une cellule dans une autre.
+         *
+         * @param from l'index de la cellule copiée
+         * @param to   l'index de la cellule remplacée
+         */
+        private void copyCell(int from, int to) {
+            edgeIds[to] = edgeIds[from];
+            fromNodeIds[to] = fromNodeIds[from];
+            positions[to] = positions[from];
+            emissions[to] = emissions[from];
+        }
+    }
+
+    /**
+     * Classe privée représentant une recherche de plus courts chemins (algorithme de Dijkstra) bornée, dont seuls les
+     * nœuds atteints lors de la recherche précédente sont réinitialisés, et dont la file de priorité est un tas
+     * binaire stocké dans des tableaux de type primitif.
+     */
+    private static final class Search {
+        private final float[] distances;
+        private final int[] predecessors;
+        private int[] reached = new int[1024];
+        private int reachedCount;
+        private int[] heapNodes = new int[1024];
+        private float[] heapDistances = new float[1024];
+        private int heapSize;
+
+        private Search(int nodeCount) {
+            distances = new float[nodeCount];
+            predecessors = new int[nodeCount];
+            Arrays.fill(distances, Float.POSITIVE_INFINITY);
+        }
+
+        /**
+         * Méthode calculant la longueur du plus court chemin entre le nœud de départ et tous les nœuds situés à au
+         * plus maxDistance mètres de lui, ou jusqu'à ce que le nœud stopNodeId soit atteint.
+         *
+         * @param graph        le graphe
+         * @param costFunction la fonction de coût, les arêtes de coût infini étant ignorées
+         * @param startNodeId  l'identité du nœud de départ
+         * @param maxDistance  la longueur maximale des chemins
+         * @param stopNodeId   l'identité du nœud dont l'atteinte termine la recherche, ou -1
+         */
+        private void run(Graph graph, CostFunction costFunction, int startNodeId, double maxDistance,
+                         int stopNodeId) {
+            for (int i = 0; i < reachedCount; i++) distances[reached[i]] = Float.POSITIVE_INFINITY;
+            reachedCount = 0;
+            heapSize = 0;
+            if (maxDistance < 0) return;
+
+            reach(startNodeId, 0, startNodeId);
+            while (heapSize > 0) {
+                float distance = heapDistances[0];
+                int nodeId = pop();
+                if (distance > distances[nodeId]) continue;
+                if (nodeId == stopNodeId) return;
+
+                for (int i = 0; i < graph.nodeOutDegree(nodeId); i++) {
+                    int edgeId = graph.nodeOutEdgeId(nodeId, i);
+                    if (costFunction.costFactor(nodeId, edgeId) == Double.POSITIVE_INFINITY) continue;
+                    float d = (float) (distance + graph.edgeLength(edgeId));
+                    int targetNodeId = graph.edgeTargetNodeId(edgeId);
+                    if (d <= maxDistance && d < distances[targetNodeId]) reach(targetNodeId, d, nodeId);
+                }
+            }
+        }
+
+        /**
+         * Fonction retournant la longueur du plus court chemin vers le nœud donné trouvé lors de la dernière
+         * recherche.
+         *
+         * @param nodeId l'identité du nœud
+         * @return la longueur du plus court chemin, ou l'infini positif si le nœud n'a pas été atteint
+         */
+        private double distanceTo(int nodeId) {
+            return distances[nodeId];
+        }
+
+        private void reach(int nodeId, float distance, int predecessorNodeId) {
+            if (distances[nodeId] == Float.POSITIVE_INFINITY) {
+                if (reachedCount == reached.length) reached = Arrays.copyOf(reached, 2 * reachedCount);
+                reached[reachedCount++] = nodeId;
+            }
+            distances[nodeId] = distance;
+            predecessors[nodeId] = predecessorNodeId;
+            push(nodeId, distance);
+        }
+
+        private void push(int nodeId, float distance) {
+            if (heapSize == heapNodes.length) {
+                heapNodes = Arrays.copyOf(heapNodes, 2 * heapSize);
+                heapDistances = Arrays.copyOf(heapDistances, 2 * heapSize);
+            }
+            int i = heapSize++;
+            while (i > 0 && heapDistances[(i - 1) / 2] > distance) {
+                heapNodes[i] = heapNodes[(i - 1) / 2];
+                heapDistances[i] = heapDistances[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            heapNodes[i] = nodeId;
+            heapDistances[i] = distance;
+        }
+
+        private int pop() {
+            int top = heapNodes[0];
+            int lastNode = heapNodes[--heapSize];
+            float lastDistance = heapDistances[heapSize];
+            int i = 0;
+            while (2 * i + 1 < heapSize) {
+                int child = 2 * i + 1;
+                if (child + 1 < heapSize && heapDistances[child + 1] < heapDistances[child]) child += 1;
+                if (heapDistances[child] >= lastDistance) break;
+                heapNodes[i] = heapNodes[child];
+                heapDistances[i] = heapDistances[child];
+                i = child;
+            }
+            heapNodes[i] = lastNode;
+            heapDistances[i] = lastDistance;
+            return top;
+        }
+    }
+}
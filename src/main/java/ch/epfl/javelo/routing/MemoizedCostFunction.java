@@ -0,0 +1,47 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.AttributeSet;
+import ch.epfl.javelo.data.Graph;
+
+import java.util.List;
+
+/**
+ * Classe immuable représentant une fonction de coût mémoïsée : la partie du facteur de coût ne dépendant que des
+ * attributs OSM d'une arête et de son sens est calculée une fois pour chacun des ensembles d'attributs du graphe, qui
+ * sont peu nombreux, et seule la correction due à la pente est appliquée à chaque évaluation.
+ *
+ * @author Jean Perbet (341418)
+ * @author Cassio Manuguerra (346232)
+ */
+public final class MemoizedCostFunction implements CostFunction {
+
+    private final Graph graph;
+    private final AttributeCostFunction costFunction;
+    private final double[] attributeCostFactors;
+
+    /**
+     * Constructeur public d'une fonction de coût mémoïsée.
+     *
+     * @param graph        le graphe dont les ensembles d'attributs sont mémoïsés
+     * @param costFunction la fonction de coût à mémoïser
+     */
+    public MemoizedCostFunction(Graph graph, AttributeCostFunction costFunction) {
+        this.graph = graph;
+        this.costFunction = costFunction;
+
+        //Le facteur de l'ensemble d'attributs d'index i est à l'index 2i dans le sens OSM et 2i + 1 dans le sens inverse
+        List<AttributeSet> attributeSets = graph.attributeSets();
+        attributeCostFactors = new double[2 * attributeSets.size()];
+        for (int i = 0; i < attributeSets.size(); i++) {
+            attributeCostFactors[2 * i] = costFunction.attributeCostFactor(attributeSets.get(i), false);
+            attributeCostFactors[2 * i + 1] = costFunction.attributeCostFactor(attributeSets.get(i), true);
+        }
+    }
+
+    @Override
+    public double costFactor(int nodeId, int edgeId) {
+        int index = 2 * graph.edgeAttributesIndex(edgeId) + (graph.edgeIsInverted(edgeId) ? 1 : 0);
+        double averageUpSlope = graph.edgeElevationGain(edgeId) / graph.edgeLength(edgeId);
+        return costFunction.slopeCostFactor(attributeCostFactors[index], averageUpSlope);
+    }
+}
@@ -5,7 +5,7 @@ import ch.epfl.javelo.Preconditions;
 import ch.epfl.javelo.projection.PointCh;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -18,7 +18,19 @@ import java.util.List;
  */
 public final class MultiRoute implements Route {
 
-    private final List<Route> segments;
+    //Segments non multiples obtenus en aplatissant les éventuels itinéraires multiples imbriqués
+    private final Route[] leaves;
+
+    //Position de début de chaque segment aplati, la dernière case contenant la longueur totale
+    private final double[] leafPositions;
+
+    //Index du premier segment de chaque segment aplati, au sens de indexOfSegmentAt
+    private final int[] leafSegmentIndices;
+
+    //Listes aplaties des arêtes et des points, construites au premier accès seulement
+    private volatile List<Edge> edges;
+    private volatile List<PointCh> points;
+    private volatile SegmentIndex segmentIndex;
 
     /**
      * Constructeur public d'un itinéraire multiple.
@@ -28,88 +40,152 @@ public final class MultiRoute implements Route {
      */
     public MultiRoute(List<Route> segments) {
         Preconditions.checkArgument(!segments.isEmpty());
-        this.segments = List.copyOf(segments);
+
+        //Seuls les segments aplatis sont gardés, la liste donnée n'étant pas référencée par l'itinéraire
+        List<Route> flattened = new ArrayList<>();
+        for (Route segment : segments) {
+            if (segment instanceof MultiRoute multiRoute) flattened.addAll(Arrays.asList(multiRoute.leaves));
+            else flattened.add(segment);
+        }
+        leaves = flattened.toArray(new Route[0]);
+
+        /* Les positions et index des segments sont cumulés une fois pour toutes, afin que chaque requête à une position
+        donnée se résume à une recherche dichotomique du segment la contenant */
+        leafPositions = new double[leaves.length + 1];
+        leafSegmentIndices = new int[leaves.length];
+        for (int i = 0; i < leaves.length; i++) {
+            leafPositions[i + 1] = leafPositions[i] + leaves[i].length();
+            if (i > 0) {
+                Route previous = leaves[i - 1];
+                leafSegmentIndices[i] = leafSegmentIndices[i - 1] + previous.indexOfSegmentAt(previous.length()) + 1;
+            }
+        }
     }
 
     @Override
     public int indexOfSegmentAt(double position) {
         position = Math2.clamp(0, position, length());
-        int indexOfSegment = 0;
-        for (Route segment : segments) {
-            if (position - segment.length() <= 0) {
-                indexOfSegment += segment.indexOfSegmentAt(position);
-                return indexOfSegment;
-            }
-            indexOfSegment += segment.indexOfSegmentAt(segment.length()) + 1;
-            position -= segment.length();
-        }
-        return 0;
+        int leaf = leafIndexAt(position);
+        return leafSegmentIndices[leaf] + leaves[leaf].indexOfSegmentAt(position - leafPositions[leaf]);
     }
 
     @Override
     public double length() {
-        double totalLength = 0;
-        for (Route segment : segments) totalLength += segment.length();
-        return totalLength;
+        return leafPositions[leaves.length];
     }
 
     @Override
     public List<Edge> edges() {
-        List<Edge> edges = new ArrayList<>();
-        for (Route segment : segments) edges.addAll(segment.edges());
-        return Collections.unmodifiableList(edges);
+        //L'itinéraire étant immuable, la liste est construite une seule fois, à partir des segments aplatis
+        List<Edge> edges = this.edges;
+        if (edges == null) {
+            List<Edge> flattened = new ArrayList<>();
+            for (Route leaf : leaves) flattened.addAll(leaf.edges());
+            this.edges = edges = List.copyOf(flattened);
+        }
+        return edges;
     }
 
     @Override
     public List<PointCh> points() {
-        List<PointCh> points = new ArrayList<>();
-        for (Route segment : segments) {
-            if (!points.isEmpty())
-                points.remove(points.size() - 1);
-            points.addAll(segment.points());
+        List<PointCh> points = this.points;
+        if (points == null) {
+            //Le dernier point de chaque segment étant le premier du suivant, il n'est ajouté qu'une fois
+            List<PointCh> flattened = new ArrayList<>();
+            for (Route leaf : leaves) {
+                if (!flattened.isEmpty())
+                    flattened.remove(flattened.size() - 1);
+                flattened.addAll(leaf.points());
+            }
+            this.points = points = List.copyOf(flattened);
         }
-        return Collections.unmodifiableList(points);
+        return points;
     }
 
     @Override
     public PointCh pointAt(double position) {
         position = Math2.clamp(0, position, length());
-        for (Route segment : segments) {
-            if (position - segment.length() <= 0) return segment.pointAt(position);
-            position -= segment.length();
-        }
-        return null;
+        int leaf = leafIndexAt(position);
+        return leaves[leaf].pointAt(position - leafPositions[leaf]);
     }
 
     @Override
     public double elevationAt(double position) {
         position = Math2.clamp(0, position, length());
-        for (Route segment : segments) {
-            if (position - segment.length() <= 0) return segment.elevationAt(position);
-            position -= segment.length();
-        }
-        return 0;
+        int leaf = leafIndexAt(position);
+        return leaves[leaf].elevationAt(position - leafPositions[leaf]);
     }
 
     @Override
     public int nodeClosestTo(double position) {
         position = Math2.clamp(0, position, length());
-        for (Route segment : segments) {
-            if (position - segment.length() <= 0) return segment.nodeClosestTo(position);
-            position -= segment.length();
-        }
-        return 0;
+        int leaf = leafIndexAt(position);
+        return leaves[leaf].nodeClosestTo(position - leafPositions[leaf]);
     }
 
     @Override
     public RoutePoint pointClosestTo(PointCh point) {
-        double totalPosition = 0;
-        RoutePoint routePoint = RoutePoint.NONE;
-        for (Route segment : segments) {
-            RoutePoint closestPoint = segment.pointClosestTo(point);
-            routePoint = routePoint.min(closestPoint.withPositionShiftedBy(totalPosition));
-            totalPosition += segment.length();
+        //Index spatial de toutes les arêtes de l'itinéraire, construit au premier appel seulement
+        SegmentIndex index = segmentIndex;
+        if (index == null) {
+            List<Edge> edges = edges();
+            double[] edgePositions = new double[edges.size()];
+            int edge = 0;
+            for (int i = 0; i < leaves.length; i++) {
+                double position = leafPositions[i];
+                for (Edge leafEdge : leaves[i].edges()) {
+                    edgePositions[edge++] = position;
+                    position += leafEdge.length();
+                }
+            }
+            segmentIndex = index = new SegmentIndex(edges, edgePositions);
         }
-        return routePoint;
+        return index.pointClosestTo(point);
+    }
+
+    /**
+     * Fonction retournant le nombre de segments de l'itinéraire une fois les itinéraires multiples imbriqués aplatis.
+     *
+     * @return le nombre de segments aplatis
+     */
+    int leafCount() {
+        return leaves.length;
+    }
+
+    /**
+     * Fonction retournant le segment aplati d'index donné.
+     *
+     * @param index l'index du segment aplati
+     * @return le segment aplati d'index donné
+     */
+    Route leaf(int index) {
+        return leaves[index];
+    }
+
+    /**
+     * Fonction retournant la position de début du segment aplati d'index donné, ou la longueur de l'itinéraire pour
+     * l'index leafCount().
+     *
+     * @param index l'index du segment aplati
+     * @return la position de début du segment aplati d'index donné
+     */
+    double leafPosition(int index) {
+        return leafPositions[index];
+    }
+
+    //---------------------------------------------- Private ----------------------------------------------//
+
+    /**
+     * Fonction privée retournant, par recherche dichotomique, l'index du segment aplati contenant la position donnée,
+     * une position située à la jonction de deux segments appartenant au premier d'entre eux.
+     *
+     * @param position la position, comprise entre 0 et la longueur de l'itinéraire
+     * @return l'index du segment aplati contenant la position
+     */
+    private int leafIndexAt(double position) {
+        int index = Arrays.binarySearch(leafPositions, 1, leafPositions.length, position);
+        //Une position égale à la fin d'un segment lui appartient, sinon le point d'insertion donne le segment suivant
+        int leaf = index >= 0 ? index - 1 : -index - 2;
+        return Math2.clamp(0, leaf, leaves.length - 1);
     }
 }
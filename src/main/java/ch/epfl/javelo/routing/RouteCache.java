@@ -0,0 +1,419 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Preconditions;
+import ch.epfl.javelo.data.Graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Classe représentant un cache d'itinéraires simples, associant à chaque triplet (nœud de départ, nœud d'arrivée,
+ * profil de coût) l'itinéraire calculé entre ces nœuds selon ce profil, pour une version donnée du graphe. Les
+ * triplets sont empaquetés dans des clés de type long, stockées dans une table de hachage à adressage ouvert, sans
+ * aucune allocation lors d'une recherche.
+ * <p>
+ * La taille mémoire du cache est bornée : elle est estimée pour chaque itinéraire à partir de son nombre d'arêtes, et
+ * les itinéraires les moins récemment utilisés sont évincés lorsqu'elle dépasse la taille maximale. Le cache peut être
+ * partagé entre plusieurs utilisateurs, ses méthodes étant synchronisées, et peut être enregistré dans un fichier pour
+ * être rechargé lors d'une session ultérieure.
+ *
+ * @author Jean Perbet (341418)
+ * @author Cassio Manuguerra (346232)
+ */
+public final class RouteCache {
+
+    /**
+     * Nombre maximal de profils de coût différents pouvant être utilisés avec le cache.
+     */
+    public static final int PROFILES_COUNT = 1 << 8;
+
+    private static final int NODE_BITS = 28;
+    private static final int PROFILE_BITS = 8;
+    private static final int ROUTE_BYTES = 128;
+    private static final int EDGE_BYTES = 128;
+    private static final int FILE_MAGIC = 0x4A56_5243;
+    private static final int NONE = -1;
+
+    private final int graphVersion;
+    private final long maxBytes;
+
+    //Table de hachage, dont chaque case contient l'index d'une entrée ou NONE
+    private int[] table;
+
+    //Entrées, chaînées de la moins récemment utilisée (head) à la plus récemment utilisée (tail)
+    private long[] keys;
+    private Route[] routes;
+    private int[] previous;
+    private int[] next;
+    private int head, tail, freeList, size;
+    private long bytes;
+    private long hits, misses, evictions;
+
+    /**
+     * Constructeur public d'un cache d'itinéraires vide.
+     *
+     * @param graphVersion la version du graphe dans lequel les itinéraires sont calculés, qui doit changer à chaque
+     *                     modification de ses fichiers
+     * @param maxBytes     la taille mémoire maximale estimée du cache, en octets
+     * @throws IllegalArgumentException si la taille maximale est négative
+     */
+    public RouteCache(int graphVersion, long maxBytes) {
+        Preconditions.checkArgument(maxBytes >= 0);
+        this.graphVersion = graphVersion;
+        this.maxBytes = maxBytes;
+        clear();
+    }
+
+    /**
+     * Méthode de construction chargeant le cache enregistré dans le fichier donné. Le cache retourné est vide si le
+     * fichier n'existe pas ou s'il a été enregistré pour une autre version du graphe.
+     *
+     * @param path         le chemin d'accès au fichier contenant le cache
+     * @param graph        le graphe dans lequel les itinéraires ont été calculés
+     * @param graphVersion la version actuelle du graphe
+     * @param maxBytes     la taille mémoire maximale estimée du cache, en octets
+     * @return le cache contenu dans le fichier
+     * @throws IOException              en cas d'erreur d'entrée/sortie, ou si le fichier n'est pas un cache valide
+     * @throws IllegalArgumentException si la taille maximale est négative
+     */
+    public static RouteCache loadFrom(Path path, Graph graph, int graphVersion, long maxBytes) throws IOException {
+        RouteCache cache = new RouteCache(graphVersion, maxBytes);
+        if (!Files.exists(path)) return cache;
+
+        try (DataInputStream stream = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (stream.readInt() != FILE_MAGIC) throw new IOException("invalid route cache file: " + path);
+            if (stream.readInt() != graphVersion) return cache;
+
+            //Les itinéraires étant enregistrés du moins au plus récemment utilisé, leur ordre est conservé
+            int count = stream.readInt();
+            for (int i = 0; i < count; i++) {
+                long key = stream.readLong();
+                int[] edgeIds = new int[stream.readInt()];
+                for (int j = 0; j < edgeIds.length; j++) edgeIds[j] = stream.readInt();
+                cache.put(key, routeOf((int) (key >>> (NODE_BITS + PROFILE_BITS)), edgeIds, graph));
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Méthode permettant d'enregistrer le cache dans le fichier donné, chaque itinéraire y étant représenté par les
+     * identités de ses arêtes.
+     *
+     * @param path  le chemin d'accès au fichier dans lequel enregistrer le cache
+     * @param graph le graphe dans lequel les itinéraires ont été calculés
+     * @throws IOException en cas d'erreur d'entrée/sortie
+     */
+    public synchronized void writeTo(Path path, Graph graph) throws IOException {
+        try (DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            stream.writeInt(FILE_MAGIC);
+            stream.writeInt(graphVersion);
+            stream.writeInt(size);
+            for (int entry = head; entry != NONE; entry = next[entry]) {
+                int[] edgeIds = RouteComputer.edgeIds(graph, routes[entry]);
+                stream.writeLong(keys[entry]);
+                stream.writeInt(edgeIds.length);
+                for (int edgeId : edgeIds) stream.writeInt(edgeId);
+            }
+        }
+    }
+
+    /**
+     * Fonction retournant l'itinéraire associé aux nœuds et au profil donnés, ou null s'il n'est pas dans le cache.
+     *
+     * @param startNodeId l'identité du nœud de départ
+     * @param endNodeId   l'identité du nœud d'arrivée
+     * @param profile     l'index du profil de coût, compris entre 0 (inclus) et PROFILES_COUNT (exclus)
+     * @return l'itinéraire associé aux nœuds et au profil donnés, ou null
+     * @throws IllegalArgumentException si une identité de nœud ou l'index du profil est invalide
+     */
+    public synchronized Route get(int startNodeId, int endNodeId, int profile) {
+        int entry = entryOf(key(startNodeId, endNodeId, profile));
+        if (entry == NONE) {
+            misses += 1;
+            return null;
+        }
+        hits += 1;
+        unlink(entry);
+        linkLast(entry);
+        return routes[entry];
+    }
+
+    /**
+     * Méthode associant l'itinéraire donné aux nœuds et au profil donnés, en remplaçant l'éventuel itinéraire déjà
+     * associé, puis en évinçant les itinéraires les moins récemment utilisés tant que la taille maximale est dépassée.
+     * Un itinéraire plus grand que la taille maximale du cache n'y est pas ajouté.
+     *
+     * @param startNodeId l'identité du nœud de départ
+     * @param endNodeId   l'identité du nœud d'arrivée
+     * @param profile     l'index du profil de coût, compris entre 0 (inclus) et PROFILES_COUNT (exclus)
+     * @param route       l'itinéraire calculé entre ces nœuds selon ce profil
+     * @throws IllegalArgumentException si une identité de nœud ou l'index du profil est invalide
+     */
+    public synchronized void put(int startNodeId, int endNodeId, int profile, Route route) {
+        put(key(startNodeId, endNodeId, profile), route);
+    }
+
+    /**
+     * Méthode vidant le cache, sans réinitialiser ses statistiques.
+     */
+    public synchronized void clear() {
+        table = new int[16];
+        Arrays.fill(table, NONE);
+        keys = new long[8];
+        routes = new Route[8];
+        previous = new int[8];
+        next = new int[8];
+        head = tail = NONE;
+        freeList = NONE;
+        for (int entry = keys.length - 1; entry >= 0; entry--) {
+            next[entry] = freeList;
+            freeList = entry;
+        }
+        size = 0;
+        bytes = 0;
+    }
+
+    /**
+     * Fonction retournant le nombre d'itinéraires contenus dans le cache.
+     *
+     * @return le nombre d'itinéraires contenus dans le cache
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Fonction retournant la taille mémoire estimée des itinéraires contenus dans le cache, en octets.
+     *
+     * @return la taille mémoire estimée du cache, en octets
+     */
+    public synchronized long byteSize() {
+        return bytes;
+    }
+
+    /**
+     * Fonction retournant les statistiques d'utilisation du cache depuis sa création.
+     *
+     * @return les statistiques d'utilisation du cache
+     */
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions);
+    }
+
+    /**
+     * Enregistrement représentant les statistiques d'utilisation d'un cache d'itinéraires.
+     *
+     * @param hits      le nombre de recherches ayant trouvé un itinéraire
+     * @param misses    le nombre de recherches n'ayant pas trouvé d'itinéraire
+     * @param evictions le nombre d'itinéraires évincés faute de place
+     */
+    public record Stats(long hits, long misses, long evictions) {
+
+        /**
+         * Fonction retournant la proportion des recherches ayant trouvé un itinéraire.
+         *
+         * @return le taux de succès des recherches, ou 0 si aucune recherche n'a été faite
+         */
+        public double hitRate() {
+            return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        }
+    }
+
+    //---------------------------------------------- Private ----------------------------------------------//
+
+    /**
+     * Fonction privée empaquetant des identités de nœuds, chacune sur NODE_BITS bits, et l'index d'un profil de coût
+     * dans une clé de type long.
+     *
+     * @param startNodeId l'identité du nœud de départ
+     * @param endNodeId   l'identité du nœud d'arrivée
+     * @param profile     l'index du profil de coût
+     * @return la clé correspondante
+     * @throws IllegalArgumentException si une identité de nœud ou l'index du profil est invalide
+     */
+    private static long key(int startNodeId, int endNodeId, int profile) {
+        Preconditions.checkArgument(0 <= startNodeId && startNodeId < 1 << NODE_BITS
+                && 0 <= endNodeId && endNodeId < 1 << NODE_BITS
+                && 0 <= profile && profile < PROFILES_COUNT);
+        return ((long) startNodeId << (NODE_BITS + PROFILE_BITS)) | ((long) endNodeId << PROFILE_BITS) | profile;
+    }
+
+    /**
+     * Fonction privée reconstruisant un itinéraire à partir de son nœud de départ et des identités de ses arêtes.
+     *
+     * @param startNodeId l'identité du nœud de départ
+     * @param edgeIds     les identités des arêtes de l'itinéraire
+     * @param graph       le graphe contenant les arêtes
+     * @return l'itinéraire correspondant
+     */
+    private static Route routeOf(int startNodeId, int[] edgeIds, Graph graph) {
+        List<Edge> edges = new ArrayList<>(edgeIds.length);
+        int fromNodeId = startNodeId;
+        for (int edgeId : edgeIds) {
+            int toNodeId = graph.edgeTargetNodeId(edgeId);
+            edges.add(Edge.of(graph, edgeId, fromNodeId, toNodeId));
+            fromNodeId = toNodeId;
+        }
+        return new SingleRoute(edges);
+    }
+
+    /**
+     * Fonction privée estimant la taille mémoire d'un itinéraire, en octets, à partir de son nombre d'arêtes.
+     *
+     * @param route l'itinéraire dont on veut la taille
+     * @return la taille mémoire estimée de l'itinéraire, en octets
+     */
+    private static long byteSizeOf(Route route) {
+        return ROUTE_BYTES + (long) EDGE_BYTES * route.edges().size();
+    }
+
+    /**
+     * Méthode privée associant l'itinéraire donné à la clé donnée, puis évinçant les entrées les moins récemment
+     * utilisées tant que la taille maximale est dépassée.
+     *
+     * @param key   la clé de l'itinéraire
+     * @param route l'itinéraire
+     */
+    private void put(long key, Route route) {
+        long routeBytes = byteSizeOf(route);
+        int entry = entryOf(key);
+        if (entry != NONE) remove(entry);
+        if (routeBytes > maxBytes) return;
+
+        if (freeList == NONE) growEntries();
+        entry = freeList;
+        freeList = next[entry];
+        keys[entry] = key;
+        routes[entry] = route;
+        linkLast(entry);
+        size += 1;
+        bytes += routeBytes;
+        if (2 * size > table.length) rehash(2 * table.length);
+        else insertInTable(entry);
+
+        //L'éviction a lieu après l'ajout, de sorte que la taille maximale ne soit jamais dépassée
+        while (bytes > maxBytes) {
+            remove(head);
+            evictions += 1;
+        }
+    }
+
+    /**
+     * Fonction privée retournant l'index de l'entrée de clé donnée, ou NONE si aucune entrée n'a cette clé.
+     *
+     * @param key la clé recherchée
+     * @return l'index de l'entrée de clé donnée, ou NONE
+     */
+    private int entryOf(long key) {
+        for (int slot = slotOf(key); table[slot] != NONE; slot = (slot + 1) & (table.length - 1)) {
+            if (keys[table[slot]] == key) return table[slot];
+        }
+        return NONE;
+    }
+
+    /**
+     * Fonction privée retournant la case de la table de hachage à laquelle commence la recherche de la clé donnée.
+     *
+     * @param key la clé
+     * @return la première case de la table à examiner pour cette clé
+     */
+    private int slotOf(long key) {
+        long hash = key * 0x9E37_79B9_7F4A_7C15L;
+        return (int) (hash >>> 32) & (table.length - 1);
+    }
+
+    /**
+     * Méthode privée insérant l'entrée donnée dans la première case libre de la table de hachage.
+     *
+     * @param entry l'index de l'entrée à insérer
+     */
+    private void insertInTable(int entry) {
+        int slot = slotOf(keys[entry]);
+        while (table[slot] != NONE) slot = (slot + 1) & (table.length - 1);
+        table[slot] = entry;
+    }
+
+    /**
+     * Méthode privée supprimant l'entrée donnée du cache, en décalant les entrées suivantes de la table de hachage
+     * pour qu'aucune recherche ne s'arrête prématurément sur la case libérée.
+     *
+     * @param entry l'index de l'entrée à supprimer
+     */
+    private void remove(int entry) {
+        int slot = slotOf(keys[entry]);
+        while (table[slot] != entry) slot = (slot + 1) & (table.length - 1);
+        table[slot] = NONE;
+        for (int s = (slot + 1) & (table.length - 1); table[s] != NONE; s = (s + 1) & (table.length - 1)) {
+            int moved = table[s];
+            table[s] = NONE;
+            insertInTable(moved);
+        }
+
+        unlink(entry);
+        bytes -= byteSizeOf(routes[entry]);
+        routes[entry] = null;
+        next[entry] = freeList;
+        freeList = entry;
+        size -= 1;
+    }
+
+    /**
+     * Méthode privée reconstruisant la table de hachage avec la taille donnée.
+     *
+     * @param tableLength la nouvelle taille de la table, une puissance de deux
+     */
+    private void rehash(int tableLength) {
+        table = new int[tableLength];
+        Arrays.fill(table, NONE);
+        for (int entry = head; entry != NONE; entry = next[entry]) insertInTable(entry);
+    }
+
+    /**
+     * Méthode privée doublant le nombre d'entrées disponibles.
+     */
+    private void growEntries() {
+        int oldLength = keys.length;
+        keys = Arrays.copyOf(keys, 2 * oldLength);
+        routes = Arrays.copyOf(routes, 2 * oldLength);
+        previous = Arrays.copyOf(previous, 2 * oldLength);
+        next = Arrays.copyOf(next, 2 * oldLength);
+        for (int entry = 2 * oldLength - 1; entry >= oldLength; entry--) {
+            next[entry] = freeList;
+            freeList = entry;
+        }
+    }
+
+    /**
+     * Méthode privée ajoutant l'entrée donnée en fin de liste, c.-à-d. en tant qu'entrée la plus récemment utilisée.
+     *
+     * @param entry l'index de l'entrée
+     */
+    private void linkLast(int entry) {
+        previous[entry] = tail;
+        next[entry] = NONE;
+        if (tail == NONE) head = entry;
+        else next[tail] = entry;
+        tail = entry;
+    }
+
+    /**
+     * Méthode privée retirant l'entrée donnée de la liste des entrées.
+     *
+     * @param entry l'index de l'entrée
+     */
+    private void unlink(int entry) {
+        if (previous[entry] == NONE) head = next[entry];
+        else next[previous[entry]] = next[entry];
+        if (next[entry] == NONE) tail = previous[entry];
+        else previous[next[entry]] = previous[entry];
+    }
+}
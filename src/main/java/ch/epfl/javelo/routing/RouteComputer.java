@@ -16,13 +16,25 @@ public final class RouteComputer {
 
     private final Graph graph;
     private final CostFunction costFunction;
+    private final ThreadLocal<SearchState> searchState;
+    private final ThreadLocal<SearchState> edgeSearchState;
 
     /**
      * Constructeur public d'un planificateur d'itinéraire.
+     *
+     * @param graph        le graphe dans lequel les itinéraires sont calculés
+     * @param costFunction la fonction de coût utilisée par défaut
      */
     public RouteComputer(Graph graph, CostFunction costFunction) {
         this.graph = graph;
         this.costFunction = costFunction;
+
+        /* Les tableaux de l'algorithme A*, dont la taille est celle du graphe, sont alloués une seule fois par fil
+        d'exécution, et réutilisés par toutes les recherches qui y sont faites, quelle que soit leur fonction de coût */
+        this.searchState = ThreadLocal.withInitial(
+                () -> new SearchState(new int[graph.nodeCount()], new float[graph.nodeCount()]));
+        this.edgeSearchState = ThreadLocal.withInitial(
+                () -> new SearchState(new int[graph.edgeCount()], new float[graph.edgeCount()]));
     }
 
     /**
@@ -35,6 +47,21 @@ public final class RouteComputer {
      * @throws IllegalArgumentException si le nœud de départ et d'arrivée sont identiques
      */
     public Route bestRouteBetween(int startNodeId, int endNodeId) {
+        return bestRouteBetween(startNodeId, endNodeId, costFunction);
+    }
+
+    /**
+     * Fonction qui retourne l'itinéraire de coût total minimal allant du nœud d'identité startNodeId au nœud
+     * d'identité endNodeId selon la fonction de coût donnée, par ex. celle d'un profil de CostProfiles, ou null si
+     * aucun itinéraire n'existe. Cela permet de choisir le profil de coût à chaque requête.
+     *
+     * @param startNodeId  l'identité du nœud de départ
+     * @param endNodeId    l'identité du nœud d'arrivée
+     * @param costFunction la fonction de coût à utiliser pour cette requête
+     * @return l'itinéraire optimal entre le nœud de départ et le nœud d'arrivée
+     * @throws IllegalArgumentException si le nœud de départ et d'arrivée sont identiques
+     */
+    public Route bestRouteBetween(int startNodeId, int endNodeId, CostFunction costFunction) {
 
         Preconditions.checkArgument(startNodeId != endNodeId);
         float ALREADY_HANDLED = Float.NEGATIVE_INFINITY;
@@ -47,8 +74,9 @@ public final class RouteComputer {
             }
         }
 
-        int[] predecessors = new int[graph.nodeCount()];
-        float[] distances = new float[graph.nodeCount()];
+        SearchState state = searchState.get();
+        int[] predecessors = state.predecessors();
+        float[] distances = state.distances();
 
         PriorityQueue<WeightedNode> toExplore = new PriorityQueue<>();
 
@@ -96,6 +124,81 @@ public final class RouteComputer {
         return null;
     }
 
+    /**
+     * Fonction qui retourne l'itinéraire de coût total minimal allant du nœud d'identité startNodeId au nœud
+     * d'identité endNodeId selon la fonction de coût donnée, en tenant compte du coût des virages donnés, ou null si
+     * aucun itinéraire n'existe. Les virages interdits, de coût infini, ne sont jamais empruntés.
+     * <p>
+     * Le coût d'un virage dépendant de l'arête par laquelle on arrive à un nœud, la recherche porte ici sur les arêtes
+     * plutôt que sur les nœuds du graphe, ce qui la rend plus coûteuse que celle de bestRouteBetween sans virages.
+     *
+     * @param startNodeId  l'identité du nœud de départ
+     * @param endNodeId    l'identité du nœud d'arrivée
+     * @param costFunction la fonction de coût à utiliser pour cette requête
+     * @param turnCosts    la table des coûts de virage à utiliser pour cette requête
+     * @return l'itinéraire optimal entre le nœud de départ et le nœud d'arrivée
+     * @throws IllegalArgumentException si le nœud de départ et d'arrivée sont identiques
+     */
+    public Route bestRouteBetween(int startNodeId, int endNodeId, CostFunction costFunction, TurnCostTable turnCosts) {
+
+        Preconditions.checkArgument(startNodeId != endNodeId);
+        float ALREADY_HANDLED = Float.NEGATIVE_INFINITY;
+        int NO_PREDECESSOR = -1;
+
+        //Enregistrement permettant d'associer à chaque arête du graphe la distance de son nœud d'arrivée au départ
+        record WeightedEdge(int edgeId, float distance) implements Comparable<WeightedEdge> {
+            @Override
+            public int compareTo(WeightedEdge that) {
+                return Float.compare(this.distance, that.distance);
+            }
+        }
+
+        SearchState state = edgeSearchState.get();
+        int[] predecessors = state.predecessors();
+        float[] distances = state.distances();
+
+        PriorityQueue<WeightedEdge> toExplore = new PriorityQueue<>();
+        PointCh endPoint = graph.nodePoint(endNodeId);
+        Arrays.fill(distances, Float.POSITIVE_INFINITY);
+
+        //Ajout des arêtes sortant du nœud de départ, qui n'ont pas d'arête prédécessrice
+        for (int i = 0; i < graph.nodeOutDegree(startNodeId); i++) {
+            int edgeId = graph.nodeOutEdgeId(startNodeId, i);
+            float d = (float) (graph.nodePoint(graph.edgeTargetNodeId(edgeId)).distanceTo(endPoint)
+                    + costFunction.costFactor(startNodeId, edgeId) * graph.edgeLength(edgeId));
+            if (d < distances[edgeId]) {
+                distances[edgeId] = d;
+                predecessors[edgeId] = NO_PREDECESSOR;
+                toExplore.add(new WeightedEdge(edgeId, d));
+            }
+        }
+
+        //Application de l'algorithme A* aux arêtes, chaque transition d'une arête à la suivante étant un virage
+        while (!toExplore.isEmpty()) {
+            WeightedEdge edge = toExplore.remove();
+            if (edge.distance == ALREADY_HANDLED) continue;
+
+            int nodeId = graph.edgeTargetNodeId(edge.edgeId);
+            if (nodeId == endNodeId)
+                return buildEdgeRoute(startNodeId, edge.edgeId, predecessors);
+
+            double nodeDistance = edge.distance - graph.nodePoint(nodeId).distanceTo(endPoint);
+            for (int i = 0; i < graph.nodeOutDegree(nodeId); i++) {
+                int edgePrimeId = graph.nodeOutEdgeId(nodeId, i);
+                float d = (float) (nodeDistance + turnCosts.turnCost(edge.edgeId, edgePrimeId)
+                        + graph.nodePoint(graph.edgeTargetNodeId(edgePrimeId)).distanceTo(endPoint)
+                        + costFunction.costFactor(nodeId, edgePrimeId) * graph.edgeLength(edgePrimeId));
+                if (d < distances[edgePrimeId]) {
+                    distances[edgePrimeId] = d;
+                    predecessors[edgePrimeId] = edge.edgeId;
+                    toExplore.add(new WeightedEdge(edgePrimeId, d));
+                }
+            }
+            distances[edge.edgeId] = ALREADY_HANDLED;
+        }
+        return null;
+    }
+
     /**
      * Méthode privée permettant de reconstruire un itinéraire entre les nœuds de départ et d'arrivée,
      * grâce à un tableau donnant pour chaque nœud de l'itinéraire son prédécesseur préalablement calculé.
@@ -125,5 +228,58 @@ public final class RouteComputer {
         Collections.reverse(edges);
         return new SingleRoute(edges);
     }
-}
 
+    /**
+     * Fonction retournant les identités des arêtes de l'itinéraire donné, dans l'ordre, en choisissant pour chaque
+     * arête la première arête du graphe reliant ses nœuds, comme le fait buildRoute.
+     *
+     * @param graph le graphe dans lequel l'itinéraire a été calculé
+     * @param route l'itinéraire dont on veut les identités des arêtes
+     * @return le tableau des identités des arêtes de l'itinéraire
+     */
+    static int[] edgeIds(Graph graph, Route route) {
+        List<Edge> edges = route.edges();
+        int[] edgeIds = new int[edges.size()];
+        for (int i = 0; i < edges.size(); i++) {
+            Edge edge = edges.get(i);
+            for (int j = 0; j < graph.nodeOutDegree(edge.fromNodeId()); j++) {
+                int edgeId = graph.nodeOutEdgeId(edge.fromNodeId(), j);
+                if (graph.edgeTargetNodeId(edgeId) == edge.toNodeId()) {
+                    edgeIds[i] = edgeId;
+                    break;
+                }
+            }
+        }
+        return edgeIds;
+    }
+
+    /**
+     * Méthode privée permettant de reconstruire un itinéraire partant du nœud de départ et se terminant par l'arête
+     * donnée, grâce à un tableau donnant pour chaque arête de l'itinéraire l'arête qui la précède.
+     *
+     * @param startNodeId  le nœud de départ
+     * @param lastEdgeId   la dernière arête de l'itinéraire
+     * @param predecessors le tableau contenant à l'index i l'arête précédant l'arête d'identité i dans l'itinéraire,
+     *                     ou -1 pour la première arête
+     * @return l'itinéraire partant de startNodeId et se terminant par lastEdgeId
+     */
+    private SingleRoute buildEdgeRoute(int startNodeId, int lastEdgeId, int[] predecessors) {
+        List<Edge> edges = new ArrayList<>();
+        for (int edgeId = lastEdgeId; edgeId != -1; edgeId = predecessors[edgeId]) {
+            int previousEdgeId = predecessors[edgeId];
+            int fromNodeId = previousEdgeId == -1 ? startNodeId : graph.edgeTargetNodeId(previousEdgeId);
+            edges.add(Edge.of(graph, edgeId, fromNodeId, graph.edgeTargetNodeId(edgeId)));
+        }
+        Collections.reverse(edges);
+        return new SingleRoute(edges);
+    }
+
+    /**
+     * Enregistrement regroupant les tableaux utilisés par l'algorithme A*, réutilisés d'une recherche à l'autre, et
+     * indexés par identité de nœud, ou d'arête pour la recherche tenant compte des virages.
+     *
+     * @param predecessors le tableau contenant à l'index i le prédécesseur du nœud (ou de l'arête) d'identité i
+     * @param distances    le tableau contenant à l'index i la distance du nœud (ou de l'arête) d'identité i
+     */
+    private record SearchState(int[] predecessors, float[] distances) {}
+}
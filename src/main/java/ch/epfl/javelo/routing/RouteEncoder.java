@@ -0,0 +1,274 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Preconditions;
+import ch.epfl.javelo.projection.PointCh;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Classe représentant un encodeur d'itinéraire dans des formats compacts destinés à d'autres programmes : la
+ * polyligne encodée de Google, éventuellement complétée de l'altitude, et une ligne (LineString) GeoJSON.
+ * <p>
+ * Comme dans le fichier GPX, les points écrits sont le point de départ de l'itinéraire puis la fin de chacune de ses
+ * arêtes, et l'altitude de chacun d'eux, y compris du point de départ, est celle du profil en long à sa position.
+ * <p>
+ * Le GeoJSON arrondit les coordonnées à 1e-5 degré, soit environ un mètre comme la polyligne encodée, et l'altitude au
+ * mètre, ce qui le rend environ 5,4 fois plus petit que le fichier GPX. Arrondies au dixième de mètre, et l'altitude au
+ * centimètre, il n'en serait que 4,4 fois plus petit.
+ * <p>
+ * Les coordonnées des points sont d'abord placées dans des tableaux de type primitif, puis écrites caractère par
+ * caractère dans un tampon vidé au besoin dans le flot de sortie, sans création de chaîne ni d'objet par point.
+ *
+ * @author Jean Perbet (341418)
+ * @author Cassio Manuguerra (346232)
+ */
+public final class RouteEncoder {
+
+    private static final double POLYLINE_FACTOR = 1e5;
+    private static final double POLYLINE_ELEVATION_FACTOR = 1e2;
+    private static final int GEOJSON_DECIMALS = 5;
+    private static final int GEOJSON_ELEVATION_DECIMALS = 0;
+    private static final int BUFFER_SIZE = 8192;
+
+    private RouteEncoder() {}
+
+    /**
+     * Fonction retournant la polyligne encodée de l'itinéraire donné, au format de Google : latitude et longitude de
+     * chaque point arrondies à 1e-5 degré, puis, si le profil est donné, son altitude arrondie au centimètre, chaque
+     * valeur étant encodée comme la différence avec celle du point précédent.
+     *
+     * @param route   l'itinéraire
+     * @param profile le profil en long de l'itinéraire, ou null pour une polyligne sans altitude
+     * @return la polyligne encodée de l'itinéraire
+     */
+    public static String encodedPolyline(Route route, ElevationProfile profile) {
+        StringWriter writer = new StringWriter();
+        try {
+            writeEncodedPolyline(writer, route, profile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Should never happen
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Méthode écrivant la polyligne encodée de l'itinéraire donné dans le flot de caractères donné, qui n'est pas
+     * fermé, de la même manière que encodedPolyline.
+     *
+     * @param writer  le flot dans lequel écrire la polyligne
+     * @param route   l'itinéraire
+     * @param profile le profil en long de l'itinéraire, ou null pour une polyligne sans altitude
+     * @throws IOException en cas d'erreur d'écriture
+     */
+    public static void writeEncodedPolyline(Writer writer, Route route, ElevationProfile profile) throws IOException {
+        Coordinates coordinates = Coordinates.of(route, profile);
+        writePolyline(writer, coordinates.lats(), coordinates.lons(), coordinates.elevations());
+    }
+
+    /**
+     * Méthode écrivant l'itinéraire donné au format GeoJSON dans le fichier donné, sous la forme d'un élément
+     * (Feature) dont la géométrie est une ligne (LineString). Les coordonnées sont arrondies à 1e-5 degré, soit
+     * environ un mètre, et l'altitude, si le profil est donné, au mètre.
+     *
+     * @param path    le chemin d'accès au fichier dans lequel écrire l'itinéraire
+     * @param route   l'itinéraire
+     * @param profile le profil en long de l'itinéraire, ou null pour des coordonnées sans altitude
+     * @throws IOException si le chemin est invalide ou en cas d'erreur d'écriture
+     */
+    public static void writeGeoJson(Path path, Route route, ElevationProfile profile) throws IOException {
+        try (Writer w = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writeGeoJson(w, route, profile);
+        }
+    }
+
+    /**
+     * Méthode écrivant l'itinéraire donné au format GeoJSON dans le flot de caractères donné, qui n'est pas fermé, de
+     * la même manière que writeGeoJson(Path, Route, ElevationProfile).
+     *
+     * @param writer  le flot dans lequel écrire l'itinéraire
+     * @param route   l'itinéraire
+     * @param profile le profil en long de l'itinéraire, ou null pour des coordonnées sans altitude
+     * @throws IOException en cas d'erreur d'écriture
+     */
+    public static void writeGeoJson(Writer writer, Route route, ElevationProfile profile) throws IOException {
+        Coordinates coordinates = Coordinates.of(route, profile);
+        double[] lats = coordinates.lats(), lons = coordinates.lons(), elevations = coordinates.elevations();
+
+        Output out = new Output(writer);
+        out.append("{\"type\":\"Feature\",\"properties\":{\"name\":\"Route JaVelo\"},"
+                + "\"geometry\":{\"type\":\"LineString\",\"coordinates\":[");
+        for (int i = 0; i < lats.length; i++) {
+            if (i > 0) out.append(',');
+            out.append('[');
+            out.appendFixed(lons[i], GEOJSON_DECIMALS);
+            out.append(',');
+            out.appendFixed(lats[i], GEOJSON_DECIMALS);
+            if (elevations != null) {
+                out.append(',');
+                out.appendFixed(elevations[i], GEOJSON_ELEVATION_DECIMALS);
+            }
+            out.append(']');
+        }
+        out.append("]}}");
+        out.flush();
+    }
+
+    /**
+     * Méthode écrivant la polyligne encodée des points donnés dans le flot de caractères donné.
+     *
+     * @param writer     le flot dans lequel écrire la polyligne
+     * @param lats       la latitude de chaque point, en degrés
+     * @param lons       la longitude de chaque point, en degrés
+     * @param elevations l'altitude de chaque point, en mètres, ou null pour une polyligne sans altitude
+     * @throws IOException              en cas d'erreur d'écriture
+     * @throws IllegalArgumentException si les tableaux n'ont pas la même taille
+     */
+    static void writePolyline(Writer writer, double[] lats, double[] lons, double[] elevations) throws IOException {
+        Preconditions.checkArgument(lats.length == lons.length
+                && (elevations == null || elevations.length == lats.length));
+
+        Output out = new Output(writer);
+        long lastLat = 0, lastLon = 0, lastElevation = 0;
+        for (int i = 0; i < lats.length; i++) {
+            long lat = Math.round(lats[i] * POLYLINE_FACTOR);
+            long lon = Math.round(lons[i] * POLYLINE_FACTOR);
+            out.appendPolylineValue(lat - lastLat);
+            out.appendPolylineValue(lon - lastLon);
+            lastLat = lat;
+            lastLon = lon;
+            if (elevations != null) {
+                long elevation = Math.round(elevations[i] * POLYLINE_ELEVATION_FACTOR);
+                out.appendPolylineValue(elevation - lastElevation);
+                lastElevation = elevation;
+            }
+        }
+        out.flush();
+    }
+
+    //---------------------------------------------- Private ----------------------------------------------//
+
+    /**
+     * Enregistrement privé contenant les coordonnées, en degrés, et l'altitude des points écrits d'un itinéraire.
+     *
+     * @param lats       la latitude de chaque point
+     * @param lons       la longitude de chaque point
+     * @param elevations l'altitude de chaque point, ou null si elle n'est pas écrite
+     */
+    private record Coordinates(double[] lats, double[] lons, double[] elevations) {
+
+        /**
+         * Fonction retournant les coordonnées du point de départ et de la fin de chaque arête de l'itinéraire, et
+         * leur altitude, évaluée en une seule fois, si le profil est donné.
+         *
+         * @param route   l'itinéraire
+         * @param profile le profil en long de l'itinéraire, ou null
+         * @return les coordonnées des points de l'itinéraire
+         */
+        private static Coordinates of(Route route, ElevationProfile profile) {
+            List<Edge> edges = route.edges();
+            double[] lats = new double[edges.size() + 1], lons = new double[edges.size() + 1];
+            double[] positions = profile == null ? null : new double[edges.size() + 1];
+            setPoint(lats, lons, 0, edges.get(0).fromPoint());
+            double position = 0;
+            for (int i = 0; i < edges.size(); i++) {
+                position += edges.get(i).length();
+                setPoint(lats, lons, i + 1, edges.get(i).toPoint());
+                if (positions != null) positions[i + 1] = position;
+            }
+
+            if (profile == null) return new Coordinates(lats, lons, null);
+            double[] elevations = new double[positions.length];
+            profile.elevationsAt(positions, elevations);
+            return new Coordinates(lats, lons, elevations);
+        }
+
+        private static void setPoint(double[] lats, double[] lons, int index, PointCh point) {
+            lats[index] = Math.toDegrees(point.lat());
+            lons[index] = Math.toDegrees(point.lon());
+        }
+    }
+
+    /**
+     * Classe privée représentant un tampon de caractères, vidé dans un flot de caractères lorsqu'il est plein, dans
+     * lequel les nombres sont écrits chiffre par chiffre.
+     */
+    private static final class Output {
+        private final Writer writer;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private final char[] digits = new char[20];
+        private int size;
+
+        private Output(Writer writer) {
+            this.writer = writer;
+        }
+
+        private void append(char c) throws IOException {
+            if (size == buffer.length) flush();
+            buffer[size++] = c;
+        }
+
+        private void append(String s) throws IOException {
+            for (int i = 0; i < s.length(); i++) append(s.charAt(i));
+        }
+
+        /**
+         * Méthode écrivant une valeur de polyligne encodée : la valeur signée est décalée d'un bit vers la gauche, et
+         * inversée si elle est négative, puis écrite par groupes de 5 bits, du moins significatif au plus
+         * significatif, chaque groupe sauf le dernier ayant le bit 0x20, et auquel on ajoute 63.
+         *
+         * @param value la valeur à écrire
+         */
+        private void appendPolylineValue(long value) throws IOException {
+            long v = value < 0 ? ~(value << 1) : value << 1;
+            while (v >= 0x20) {
+                append((char) ((0x20 | (v & 0x1f)) + 63));
+                v >>>= 5;
+            }
+            append((char) (v + 63));
+        }
+
+        /**
+         * Méthode écrivant le nombre donné arrondi au nombre de décimales donné, sans les zéros finaux de sa partie
+         * décimale, ni de point décimal s'il est entier.
+         *
+         * @param value    le nombre à écrire
+         * @param decimals le nombre de décimales
+         */
+        private void appendFixed(double value, int decimals) throws IOException {
+            long scaled = Math.round(value * Math.pow(10, decimals));
+            if (scaled < 0) {
+                append('-');
+                scaled = -scaled;
+            }
+
+            //Chiffres écrits de droite à gauche, en omettant les zéros finaux de la partie décimale
+            int count = 0;
+            boolean significant = false;
+            for (int i = 0; i < decimals; i++) {
+                int digit = (int) (scaled % 10);
+                scaled /= 10;
+                if (digit != 0) significant = true;
+                if (significant) digits[count++] = (char) ('0' + digit);
+            }
+            if (significant) digits[count++] = '.';
+            do {
+                digits[count++] = (char) ('0' + scaled % 10);
+                scaled /= 10;
+            } while (scaled > 0);
+
+            while (count > 0) append(digits[--count]);
+        }
+
+        private void flush() throws IOException {
+            writer.write(buffer, 0, size);
+            size = 0;
+        }
+    }
+}
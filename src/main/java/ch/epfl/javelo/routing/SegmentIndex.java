@@ -0,0 +1,189 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Math2;
+import ch.epfl.javelo.projection.PointCh;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Classe immuable représentant un index spatial des arêtes d'un itinéraire, permettant de trouver le point de
+ * l'itinéraire le plus proche d'un point donné sans examiner toutes ses arêtes.
+ * <p>
+ * L'index est un R-arbre compacté selon la méthode STR (Sort-Tile-Recursive) : les arêtes sont triées par tranches
+ * verticales puis par ordonnée, et regroupées par paquets de NODE_CAPACITY, dont les rectangles englobants sont à leur
+ * tour regroupés de la même manière jusqu'à n'obtenir qu'une racine. Tous les niveaux sont stockés dans des tableaux
+ * de double, et une recherche n'alloue, outre le RoutePoint retourné, qu'un petit accumulateur.
+ *
+ * @author Jean Perbet (341418)
+ * @author Cassio Manuguerra (346232)
+ */
+final class SegmentIndex {
+
+    private static final int NODE_CAPACITY = 16;
+
+    //Extrémités, longueur et position de départ de chaque arête, dans l'ordre de l'itinéraire
+    private final double[] fromE, fromN, toE, toN, lengths, positions;
+
+    //Index des arêtes dans l'ordre des feuilles de l'arbre
+    private final int[] leafEdges;
+
+    /* Rectangles englobants des nœuds de chaque niveau, le niveau 0 étant celui des arêtes et le dernier celui de la
+    racine, sous la forme de quatre valeurs (minE, minN, maxE, maxN) par nœud */
+    private final double[][] levels;
+
+    /**
+     * Constructeur d'un index spatial des arêtes données.
+     *
+     * @param edges     les arêtes de l'itinéraire, dans l'ordre
+     * @param positions la position, le long de l'itinéraire, du début de chaque arête
+     */
+    SegmentIndex(List<Edge> edges, double[] positions) {
+        int count = edges.size();
+        fromE = new double[count];
+        fromN = new double[count];
+        toE = new double[count];
+        toN = new double[count];
+        lengths = new double[count];
+        this.positions = Arrays.copyOf(positions, count);
+        for (int i = 0; i < count; i++) {
+            Edge edge = edges.get(i);
+            fromE[i] = edge.fromPoint().e();
+            fromN[i] = edge.fromPoint().n();
+            toE[i] = edge.toPoint().e();
+            toN[i] = edge.toPoint().n();
+            lengths[i] = edge.length();
+        }
+
+        //Tri STR : tranches verticales selon l'abscisse du centre, puis tri de chaque tranche selon l'ordonnée
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingDouble(i -> fromE[i] + toE[i]));
+        int leafNodes = Math.max(1, (count + NODE_CAPACITY - 1) / NODE_CAPACITY);
+        int sliceSize = NODE_CAPACITY * (int) Math.ceil(Math.sqrt(leafNodes));
+        for (int start = 0; start < count; start += sliceSize)
+            Arrays.sort(order, start, Math.min(count, start + sliceSize),
+                    Comparator.comparingDouble(i -> fromN[i] + toN[i]));
+
+        leafEdges = new int[count];
+        double[] level = new double[4 * count];
+        for (int slot = 0; slot < count; slot++) {
+            int i = order[slot];
+            leafEdges[slot] = i;
+            level[4 * slot] = Math.min(fromE[i], toE[i]);
+            level[4 * slot + 1] = Math.min(fromN[i], toN[i]);
+            level[4 * slot + 2] = Math.max(fromE[i], toE[i]);
+            level[4 * slot + 3] = Math.max(fromN[i], toN[i]);
+        }
+
+        //Regroupement des nœuds de chaque niveau par paquets consécutifs jusqu'à la racine
+        int levelsCount = 1;
+        for (int n = count; n > 1; n = (n + NODE_CAPACITY - 1) / NODE_CAPACITY) levelsCount++;
+        levels = new double[levelsCount][];
+        levels[0] = level;
+        for (int l = 1; l < levelsCount; l++) {
+            double[] children = levels[l - 1];
+            int childCount = children.length / 4;
+            double[] parents = new double[4 * ((childCount + NODE_CAPACITY - 1) / NODE_CAPACITY)];
+            Arrays.fill(parents, Double.NaN);
+            for (int child = 0; child < childCount; child++) {
+                int parent = child / NODE_CAPACITY;
+                boolean first = child % NODE_CAPACITY == 0;
+                parents[4 * parent] = first ? children[4 * child] : Math.min(parents[4 * parent], children[4 * child]);
+                parents[4 * parent + 1] = first ? children[4 * child + 1]
+                        : Math.min(parents[4 * parent + 1], children[4 * child + 1]);
+                parents[4 * parent + 2] = first ? children[4 * child + 2]
+                        : Math.max(parents[4 * parent + 2], children[4 * child + 2]);
+                parents[4 * parent + 3] = first ? children[4 * child + 3]
+                        : Math.max(parents[4 * parent + 3], children[4 * child + 3]);
+            }
+            levels[l] = parents;
+        }
+    }
+
+    /**
+     * Fonction retournant le point de l'itinéraire le plus proche du point donné, le point situé sur l'arête de plus
+     * petit index étant choisi en cas d'égalité, comme le fait l'examen de toutes les arêtes dans l'ordre.
+     *
+     * @param point le point de référence
+     * @return le point de l'itinéraire le plus proche du point de référence
+     */
+    RoutePoint pointClosestTo(PointCh point) {
+        Nearest nearest = new Nearest(point.e(), point.n());
+        search(levels.length - 1, 0, nearest);
+
+        int i = nearest.edge;
+        if (i == -1) return RoutePoint.NONE;
+        PointCh closestPoint = lengths[i] == 0
+                ? new PointCh(fromE[i], fromN[i])
+                : new PointCh(Math2.interpolate(fromE[i], toE[i], nearest.positionOnEdge / lengths[i]),
+                              Math2.interpolate(fromN[i], toN[i], nearest.positionOnEdge / lengths[i]));
+        return new RoutePoint(closestPoint, positions[i] + nearest.positionOnEdge, nearest.distance);
+    }
+
+    //---------------------------------------------- Private ----------------------------------------------//
+
+    /**
+     * Méthode privée parcourant récursivement le nœud donné de l'arbre, en ignorant ceux dont le rectangle englobant
+     * est plus éloigné du point de référence que la meilleure arête trouvée jusqu'ici.
+     *
+     * @param level   le niveau du nœud
+     * @param node    l'index du nœud dans son niveau
+     * @param nearest la meilleure arête trouvée jusqu'ici, mise à jour par la recherche
+     */
+    private void search(int level, int node, Nearest nearest) {
+        double[] boxes = levels[level];
+        double dE = Math.max(0, Math.max(boxes[4 * node] - nearest.e, nearest.e - boxes[4 * node + 2]));
+        double dN = Math.max(0, Math.max(boxes[4 * node + 1] - nearest.n, nearest.n - boxes[4 * node + 3]));
+        if (Math.sqrt(Math2.squaredNorm(dE, dN)) > nearest.distance) return;
+
+        if (level == 0) {
+            nearest.accept(this, leafEdges[node]);
+            return;
+        }
+        int firstChild = node * NODE_CAPACITY;
+        int lastChild = Math.min(levels[level - 1].length / 4, firstChild + NODE_CAPACITY);
+        for (int child = firstChild; child < lastChild; child++) search(level - 1, child, nearest);
+    }
+
+    /**
+     * Classe privée représentant la meilleure arête trouvée lors d'une recherche.
+     */
+    private static final class Nearest {
+        private final double e, n;
+        private int edge = -1;
+        private double positionOnEdge;
+        private double distance = Double.POSITIVE_INFINITY;
+
+        private Nearest(double e, double n) {
+            this.e = e;
+            this.n = n;
+        }
+
+        /**
+         * Méthode projetant le point de référence sur l'arête donnée et la retenant si elle est plus proche que la
+         * meilleure arête actuelle, ou aussi proche mais d'index plus petit.
+         *
+         * @param index l'index contenant les arêtes
+         * @param i     l'index de l'arête
+         */
+        private void accept(SegmentIndex index, int i) {
+            double length = index.lengths[i];
+            double position = Math2.clamp(0, Math2.projectionLength(index.fromE[i], index.fromN[i],
+                    index.toE[i], index.toN[i], e, n), length);
+            double pointE = length == 0
+                    ? index.fromE[i]
+                    : Math2.interpolate(index.fromE[i], index.toE[i], position / length);
+            double pointN = length == 0
+                    ? index.fromN[i]
+                    : Math2.interpolate(index.fromN[i], index.toN[i], position / length);
+            double d = Math.sqrt(Math2.squaredNorm(pointE - e, pointN - n));
+            if (d < distance || (d == distance && i < edge)) {
+                edge = i;
+                positionOnEdge = position;
+                distance = d;
+            }
+        }
+    }
+}
@@ -21,6 +21,9 @@ public final class SingleRoute implements Route {
     private final double[] positions;
     private final List<PointCh> points;
 
+    //Index spatial des arêtes, construit au premier appel de pointClosestTo seulement
+    private volatile SegmentIndex segmentIndex;
+
     /**
      * Constructeur public d'un itinéraire simple.
      *
@@ -125,22 +128,21 @@ public final class SingleRoute implements Route {
         return positionOnEdge <= matchingEdge.length() / 2.0 ? matchingEdge.fromNodeId() : matchingEdge.toNodeId();
     }
 
+    /**
+     * Fonction retournant les positions des nœuds successifs de l'itinéraire, sans les copier.
+     *
+     * @return le tableau des positions des nœuds de l'itinéraire, la dernière étant sa longueur
+     */
+    double[] positions() {
+        return positions;
+    }
+
     @Override
     public RoutePoint pointClosestTo(PointCh point) {
-        RoutePoint routePoint = RoutePoint.NONE;
-        int edgeId = 0;
-
-        /* Itération sur les arêtes pour déterminer le projeté orthogonal du point sur chaque arête
-        et le point de l'arête correspondant à cette position, puis emploi de la méthode min() de
-        RoutePoint pour trouver le RoutePoint le plus proche du point passé en argument */
-        for (Edge edge : edges) {
-            PointCh closestPointOnEdge;
-            double closestPositionOnEdge = Math2.clamp(0, edge.positionClosestTo(point), edge.length());
-            closestPointOnEdge = edge.pointAt(closestPositionOnEdge);
-
-            routePoint = routePoint.min(closestPointOnEdge, positions[edgeId++] + Math2.clamp(0, closestPositionOnEdge, edge.length()), point.distanceTo(closestPointOnEdge));
-        }
-        return routePoint;
+        /* Plutôt que de projeter le point sur chaque arête, recherche dans un index spatial des arêtes, qui n'examine
+        que celles dont le rectangle englobant est assez proche du point */
+        SegmentIndex index = segmentIndex;
+        if (index == null) segmentIndex = index = new SegmentIndex(edges, positions);
+        return index.pointClosestTo(point);
     }
 }
-
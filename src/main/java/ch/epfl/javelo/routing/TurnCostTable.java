@@ -0,0 +1,166 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Preconditions;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Classe immuable représentant une table de coûts de virage : à chaque virage, c.-à-d. au passage d'une arête à l'une
+ * des arêtes sortant de son nœud d'arrivée, peut être associé un coût additionnel, exprimé en mètres, ou un coût
+ * infini si le virage est interdit. Les virages absents de la table ont un coût nul.
+ * <p>
+ * Une telle table peut être enregistrée dans un fichier binaire à côté du graphe, qui contient, triés par ordre
+ * croissant d'arête de départ puis d'arête d'arrivée, les virages successifs sous la forme de trois valeurs en
+ * big-endian : l'identité de l'arête de départ (int), celle de l'arête d'arrivée (int) et le coût (float).
+ *
+ * @author Jean Perbet (341418)
+ * @author Cassio Manuguerra (346232)
+ */
+public final class TurnCostTable {
+
+    /**
+     * Table de coûts de virage vide, dans laquelle tous les virages ont un coût nul.
+     */
+    public static final TurnCostTable EMPTY = new TurnCostTable(new long[0], new float[0]);
+
+    private static final int TURN_BYTES = 2 * Integer.BYTES + Float.BYTES;
+
+    private final long[] turns;
+    private final float[] costs;
+
+    /**
+     * Constructeur privé d'une table de coûts de virage, qui ne copie pas les tableaux donnés.
+     *
+     * @param turns les virages, triés par ordre croissant, sous la forme retournée par turn()
+     * @param costs le coût de chacun des virages
+     */
+    private TurnCostTable(long[] turns, float[] costs) {
+        this.turns = turns;
+        this.costs = costs;
+    }
+
+    /**
+     * Méthode de construction retournant la table des virages donnés, le virage d'index i allant de l'arête
+     * fromEdgeIds[i] à l'arête toEdgeIds[i] avec le coût costs[i].
+     *
+     * @param fromEdgeIds les identités des arêtes de départ des virages
+     * @param toEdgeIds   les identités des arêtes d'arrivée des virages
+     * @param costs       les coûts des virages, positifs ou nuls, et infinis pour les virages interdits
+     * @return la table des virages donnés
+     * @throws IllegalArgumentException si les tableaux n'ont pas la même taille, si un virage apparaît plusieurs fois,
+     *                                  ou si un coût est négatif ou NaN
+     */
+    public static TurnCostTable of(int[] fromEdgeIds, int[] toEdgeIds, float[] costs) {
+        Preconditions.checkArgument(fromEdgeIds.length == toEdgeIds.length && toEdgeIds.length == costs.length);
+
+        //Tri des virages, puis de leurs coûts dans le même ordre, grâce à un tableau d'index
+        Integer[] order = new Integer[costs.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (i, j) ->
+                Long.compare(turn(fromEdgeIds[i], toEdgeIds[i]), turn(fromEdgeIds[j], toEdgeIds[j])));
+
+        long[] sortedTurns = new long[costs.length];
+        float[] sortedCosts = new float[costs.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedTurns[i] = turn(fromEdgeIds[order[i]], toEdgeIds[order[i]]);
+            sortedCosts[i] = costs[order[i]];
+        }
+        return checked(sortedTurns, sortedCosts);
+    }
+
+    /**
+     * Méthode de construction chargeant la table des coûts de virage contenue dans le fichier donné.
+     *
+     * @param path le chemin d'accès au fichier contenant la table
+     * @return la table des coûts de virage contenue dans le fichier
+     * @throws IOException              en cas d'erreur d'entrée/sortie, par ex. si le fichier n'existe pas
+     * @throws IllegalArgumentException si la taille du fichier n'est pas un multiple de la taille d'un virage, si les
+     *                                  virages ne sont pas triés ou pas uniques, ou si un coût est négatif ou NaN
+     */
+    public static TurnCostTable loadFrom(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        Preconditions.checkArgument(buffer.capacity() % TURN_BYTES == 0);
+        int count = buffer.capacity() / TURN_BYTES;
+        long[] turns = new long[count];
+        float[] costs = new float[count];
+        for (int i = 0; i < count; i++) {
+            turns[i] = turn(buffer.getInt(), buffer.getInt());
+            costs[i] = buffer.getFloat();
+        }
+        return checked(turns, costs);
+    }
+
+    /**
+     * Méthode permettant d'écrire la table des coûts de virage dans le fichier donné.
+     *
+     * @param path le chemin d'accès au fichier dans lequel écrire la table
+     * @throws IOException en cas d'erreur d'entrée/sortie
+     */
+    public void writeTo(Path path) throws IOException {
+        try (DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            for (int i = 0; i < turns.length; i++) {
+                stream.writeInt((int) (turns[i] >>> Integer.SIZE));
+                stream.writeInt((int) turns[i]);
+                stream.writeFloat(costs[i]);
+            }
+        }
+    }
+
+    /**
+     * Fonction retournant le nombre de virages contenus dans la table.
+     *
+     * @return le nombre de virages contenus dans la table
+     */
+    public int size() {
+        return turns.length;
+    }
+
+    /**
+     * Fonction retournant le coût du virage allant de l'arête d'identité fromEdgeId à l'arête d'identité toEdgeId.
+     *
+     * @param fromEdgeId l'identité de l'arête de départ du virage
+     * @param toEdgeId   l'identité de l'arête d'arrivée du virage
+     * @return le coût du virage, en mètres, nul si le virage est absent de la table et infini s'il est interdit
+     */
+    public double turnCost(int fromEdgeId, int toEdgeId) {
+        int index = Arrays.binarySearch(turns, turn(fromEdgeId, toEdgeId));
+        return index >= 0 ? costs[index] : 0;
+    }
+
+    //---------------------------------------------- Private ----------------------------------------------//
+
+    /**
+     * Fonction privée empaquetant un virage dans un long, l'arête de départ dans les 32 bits de poids fort et l'arête
+     * d'arrivée dans les 32 bits de poids faible, les identités étant positives, l'ordre des long est celui des virages.
+     *
+     * @param fromEdgeId l'identité de l'arête de départ du virage
+     * @param toEdgeId   l'identité de l'arête d'arrivée du virage
+     * @return le virage empaqueté dans un long
+     */
+    private static long turn(int fromEdgeId, int toEdgeId) {
+        return ((long) fromEdgeId << Integer.SIZE) | Integer.toUnsignedLong(toEdgeId);
+    }
+
+    /**
+     * Méthode privée construisant une table à partir de virages triés, après avoir vérifié leur validité.
+     *
+     * @param turns les virages, censés être triés par ordre strictement croissant
+     * @param costs le coût de chacun des virages
+     * @return la table des virages donnés
+     * @throws IllegalArgumentException si les virages ne sont pas strictement croissants, si une identité d'arête est
+     *                                  négative, ou si un coût est négatif ou NaN
+     */
+    private static TurnCostTable checked(long[] turns, float[] costs) {
+        for (int i = 0; i < turns.length; i++) {
+            Preconditions.checkArgument(turns[i] >= 0 && (int) turns[i] >= 0 && costs[i] >= 0);
+            Preconditions.checkArgument(i == 0 || turns[i - 1] < turns[i]);
+        }
+        return new TurnCostTable(turns, costs);
+    }
+}
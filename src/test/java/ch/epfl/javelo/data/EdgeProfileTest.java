@@ -0,0 +1,48 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.Functions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.function.DoubleUnaryOperator;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EdgeProfileTest {
+
+    @Test
+    void edgeProfileIsEqualToSampledProfileSamples() {
+        var rng = newRandom();
+        short[] elevationsArray = new short[1 + 4096];
+        for (int i = 0; i < elevationsArray.length; i++) elevationsArray[i] = (short) rng.nextInt();
+        //Premier échantillon positif, au format 12.4
+        elevationsArray[0] = (short) rng.nextInt(1 << 14);
+        ShortBuffer elevations = ShortBuffer.wrap(elevationsArray);
+
+        for (int i = 0; i < RANDOM_ITERATIONS; i++) {
+            int profileType = 1 + rng.nextInt(3);
+            boolean inverted = rng.nextBoolean();
+            //Longueurs allant jusqu'à 2000m, soit jusqu'à 1001 échantillons
+            int lengthQ28_4 = 1 + rng.nextInt(2000 << 4);
+
+            ByteBuffer edgesBuffer = ByteBuffer.allocate(10);
+            edgesBuffer.putInt(0, inverted ? ~0 : 0);
+            edgesBuffer.putShort(4, (short) lengthQ28_4);
+            IntBuffer profileIds = IntBuffer.wrap(new int[]{profileType << 30});
+            GraphEdges edges = new GraphEdges(edgesBuffer, profileIds, elevations);
+
+            double length = edges.length(0);
+            DoubleUnaryOperator expected = Functions.sampled(edges.profileSamples(0), length);
+            DoubleUnaryOperator actual = new EdgeProfile(edges, 0);
+            for (int j = 0; j < 50; j++) {
+                double x = rng.nextDouble(-10, length + 10);
+                assertEquals(expected.applyAsDouble(x), actual.applyAsDouble(x));
+            }
+            assertEquals(expected.applyAsDouble(length), actual.applyAsDouble(length));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ch.epfl.javelo.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphBufferTest {
+
+    private static byte[] randomBytes(int length) {
+        var rng = newRandom();
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) bytes[i] = (byte) rng.nextInt();
+        return bytes;
+    }
+
+    @Test
+    void mappedGraphBufferReadsValuesAcrossChunks() throws IOException {
+        byte[] bytes = randomBytes(1000);
+        Path file = Files.createTempFile("javelo", ".bin");
+        try {
+            Files.write(file, bytes);
+            ByteBuffer expected = ByteBuffer.wrap(bytes);
+            GraphBuffer actual = GraphBuffer.mapped(file, 4);
+            assertEquals(bytes.length, actual.byteSize());
+            for (int i = 0; i <= bytes.length - Long.BYTES; i++) {
+                assertEquals(expected.getShort(i), actual.getShort(i));
+                assertEquals(expected.getInt(i), actual.getInt(i));
+                assertEquals(expected.getLong(i), actual.getLong(i));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void mappedGraphBufferThrowsOnInvalidChunkSize() throws IOException {
+        Path file = Files.createTempFile("javelo", ".bin");
+        try {
+            assertThrows(IllegalArgumentException.class, () -> GraphBuffer.mapped(file, 3));
+            assertThrows(IllegalArgumentException.class, () -> GraphBuffer.mapped(file, 31));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void graphBufferAdaptersReadLikeByteBuffer() {
+        byte[] bytes = randomBytes(128);
+        ByteBuffer expected = ByteBuffer.wrap(bytes);
+        GraphBuffer ofInts = GraphBuffer.of(ByteBuffer.wrap(bytes).asIntBuffer());
+        GraphBuffer ofShorts = GraphBuffer.of(ByteBuffer.wrap(bytes).asShortBuffer());
+        assertEquals(bytes.length, ofInts.byteSize());
+        assertEquals(bytes.length, ofShorts.byteSize());
+        for (int i = 0; i <= bytes.length - Long.BYTES; i += Short.BYTES) {
+            assertEquals(expected.getShort(i), ofInts.getShort(i));
+            assertEquals(expected.getShort(i), ofShorts.getShort(i));
+            assertEquals(expected.getInt(i), ofShorts.getInt(i));
+            assertEquals(expected.getLong(i), ofShorts.getLong(i));
+            if (i % Integer.BYTES == 0) {
+                assertEquals(expected.getInt(i), ofInts.getInt(i));
+                assertEquals(expected.getLong(i), ofInts.getLong(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.javelo.Math2;
+import ch.epfl.javelo.projection.Ch1903;
+import ch.epfl.javelo.projection.PointCh;
+import ch.epfl.javelo.projection.SwissBounds;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphBuilderTest {
+
+    private static final double E0 = SwissBounds.MIN_E + 100_000, N0 = SwissBounds.MIN_N + 100_000;
+
+    //Extrait OpenStreetMap minimal, dont les coordonnées suisses attendues de chaque nœud sont mémorisées
+    private static final class Extract {
+        private final StringBuilder nodes = new StringBuilder(), ways = new StringBuilder();
+        private final Map<Long, PointCh> points = new HashMap<>();
+
+        private Extract node(long id, double e, double n) {
+            double lon = Math.toDegrees(Ch1903.lon(e, n)), lat = Math.toDegrees(Ch1903.lat(e, n));
+            nodes.append("  <node id=\"").append(id).append("\" version=\"1\" lat=\"").append(lat)
+                    .append("\" lon=\"").append(lon).append("\"/>\n");
+            double expectedE = Ch1903.e(Math.toRadians(lon), Math.toRadians(lat));
+            double expectedN = Ch1903.n(Math.toRadians(lon), Math.toRadians(lat));
+            if (SwissBounds.containsEN(expectedE, expectedN)) points.put(id, new PointCh(expectedE, expectedN));
+            return this;
+        }
+
+        private Extract way(long id, long[] refs, String... tags) {
+            ways.append("  <way id=\"").append(id).append("\">\n");
+            for (long ref : refs) ways.append("    <nd ref=\"").append(ref).append("\"/>\n");
+            for (int i = 0; i < tags.length; i += 2) {
+                ways.append("    <tag k=\"").append(tags[i]).append("\" v=\"").append(tags[i + 1]).append("\"/>\n");
+            }
+            ways.append("  </way>\n");
+            return this;
+        }
+
+        private Path write() throws IOException {
+            Path file = Files.createTempFile("javelo", ".osm");
+            Files.writeString(file, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<osm version=\"0.6\">\n"
+                    + nodes + ways + "  <relation id=\"1\"><member type=\"way\" ref=\"10\" role=\"\"/></relation>\n"
+                    + "</osm>\n");
+            return file;
+        }
+    }
+
+    private static Graph build(Extract extract, Path directory, DoubleBinaryOperator elevationModel)
+            throws IOException {
+        Path osmFile = extract.write();
+        try {
+            GraphBuilder.build(osmFile, directory, elevationModel);
+        } finally {
+            Files.delete(osmFile);
+        }
+        return Graph.loadFrom(directory);
+    }
+
+    private static long[] osmIds(Path directory) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(directory.resolve("nodes_osmid.bin")));
+        long[] ids = new long[buffer.capacity() / Long.BYTES];
+        for (int i = 0; i < ids.length; i++) ids[i] = buffer.getLong(i * Long.BYTES);
+        return ids;
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    void buildWritesTheGraphOfTheHighways() throws IOException {
+        Extract extract = new Extract()
+                .node(1, E0, N0).node(2, E0 + 100, N0).node(3, E0 + 300, N0).node(4, E0 + 300, N0 + 150)
+                .node(5, E0 + 500, N0).node(6, E0 + 600, N0)
+                .node(7, E0 + 10_000, N0 + 10_000).node(8, E0 + 10_050, N0 + 10_020)
+                .node(9, 0, 0)
+                .way(10, new long[]{1, 2, 3}, "highway", "residential", "surface", "asphalt", "name", "Rue")
+                .way(11, new long[]{3, 4}, "highway", "cycleway", "oneway", "yes")
+                .way(12, new long[]{5, 6}, "building", "yes")
+                .way(13, new long[]{4, 99, 9}, "highway", "footway")
+                .way(14, new long[]{8, 7}, "highway", "track");
+        Path directory = Files.createTempDirectory("javelo");
+        try {
+            Graph graph = build(extract, directory, null);
+            long[] osmIds = osmIds(directory);
+            assertEquals(6, graph.nodeCount());
+            assertEquals(Set.of(1L, 2L, 3L, 4L, 7L, 8L),
+                    Set.copyOf(java.util.Arrays.stream(osmIds).boxed().toList()));
+            assertEquals(8, graph.edgeCount());
+            assertTrue(Files.exists(directory.resolve(OsmIdIndex.INDEX_FILE)));
+            assertEquals(-1, graph.nodeIdOfOsm(5));
+
+            Set<String> segments = new HashSet<>();
+            for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+                PointCh expected = extract.points.get(osmIds[nodeId]);
+                assertEquals(0, expected.distanceTo(graph.nodePoint(nodeId)), 0.05);
+                assertEquals(osmIds[nodeId], graph.osmIdOf(nodeId));
+                assertEquals(nodeId, graph.nodeIdOfOsm(osmIds[nodeId]));
+
+                //Le nœud se trouve dans le secteur contenant son point
+                boolean inSector = false;
+                for (GraphSectors.Sector sector : graph.sectorsInArea(graph.nodePoint(nodeId), 0))
+                    inSector |= sector.startNodeId() <= nodeId && nodeId < sector.endNodeId();
+                assertTrue(inSector);
+
+                for (int i = 0; i < graph.nodeOutDegree(nodeId); i++) {
+                    int edgeId = graph.nodeOutEdgeId(nodeId, i);
+                    long from = osmIds[nodeId], to = osmIds[graph.edgeTargetNodeId(edgeId)];
+                    segments.add(from + "-" + to);
+                    assertEquals(extract.points.get(from).distanceTo(extract.points.get(to)),
+                            graph.edgeLength(edgeId), 1 / 16.0);
+                    assertFalse(graph.edgeProfile(edgeId).applyAsDouble(0) == graph.edgeProfile(edgeId)
+                            .applyAsDouble(0));
+                    assertEquals(0, graph.edgeElevationGain(edgeId));
+
+                    //Les arêtes dans le sens de la voie ne sont pas inversées
+                    boolean forward = from == 1 && to == 2 || from == 2 && to == 3 || from == 3 && to == 4
+                            || from == 8 && to == 7;
+                    assertEquals(!forward, graph.edgeIsInverted(edgeId));
+
+                    AttributeSet attributes = graph.edgeAttributes(edgeId);
+                    if (from <= 3 && to <= 3) {
+                        assertEquals(AttributeSet.of(Attribute.HIGHWAY_RESIDENTIAL, Attribute.SURFACE_ASPHALT),
+                                attributes);
+                    } else if (from >= 7) {
+                        assertEquals(AttributeSet.of(Attribute.HIGHWAY_TRACK), attributes);
+                    } else {
+                        assertEquals(AttributeSet.of(Attribute.HIGHWAY_CYCLEWAY, Attribute.ONEWAY_YES), attributes);
+                    }
+                }
+            }
+            assertEquals(Set.of("1-2", "2-1", "2-3", "3-2", "3-4", "4-3", "7-8", "8-7"), segments);
+            assertTrue(graph.attributeSets().containsAll(List.of(AttributeSet.of(Attribute.HIGHWAY_TRACK),
+                    AttributeSet.of(Attribute.HIGHWAY_CYCLEWAY, Attribute.ONEWAY_YES))));
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    void buildIgnoresTooLongAndTooDenseSegmentsInBothDirections() throws IOException {
+        //Nœud central relié à 17 voisins, dont seuls les 15 premiers segments sont gardés, et segment de 5 km
+        Extract extract = new Extract().node(1, E0, N0);
+        for (int i = 0; i < 17; i++) {
+            double angle = 2 * Math.PI * i / 17;
+            extract.node(100 + i, E0 + 100 * Math.cos(angle), N0 + 100 * Math.sin(angle));
+            long[] refs = i % 2 == 0 ? new long[]{1, 100 + i} : new long[]{100 + i, 1};
+            extract.way(100 + i, refs, "highway", "residential");
+        }
+        extract.node(2, E0 + 1_000, N0).node(3, E0 + 6_000, N0).node(4, E0 + 6_000, N0 + 100)
+                .way(10, new long[]{2, 3, 4}, "highway", "track");
+
+        Path osmFile = extract.write();
+        Path directory = Files.createTempDirectory("javelo");
+        try {
+            GraphBuilder.Summary summary = GraphBuilder.build(osmFile, directory, null);
+            assertEquals(1, summary.tooLongSegments());
+            assertEquals(2, summary.tooDenseSegments());
+
+            Graph graph = Graph.loadFrom(directory);
+            assertEquals(summary.nodeCount(), graph.nodeCount());
+            assertEquals(summary.edgeCount(), graph.edgeCount());
+            assertEquals(2 * 16, graph.edgeCount());
+            assertEquals(15, graph.nodeOutDegree(graph.nodeIdOfOsm(1)));
+            assertEquals(0, graph.nodeOutDegree(graph.nodeIdOfOsm(115)));
+            assertEquals(0, graph.nodeOutDegree(graph.nodeIdOfOsm(116)));
+
+            //Chaque arête gardée a sa jumelle dans l'autre sens
+            Set<String> edges = new HashSet<>();
+            for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+                for (int i = 0; i < graph.nodeOutDegree(nodeId); i++)
+                    edges.add(nodeId + "-" + graph.edgeTargetNodeId(graph.nodeOutEdgeId(nodeId, i)));
+            }
+            for (String edge : edges) {
+                String[] nodes = edge.split("-");
+                assertTrue(edges.contains(nodes[1] + "-" + nodes[0]));
+            }
+        } finally {
+            Files.delete(osmFile);
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    void buildCompressesProfilesWithTheMostCompactType() throws IOException {
+        //Pente dépendant de la coordonnée N : faible, moyenne, forte, puis altitude inconnue
+        DoubleBinaryOperator model = (e, n) -> {
+            double slope = n < N0 + 1500 ? 0.05 : n < N0 + 2500 ? -1 : n < N0 + 3500 ? 10 : Double.NaN;
+            return 1000 + slope * (e - E0);
+        };
+        Extract extract = new Extract();
+        for (int k = 1; k <= 4; k++) {
+            extract.node(2 * k, E0, N0 + 1000 * k).node(2 * k + 1, E0 + 99.3, N0 + 1000 * k)
+                    .way(k, new long[]{2 * k, 2 * k + 1}, "highway", "path");
+        }
+        Path directory = Files.createTempDirectory("javelo");
+        try {
+            Graph graph = build(extract, directory, model);
+            GraphEdges edges = new GraphEdges(GraphBuffer.mapped(directory.resolve("edges.bin")),
+                    GraphBuffer.mapped(directory.resolve("profile_ids.bin")),
+                    GraphBuffer.mapped(directory.resolve("elevations.bin")));
+            long[] osmIds = osmIds(directory);
+
+            List<Integer> types = new ArrayList<>();
+            for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+                int edgeId = graph.nodeOutEdgeId(nodeId, 0);
+                //Points exacts des nœuds, ceux du graphe étant arrondis au seizième de mètre
+                PointCh from = extract.points.get(osmIds[nodeId]);
+                PointCh to = extract.points.get(osmIds[graph.edgeTargetNodeId(edgeId)]);
+                boolean inverted = osmIds[nodeId] % 2 == 1;
+                assertEquals(inverted, graph.edgeIsInverted(edgeId));
+                types.add(edges.profileType(edgeId));
+
+                double expectedGain = Math.max(0, model.applyAsDouble(to.e(), to.n())
+                        - model.applyAsDouble(from.e(), from.n()));
+                if (from.n() > N0 + 3500) {
+                    assertFalse(edges.hasProfile(edgeId));
+                    assertEquals(0, graph.edgeElevationGain(edgeId));
+                    continue;
+                }
+                assertEquals(expectedGain, graph.edgeElevationGain(edgeId), 1 / 16.0);
+
+                DoubleUnaryOperator profile = graph.edgeProfile(edgeId);
+                int sampleCount = edges.sampleCount(edgeId);
+                double length = graph.edgeLength(edgeId);
+                //Évaluation à mi-chemin entre deux échantillons, où le profil est leur moyenne
+                for (int i = 0; i < sampleCount - 1; i++) {
+                    double t = (i + 0.5) / (sampleCount - 1);
+                    double expected = model.applyAsDouble(Math2.interpolate(from.e(), to.e(), t),
+                            Math2.interpolate(from.n(), to.n(), t));
+                    assertEquals(expected, profile.applyAsDouble(t * length), 1 / 32.0 + 0.01);
+                }
+            }
+            types.sort(null);
+            assertEquals(List.of(0, 0, 1, 1, 2, 2, 3, 3), types);
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    void buildThrowsOnInvalidExtract() throws IOException {
+        Path osmFile = Files.createTempFile("javelo", ".osm");
+        Path directory = Files.createTempDirectory("javelo");
+        try {
+            Files.writeString(osmFile, "<osm><node id=\"1\" lat=\"46.5\"/><way id=\"2\"><nd ref=\"1\"/>"
+                    + "<nd ref=\"1\"/><tag k=\"highway\" v=\"path\"/></way></osm>");
+            assertThrows(IOException.class, () -> GraphBuilder.build(osmFile, directory, null));
+            Files.writeString(osmFile, "<osm><way id=\"2\"><nd ref=\"x\"/></way>");
+            assertThrows(IOException.class, () -> GraphBuilder.build(osmFile, directory, null));
+        } finally {
+            Files.delete(osmFile);
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Mesure la durée de la construction du graphe d'une grille de 500 x 500 nœuds, soit environ un million
+     * d'arêtes, avec profils.
+     */
+    public static void main(String[] args) throws IOException {
+        int size = 500;
+        Extract extract = new Extract();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) extract.node((long) y * size + x, E0 + 40 * x, N0 + 40 * y);
+        }
+        for (int y = 0; y < size; y++) {
+            long[] row = new long[size], column = new long[size];
+            for (int x = 0; x < size; x++) {
+                row[x] = (long) y * size + x;
+                column[x] = (long) x * size + y;
+            }
+            extract.way(2L * y, row, "highway", "residential").way(2L * y + 1, column, "highway", "track");
+        }
+        Path osmFile = extract.write();
+        Path directory = Files.createTempDirectory("javelo");
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            GraphBuilder.build(osmFile, directory, (e, n) -> 500 + 100 * Math.sin(e / 300) * Math.cos(n / 500));
+            System.out.printf("%d Mo, %d ms%n", Files.size(osmFile) >> 20, (System.nanoTime() - start) / 1_000_000);
+        }
+        Graph graph = Graph.loadFrom(directory);
+        System.out.printf("%d nœuds, %d arêtes%n", graph.nodeCount(), graph.edgeCount());
+        Files.delete(osmFile);
+        deleteDirectory(directory);
+    }
+}
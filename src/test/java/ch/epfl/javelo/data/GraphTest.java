@@ -5,11 +5,13 @@ import ch.epfl.javelo.projection.PointCh;
 import ch.epfl.javelo.projection.SwissBounds;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
 import java.util.List;
+import java.util.function.DoubleUnaryOperator;
 
 
 class GraphTest {
@@ -104,5 +106,32 @@ class GraphTest {
         Graph graph = new Graph(nodes, sectors, edges, List.of());
         assertEquals(Functions.constant(Double.NaN), graph.edgeProfile(0));
     }
-}
 
+    @Test
+    void edgeProfileIsDecodedOnceAndCached() {
+        GraphNodes nodes = new GraphNodes(IntBuffer.allocate(6));
+        GraphSectors sectors = new GraphSectors(ByteBuffer.allocate(16384 * 6));
+
+        //Deux arêtes de 14m, dont la seconde est inversée, partageant le même profil de type 1
+        ByteBuffer edgesBuffer = ByteBuffer.allocate(20);
+        edgesBuffer.putInt(0, 1);
+        edgesBuffer.putShort(4, (short) (14 << 4));
+        edgesBuffer.putInt(10, ~0);
+        edgesBuffer.putShort(14, (short) (14 << 4));
+        IntBuffer profileIdsBuffer = IntBuffer.wrap(new int[]{1 << 30, 1 << 30});
+        ShortBuffer elevationsBuffer = ShortBuffer.wrap(new short[]{
+                0, 1 << 4, 2 << 4, 3 << 4, 4 << 4, 5 << 4, 6 << 4, 7 << 4
+        });
+        GraphEdges edges = new GraphEdges(edgesBuffer, profileIdsBuffer, elevationsBuffer);
+        Graph graph = new Graph(nodes, sectors, edges, List.of());
+
+        DoubleUnaryOperator profile = graph.edgeProfile(0);
+        DoubleUnaryOperator invertedProfile = graph.edgeProfile(1);
+        assertSame(profile, graph.edgeProfile(0));
+        assertSame(invertedProfile, graph.edgeProfile(1));
+        for (double x = 0; x <= 14; x += 0.5) {
+            assertEquals(x / 2, profile.applyAsDouble(x), 1e-9);
+            assertEquals(7 - x / 2, invertedProfile.applyAsDouble(x), 1e-9);
+        }
+    }
+}
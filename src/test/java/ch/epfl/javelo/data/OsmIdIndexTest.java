@@ -0,0 +1,239 @@
+package ch.epfl.javelo.data;
+
+import ch.epfl.test.TestGraphs;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.random.RandomGenerator;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OsmIdIndexTest {
+
+    //Identités distinctes, par groupes d'identités proches répartis irrégulièrement, comme celles d'OpenStreetMap
+    private static long[] randomOsmIds(RandomGenerator rng, int count) {
+        Set<Long> ids = new HashSet<>();
+        long base = 0;
+        while (ids.size() < count) {
+            if (rng.nextInt(100) == 0) base = rng.nextLong(12_000_000_000L);
+            ids.add(base + rng.nextInt(100_000));
+        }
+        long[] shuffled = ids.stream().mapToLong(Long::longValue).toArray();
+        for (int i = shuffled.length - 1; i > 0; i--) {
+            int j = rng.nextInt(i + 1);
+            long tmp = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = tmp;
+        }
+        return shuffled;
+    }
+
+    private static byte[] bytesOf(long[] ids) {
+        ByteBuffer bytes = ByteBuffer.allocate(ids.length * Long.BYTES);
+        bytes.asLongBuffer().put(ids);
+        return bytes.array();
+    }
+
+    private static Path directoryWith(long[] ids) throws IOException {
+        Path directory = Files.createTempDirectory("javelo");
+        Files.write(directory.resolve(OsmIdIndex.IDS_FILE), bytesOf(ids));
+        return directory;
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    private static void assertIndexWorks(OsmIdIndex index, long[] ids, RandomGenerator rng) {
+        for (int nodeId = 0; nodeId < ids.length; nodeId++) {
+            assertEquals(ids[nodeId], index.osmIdOf(nodeId));
+            assertEquals(nodeId, index.nodeIdOf(ids[nodeId]));
+        }
+        long[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        assertEquals(-1, index.nodeIdOf(sorted[0] - 1));
+        assertEquals(-1, index.nodeIdOf(sorted[sorted.length - 1] + 1));
+        assertEquals(-1, index.nodeIdOf(-1));
+        assertEquals(-1, index.nodeIdOf(Long.MAX_VALUE));
+        for (int i = 0; i < 10_000; i++) {
+            long id = rng.nextLong(sorted[0], sorted[sorted.length - 1] + 1);
+            int nodeId = index.nodeIdOf(id);
+            if (Arrays.binarySearch(sorted, id) < 0) assertEquals(-1, nodeId);
+            else assertEquals(id, ids[nodeId]);
+        }
+    }
+
+    @Test
+    void mappedIndexIsBuiltOnFirstLookupAndWrittenNextToTheGraph() throws IOException {
+        var rng = newRandom();
+        long[] ids = randomOsmIds(rng, 50_000);
+        Path directory = directoryWith(ids);
+        try {
+            OsmIdIndex index = OsmIdIndex.mapped(directory);
+            assertFalse(Files.exists(directory.resolve(OsmIdIndex.INDEX_FILE)));
+            assertIndexWorks(index, ids, rng);
+            assertTrue(Files.exists(directory.resolve(OsmIdIndex.INDEX_FILE)));
+            assertEquals((long) ids.length * Long.BYTES, Files.size(directory.resolve(OsmIdIndex.INDEX_FILE)));
+
+            //Index existant, lu plutôt que reconstruit
+            assertIndexWorks(OsmIdIndex.mapped(directory), ids, rng);
+            try (var files = Files.list(directory)) {
+                assertEquals(2, files.count());
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    void writtenIndexIsEqualToTheOneBuiltOnFirstLookup() throws IOException {
+        long[] ids = randomOsmIds(newRandom(), 10_000);
+        Path built = directoryWith(ids), written = directoryWith(ids);
+        try {
+            OsmIdIndex.mapped(built).nodeIdOf(ids[0]);
+            OsmIdIndex.writeIndex(written);
+            assertArrayEquals(Files.readAllBytes(built.resolve(OsmIdIndex.INDEX_FILE)),
+                    Files.readAllBytes(written.resolve(OsmIdIndex.INDEX_FILE)));
+        } finally {
+            deleteDirectory(built);
+            deleteDirectory(written);
+        }
+    }
+
+    @Test
+    void staleIndexIsRebuilt() throws IOException {
+        var rng = newRandom();
+        long[] ids = randomOsmIds(rng, 10_000);
+        Path directory = directoryWith(ids);
+        try {
+            OsmIdIndex.writeIndex(directory);
+
+            //Graphe régénéré avec le même nombre de nœuds, puis avec un nombre différent
+            long[] sameCount = randomOsmIds(rng, ids.length);
+            Files.write(directory.resolve(OsmIdIndex.IDS_FILE), bytesOf(sameCount));
+            assertIndexWorks(OsmIdIndex.mapped(directory), sameCount, rng);
+            //Graphe régénéré dont seuls deux nœuds ont échangé leurs identités, puis dont un seul nœud a changé
+            long[] swapped = sameCount.clone();
+            int a = rng.nextInt(swapped.length), b = (a + 1 + rng.nextInt(swapped.length - 1)) % swapped.length;
+            swapped[a] = sameCount[b];
+            swapped[b] = sameCount[a];
+            Files.write(directory.resolve(OsmIdIndex.IDS_FILE), bytesOf(swapped));
+            assertIndexWorks(OsmIdIndex.mapped(directory), swapped, rng);
+            long[] oneChanged = swapped.clone();
+            long unused = 12_100_000_000L + rng.nextInt(1000);
+            oneChanged[rng.nextInt(oneChanged.length)] = unused;
+            Files.write(directory.resolve(OsmIdIndex.IDS_FILE), bytesOf(oneChanged));
+            assertIndexWorks(OsmIdIndex.mapped(directory), oneChanged, rng);
+
+            long[] otherCount = randomOsmIds(rng, ids.length / 2);
+            Files.write(directory.resolve(OsmIdIndex.IDS_FILE), bytesOf(otherCount));
+            assertIndexWorks(OsmIdIndex.mapped(directory), otherCount, rng);
+
+            Path rebuilt = Files.createTempDirectory("javelo");
+            try {
+                Files.write(rebuilt.resolve(OsmIdIndex.IDS_FILE), bytesOf(otherCount));
+                OsmIdIndex.writeIndex(rebuilt);
+                assertArrayEquals(Files.readAllBytes(rebuilt.resolve(OsmIdIndex.INDEX_FILE)),
+                        Files.readAllBytes(directory.resolve(OsmIdIndex.INDEX_FILE)));
+            } finally {
+                deleteDirectory(rebuilt);
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    void partialIndexIsDeletedWhenItCannotBeMoved() throws IOException {
+        var rng = newRandom();
+        long[] ids = randomOsmIds(rng, 10_000);
+        Path directory = directoryWith(ids);
+        //Un répertoire non vide à la place de l'index empêche de le remplacer
+        Path blocking = Files.createDirectory(directory.resolve(OsmIdIndex.INDEX_FILE));
+        Files.write(blocking.resolve("file"), new byte[1]);
+        try {
+            assertIndexWorks(OsmIdIndex.mapped(directory), ids, rng);
+            try (var files = Files.list(directory)) {
+                assertEquals(Set.of(directory.resolve(OsmIdIndex.IDS_FILE), blocking),
+                        Set.copyOf(files.toList()));
+            }
+        } finally {
+            deleteDirectory(blocking);
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    void indexReadFromStreamWorks() throws IOException {
+        var rng = newRandom();
+        long[] ids = randomOsmIds(rng, 20_000);
+        assertIndexWorks(OsmIdIndex.of(new ByteArrayInputStream(bytesOf(ids))), ids, rng);
+        assertIndexWorks(OsmIdIndex.of(new ByteArrayInputStream(bytesOf(new long[]{42}))), new long[]{42}, rng);
+        assertEquals(-1, OsmIdIndex.of(new ByteArrayInputStream(new byte[0])).nodeIdOf(42));
+        assertNull(OsmIdIndex.of(null));
+    }
+
+    @Test
+    void indexIsMissingWithoutIdsFile() throws IOException {
+        Path directory = Files.createTempDirectory("javelo");
+        try {
+            assertNull(OsmIdIndex.mapped(directory));
+        } finally {
+            Files.delete(directory);
+        }
+        Graph graph = TestGraphs.grid(2, 2, 10);
+        assertThrows(UnsupportedOperationException.class, () -> graph.osmIdOf(0));
+        assertThrows(UnsupportedOperationException.class, () -> graph.nodeIdOfOsm(0));
+    }
+
+    @Test
+    void writeIndexThrowsOnInvalidOsmId() throws IOException {
+        Path directory = directoryWith(new long[]{1, -5, 3});
+        try {
+            assertThrows(IllegalArgumentException.class, () -> OsmIdIndex.writeIndex(directory));
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Compare la durée d'un million de recherches dans l'index de 5 millions de nœuds à celle de recherches
+     * dichotomiques dans un tableau trié, en mémoire.
+     */
+    public static void main(String[] args) throws IOException {
+        var rng = newRandom();
+        long[] ids = randomOsmIds(rng, 5_000_000);
+        long[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        long[] queries = new long[1_000_000];
+        for (int i = 0; i < queries.length; i++) queries[i] = ids[rng.nextInt(ids.length)];
+
+        Path directory = directoryWith(ids);
+        long t0 = System.nanoTime();
+        OsmIdIndex index = OsmIdIndex.mapped(directory);
+        index.nodeIdOf(0);
+        System.out.printf("construction de l'index : %d ms%n", (System.nanoTime() - t0) / 1_000_000);
+        for (int round = 0; round < 5; round++) {
+            long t1 = System.nanoTime();
+            long sum = 0;
+            for (long query : queries) sum += index.nodeIdOf(query);
+            long t2 = System.nanoTime();
+            for (long query : queries) sum += Arrays.binarySearch(sorted, query);
+            long t3 = System.nanoTime();
+            System.out.printf("index : %d ms, tableau en mémoire : %d ms (%d)%n",
+                    (t2 - t1) / 1_000_000, (t3 - t2) / 1_000_000, sum);
+        }
+        deleteDirectory(directory);
+    }
+}
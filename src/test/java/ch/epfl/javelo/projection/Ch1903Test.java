@@ -6,7 +6,9 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 
+import static ch.epfl.test.TestRandomizer.newRandom;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class Ch1903Test {
     private static final double DELTA = 1e-7;
@@ -119,4 +121,30 @@ class Ch1903Test {
         var expected6 = 0.8037508202024347;
         assertEquals(expected6, actual6, DELTA);
     }
+
+    @Test
+    public void toENWorksLikeEAndN() {
+        var rng = newRandom();
+        int count = 1000;
+        double[] lons = new double[count + 3], lats = new double[count + 3];
+        for (int i = 0; i < lons.length; i++) {
+            lons[i] = rng.nextDouble(5.8, 10.6);
+            lats[i] = rng.nextDouble(45.7, 47.9);
+        }
+        double[] es = new double[count], ns = new double[count];
+        Ch1903.toEN(lons, lats, es, ns, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(Ch1903.e(Math.toRadians(lons[i]), Math.toRadians(lats[i])), es[i], DELTA);
+            assertEquals(Ch1903.n(Math.toRadians(lons[i]), Math.toRadians(lats[i])), ns[i], DELTA);
+        }
+
+        //Conversion en place
+        double[] expectedE = es.clone(), expectedN = ns.clone();
+        Ch1903.toEN(lons, lats, lons, lats, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(expectedE[i], lons[i]);
+            assertEquals(expectedN[i], lats[i]);
+        }
+        assertThrows(IllegalArgumentException.class, () -> Ch1903.toEN(lons, lats, es, ns, count + 1));
+    }
 }
@@ -0,0 +1,87 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.test.TestGraphs;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlternativeRouteComputerTest {
+
+    private static long undirectedEdge(Edge edge) {
+        return ((long) Math.min(edge.fromNodeId(), edge.toNodeId()) << 32) | Math.max(edge.fromNodeId(), edge.toNodeId());
+    }
+
+    private static List<Integer> nodeIds(Route route) {
+        return route.edges().stream().map(Edge::fromNodeId).toList();
+    }
+
+    @Test
+    void alternativeRouteComputerConstructorThrowsOnInvalidBounds() {
+        Graph graph = TestGraphs.grid(3, 3, 100);
+        CostFunction cf = new CityBikeCF(graph);
+        assertThrows(IllegalArgumentException.class, () -> new AlternativeRouteComputer(graph, cf, -0.1, 1.5));
+        assertThrows(IllegalArgumentException.class, () -> new AlternativeRouteComputer(graph, cf, 1.1, 1.5));
+        assertThrows(IllegalArgumentException.class, () -> new AlternativeRouteComputer(graph, cf, 0.5, 0.9));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AlternativeRouteComputer(graph, cf, 0.5, 1.5).routesBetween(0, 8, 0));
+    }
+
+    @Test
+    void alternativeRouteComputerReturnsBestRouteFirst() {
+        Graph graph = TestGraphs.grid(6, 6, 100);
+        CostFunction cf = new CityBikeCF(graph);
+        List<Route> routes = new AlternativeRouteComputer(graph, cf, 0.5, 1.5).routesBetween(0, 35, 3);
+        Route best = new RouteComputer(graph, cf).bestRouteBetween(0, 35);
+        assertEquals(best.length(), routes.get(0).length());
+        assertEquals(1, new AlternativeRouteComputer(graph, cf, 0.5, 1.5).routesBetween(0, 35, 1).size());
+    }
+
+    @Test
+    void alternativeRoutesRespectOverlapAndStretchBounds() {
+        Graph graph = TestGraphs.grid(6, 6, 100);
+        double maxOverlap = 0.5, maxStretch = 1.5;
+        List<Route> routes = new AlternativeRouteComputer(graph, new CityBikeCF(graph), maxOverlap, maxStretch)
+                .routesBetween(0, 35, 3);
+        assertEquals(3, routes.size());
+
+        Set<Long> usedEdges = new HashSet<>();
+        for (Route route : routes) {
+            assertEquals(graph.nodePoint(0), route.pointAt(0));
+            assertEquals(graph.nodePoint(35), route.pointAt(route.length()));
+            assertTrue(route.length() <= maxStretch * routes.get(0).length());
+
+            double sharedLength = 0;
+            for (Edge edge : route.edges())
+                if (usedEdges.contains(undirectedEdge(edge))) sharedLength += edge.length();
+            assertTrue(sharedLength <= maxOverlap * route.length());
+            for (Edge edge : route.edges()) usedEdges.add(undirectedEdge(edge));
+        }
+    }
+
+    @Test
+    void alternativeRoutesAreDistinctWhenOverlapIsUnbounded() {
+        //Seuls deux itinéraires sans détour relient les coins opposés d'une grille 2×2
+        Graph graph = TestGraphs.grid(2, 2, 100);
+        List<Route> routes = new AlternativeRouteComputer(graph, new CityBikeCF(graph), 1, 1.5).routesBetween(0, 3, 5);
+        assertEquals(2, routes.size());
+        assertNotEquals(nodeIds(routes.get(0)), nodeIds(routes.get(1)));
+
+        Graph largerGraph = TestGraphs.grid(4, 4, 100);
+        List<Route> largerRoutes = new AlternativeRouteComputer(largerGraph, new CityBikeCF(largerGraph), 1, 1.5)
+                .routesBetween(0, 15, 10);
+        Set<List<Integer>> distinctRoutes = new HashSet<>();
+        for (Route route : largerRoutes) assertTrue(distinctRoutes.add(nodeIds(route)));
+    }
+
+    @Test
+    void alternativeRouteComputerReturnsEmptyListForUnreachableNodes() {
+        Graph graph = TestGraphs.grid(3, 3, 100);
+        CostFunction cf = (nodeId, edgeId) -> graph.edgeTargetNodeId(edgeId) == 8 ? Double.POSITIVE_INFINITY : 1;
+        assertEquals(List.of(), new AlternativeRouteComputer(graph, cf, 0.5, 1.5).routesBetween(0, 8, 3));
+    }
+}
@@ -0,0 +1,63 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.test.TestGraphs;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CostProfilesTest {
+
+    //Profil évitant la rangée de nœuds y = 0, sauf le long du bord ouest de la grille
+    private static CostFunction avoidingSouthRow(Graph graph) {
+        return (nodeId, edgeId) -> {
+            int target = graph.edgeTargetNodeId(edgeId);
+            return (nodeId < 6 && target < 6 && nodeId != 0) || (nodeId == 0 && target == 1) ? 10 : 1;
+        };
+    }
+
+    @Test
+    void costProfilesConstructorThrowsOnEmptyProfiles() {
+        Graph graph = TestGraphs.grid(3, 3, 100);
+        assertThrows(IllegalArgumentException.class, () -> new CostProfiles(graph, Map.of()));
+    }
+
+    @Test
+    void costProfilesGetThrowsOnUnknownName() {
+        Graph graph = TestGraphs.grid(3, 3, 100);
+        CostProfiles profiles = new CostProfiles(graph, Map.of("city", new CityBikeCF(graph)));
+        assertEquals(Set.of("city"), profiles.names());
+        assertThrows(IllegalArgumentException.class, () -> profiles.get("road"));
+    }
+
+    @Test
+    void costProfilesUsesCostTablesAsIs() {
+        Graph graph = TestGraphs.grid(3, 3, 100);
+        CostTable table = CostTable.of(graph, new CityBikeCF(graph));
+        CostProfiles profiles = new CostProfiles(graph, Map.of("city", table));
+        assertSame(table, profiles.get("city"));
+    }
+
+    @Test
+    void routeComputerSelectsCostProfilePerRequest() {
+        Graph graph = TestGraphs.grid(6, 6, 100);
+        CostProfiles profiles = new CostProfiles(graph, Map.of(
+                "plain", (nodeId, edgeId) -> 1,
+                "avoiding", avoidingSouthRow(graph)));
+        RouteComputer routeComputer = new RouteComputer(graph, profiles.get("plain"));
+
+        Route plain = routeComputer.bestRouteBetween(0, 5);
+        Route avoiding = routeComputer.bestRouteBetween(0, 5, profiles.get("avoiding"));
+        assertEquals(500, plain.length());
+        assertEquals(700, avoiding.length());
+
+        //Les recherches successives partagent leurs tableaux sans s'influencer
+        Route dedicated = new RouteComputer(graph, profiles.get("avoiding")).bestRouteBetween(0, 5);
+        assertEquals(dedicated.length(), avoiding.length());
+        assertEquals(dedicated.points(), avoiding.points());
+        assertEquals(plain.points(), routeComputer.bestRouteBetween(0, 5).points());
+    }
+}
@@ -0,0 +1,72 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.test.TestGraphs;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CostTableTest {
+
+    @Test
+    void costTableContainsCostFactorOfEveryEdge() {
+        Graph graph = TestGraphs.grid(5, 4, 100);
+        CostFunction costFunction = (nodeId, edgeId) -> 1 + nodeId + edgeId / 100.0;
+        CostTable table = CostTable.of(graph, costFunction);
+
+        assertEquals(graph.edgeCount(), table.size());
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+            for (int i = 0; i < graph.nodeOutDegree(nodeId); i++) {
+                int edgeId = graph.nodeOutEdgeId(nodeId, i);
+                assertEquals((float) costFunction.costFactor(nodeId, edgeId), table.costFactor(nodeId, edgeId));
+            }
+        }
+    }
+
+    @Test
+    void costTableIsEqualAfterWriteAndLoad() throws IOException {
+        Graph graph = TestGraphs.grid(5, 4, 100);
+        CostTable table = CostTable.of(graph, new CityBikeCF(graph));
+        Path file = Files.createTempFile("costs", ".bin");
+        try {
+            table.writeTo(file);
+            assertEquals(Float.BYTES * (long) graph.edgeCount(), Files.size(file));
+            CostTable loaded = CostTable.loadFrom(file, graph);
+            assertEquals(table.size(), loaded.size());
+            for (int edgeId = 0; edgeId < table.size(); edgeId++)
+                assertEquals(table.costFactor(0, edgeId), loaded.costFactor(0, edgeId));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void costTableLoadFromThrowsOnTableOfAnotherGraph() throws IOException {
+        Graph graph = TestGraphs.grid(5, 4, 100);
+        Path file = Files.createTempFile("costs", ".bin");
+        try {
+            CostTable.of(graph, new CityBikeCF(graph)).writeTo(file);
+            assertThrows(IllegalArgumentException.class, () -> CostTable.loadFrom(file, TestGraphs.grid(5, 5, 100)));
+            assertThrows(IllegalArgumentException.class, () -> CostTable.loadFrom(file, TestGraphs.grid(4, 4, 100)));
+            Files.write(file, new byte[Float.BYTES * graph.edgeCount() + 1]);
+            assertThrows(IllegalArgumentException.class, () -> CostTable.loadFrom(file, graph));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void routeComputerFindsRouteOfSameLengthWithCostTable() {
+        Graph graph = TestGraphs.grid(6, 6, 100);
+        CostFunction costFunction = new CityBikeCF(graph);
+        Route expected = new RouteComputer(graph, costFunction).bestRouteBetween(0, 35);
+        Route actual = new RouteComputer(graph, CostTable.of(graph, costFunction)).bestRouteBetween(0, 35);
+        //Les facteurs étant arrondis en float, seul le coût des itinéraires, et non leur tracé, est garanti identique
+        assertEquals(expected.length(), actual.length());
+        assertEquals(expected.points().get(0), actual.points().get(0));
+    }
+}
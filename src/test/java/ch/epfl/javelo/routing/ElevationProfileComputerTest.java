@@ -1,14 +1,19 @@
 package ch.epfl.javelo.routing;
 
 import ch.epfl.javelo.Functions;
+import ch.epfl.javelo.Math2;
 import ch.epfl.javelo.projection.PointCh;
 import ch.epfl.javelo.projection.SwissBounds;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.DoubleUnaryOperator;
+import java.util.random.RandomGenerator;
 
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static ch.epfl.test.TestRoutes.randomRoute;
 import static org.junit.jupiter.api.Assertions.*;
 
 class ElevationProfileComputerTest {
@@ -102,4 +107,103 @@ class ElevationProfileComputerTest {
         assertEquals(expected2.maxElevation(), elevationProfile2.maxElevation());
 
     }
-}
\ No newline at end of file
+
+    //Profil calculé échantillon par échantillon avec Route.elevationAt, comme avant l'échantillonnage en une passe
+    private static float[] samplesByElevationAt(Route route, double maxStepLength) {
+        float[] samples = new float[(int) Math.ceil(route.length() / maxStepLength) + 1];
+        double stepLength = route.length() / (samples.length - 1.0);
+        for (int i = 0; i < samples.length; i++) samples[i] = (float) route.elevationAt(i * stepLength);
+        ElevationProfileComputer.fillNaN(samples);
+        return samples;
+    }
+
+    @Test
+    void elevationProfileIsEqualToProfileSampledWithElevationAt() {
+        var rng = newRandom();
+        for (int iteration = 0; iteration < 50; iteration++) {
+            Route route = randomRoute(rng, 1 + rng.nextInt(5), 1 + rng.nextInt(30), 1 / 3.0);
+            double maxStepLength = 0.5 + rng.nextDouble(10);
+            float[] samples = samplesByElevationAt(route, maxStepLength);
+            ElevationProfile expected = new ElevationProfile(route.length(), samples);
+            ElevationProfile actual = ElevationProfileComputer.elevationProfile(route, maxStepLength);
+            double stepLength = route.length() / (samples.length - 1.0);
+            for (int i = 0; i < samples.length; i++)
+                assertEquals(expected.elevationAt(i * stepLength), actual.elevationAt(i * stepLength));
+        }
+    }
+
+    //Remplissage des NaN tel qu'il était fait avant, en recherchant la fin de chaque suite de NaN à partir de son début
+    private static void fillNaNByRescanning(float[] samples) {
+        int start = 0, end = 0;
+        while (start < samples.length && Float.isNaN(samples[start])) start++;
+        while (end < samples.length && Float.isNaN(samples[samples.length - 1 - end])) end++;
+        if (start == samples.length) {
+            Arrays.fill(samples, 0);
+            return;
+        }
+        Arrays.fill(samples, 0, start, samples[start]);
+        Arrays.fill(samples, samples.length - 1 - end, samples.length, samples[samples.length - 1 - end]);
+        for (int i = 0; i < samples.length; i++) {
+            if (!Float.isNaN(samples[i])) continue;
+            int invalidElements = 1;
+            while (Float.isNaN(samples[i + invalidElements])) invalidElements++;
+            for (int j = 0; j < invalidElements; j++)
+                samples[i + j] = (float) Math2.interpolate(samples[i - 1], samples[i + invalidElements],
+                        (j + 1) / (invalidElements + 1.0));
+        }
+    }
+
+    //Échantillons dont des suites de NaN de longueurs aléatoires, au plus maxRun, remplacent certaines valeurs
+    private static float[] samplesWithNaNRuns(RandomGenerator rng, int length, int maxRun) {
+        float[] samples = new float[length];
+        for (int i = 0; i < length; i++) samples[i] = 400 + rng.nextFloat() * 100;
+        for (int i = 0; i < length; i += 1 + rng.nextInt(2 * maxRun)) {
+            int run = rng.nextInt(maxRun + 1);
+            Arrays.fill(samples, i, Math.min(length, i + run), Float.NaN);
+        }
+        return samples;
+    }
+
+    @Test
+    void fillNaNIsEqualToFillingByRescanning() {
+        var rng = newRandom();
+        for (int iteration = 0; iteration < 1000; iteration++) {
+            float[] samples = samplesWithNaNRuns(rng, 1 + rng.nextInt(200), 1 + rng.nextInt(50));
+            float[] expected = samples.clone();
+            fillNaNByRescanning(expected);
+            ElevationProfileComputer.fillNaN(samples);
+            assertArrayEquals(expected, samples);
+        }
+    }
+
+    /**
+     * Mesure la durée du calcul du profil d'un itinéraire d'environ 5000 km, composé de 20 segments, puis celle du
+     * remplissage des NaN de profils de 10 millions d'échantillons contenant de longues suites de NaN.
+     */
+    public static void main(String[] args) {
+        Route route = randomRoute(newRandom(), 20, 3_300, 1 / 3.0);
+        for (int round = 0; round < 5; round++) {
+            long t0 = System.nanoTime();
+            ElevationProfileComputer.elevationProfile(route, 5);
+            long t1 = System.nanoTime();
+            samplesByElevationAt(route, 5);
+            long t2 = System.nanoTime();
+            System.out.printf("Itinéraire de %.0f km : une passe %d ms, elevationAt %d ms\n",
+                    route.length() / 1000, (t1 - t0) / 1_000_000, (t2 - t1) / 1_000_000);
+        }
+
+        for (int maxRun : new int[]{1_000, 100_000, 5_000_000}) {
+            float[] samples = samplesWithNaNRuns(newRandom(), 10_000_000, maxRun);
+            for (int round = 0; round < 5; round++) {
+                float[] rescanned = samples.clone(), filled = samples.clone();
+                long t0 = System.nanoTime();
+                fillNaNByRescanning(rescanned);
+                long t1 = System.nanoTime();
+                ElevationProfileComputer.fillNaN(filled);
+                long t2 = System.nanoTime();
+                System.out.printf("Suites de NaN d'au plus %d : nouvelle recherche %d ms, une passe %d ms\n",
+                        maxRun, (t1 - t0) / 1_000_000, (t2 - t1) / 1_000_000);
+            }
+        }
+    }
+}
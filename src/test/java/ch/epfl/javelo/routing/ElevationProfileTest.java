@@ -2,6 +2,12 @@ package ch.epfl.javelo.routing;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
 import static org.junit.jupiter.api.Assertions.*;
 
 class ElevationProfileTest {
@@ -44,4 +50,96 @@ class ElevationProfileTest {
         assertEquals(12, new ElevationProfile(12, test2).elevationAt(5));
         assertEquals(4, new ElevationProfile(12, test2).elevationAt(345));
     }
-}
\ No newline at end of file
+
+    @Test
+    void rangeStatisticsWorkOnKnownValues() {
+        float[] test = new float[]{1, 10, 13, 11, 18, 2, 4};
+        ElevationProfile profile = new ElevationProfile(6, test);
+        assertEquals(5.5, profile.minElevation(0.5, 3));
+        assertEquals(13, profile.maxElevation(0.5, 3));
+        assertEquals(7.5, profile.ascent(0.5, 3));
+        assertEquals(2, profile.descent(0.5, 3));
+        assertEquals(12, profile.minElevation(2.5, 2.5));
+        assertEquals(0, profile.ascent(2.5, 2.5));
+        assertEquals(1, profile.minElevation(-10, 100));
+        assertEquals(profile.totalAscent(), profile.ascent(0, 6));
+        assertEquals(profile.totalDescent(), profile.descent(-1, 7));
+        assertThrows(IllegalArgumentException.class, () -> profile.ascent(3, 2));
+    }
+
+    @Test
+    void rangeStatisticsAreEqualToThoseOfAllSamplesInRange() {
+        var rng = newRandom();
+        for (int iteration = 0; iteration < 200; iteration++) {
+            float[] samples = new float[2 + rng.nextInt(300)];
+            for (int i = 0; i < samples.length; i++) samples[i] = 400 + rng.nextFloat() * 1000;
+            double length = 1 + rng.nextDouble(10_000);
+            ElevationProfile profile = new ElevationProfile(length, samples);
+            double spacing = length / (samples.length - 1);
+
+            for (int query = 0; query < 50; query++) {
+                double from = rng.nextDouble(length), to = from + rng.nextDouble(length - from);
+                if (rng.nextInt(4) == 0) from = Math.floor(from / spacing) * spacing;
+
+                //Altitudes de début, des échantillons intermédiaires et de fin
+                List<Double> elevations = new ArrayList<>(List.of(profile.elevationAt(from)));
+                for (int i = 0; i < samples.length; i++) {
+                    if (from < i * spacing && i * spacing < to) elevations.add((double) samples[i]);
+                }
+                elevations.add(profile.elevationAt(to));
+
+                double ascent = 0, descent = 0;
+                for (int i = 1; i < elevations.size(); i++) {
+                    ascent += Math.max(0, elevations.get(i) - elevations.get(i - 1));
+                    descent += Math.max(0, elevations.get(i - 1) - elevations.get(i));
+                }
+                assertEquals(Collections.min(elevations), profile.minElevation(from, to), 1e-3);
+                assertEquals(Collections.max(elevations), profile.maxElevation(from, to), 1e-3);
+                assertEquals(ascent, profile.ascent(from, to), 1e-3);
+                assertEquals(descent, profile.descent(from, to), 1e-3);
+            }
+        }
+    }
+
+    @Test
+    void elevationsAtIsEqualToElevationAtForAllPositions() {
+        var rng = newRandom();
+        float[] samples = new float[1 + rng.nextInt(1000)];
+        for (int i = 0; i < samples.length; i++) samples[i] = 400 + rng.nextFloat() * 1000;
+        ElevationProfile profile = new ElevationProfile(5_000, Arrays.copyOf(samples, samples.length + 1));
+
+        double[] positions = new double[10_000];
+        for (int i = 0; i < positions.length; i++) positions[i] = rng.nextDouble(-100, 5_100);
+        float[] floatElevations = new float[positions.length + 5];
+        double[] elevations = new double[positions.length];
+        profile.elevationsAt(positions, floatElevations);
+        profile.elevationsAt(positions, elevations);
+        for (int i = 0; i < positions.length; i++) {
+            assertEquals(profile.elevationAt(positions[i]), elevations[i]);
+            assertEquals((float) profile.elevationAt(positions[i]), floatElevations[i]);
+        }
+        assertThrows(IllegalArgumentException.class, () -> profile.elevationsAt(positions, new float[10]));
+    }
+
+    @Test
+    void extremaBetweenKeepsPeaksNarrowerThanBuckets() {
+        float[] samples = new float[10_001];
+        Arrays.fill(samples, 500);
+        samples[1234] = 900;
+        samples[8765] = 100;
+        ElevationProfile profile = new ElevationProfile(10_000, samples);
+
+        float[] mins = new float[7], maxs = new float[7];
+        profile.extremaBetween(0, 10_000, mins, maxs);
+        for (int i = 0; i < mins.length; i++) {
+            double from = i * 10_000 / 7.0, to = (i + 1) * 10_000 / 7.0;
+            assertEquals(profile.minElevation(from, to), mins[i], 1e-3);
+            assertEquals(profile.maxElevation(from, to), maxs[i], 1e-3);
+        }
+        assertEquals(900, maxs[0]);
+        assertEquals(100, mins[6]);
+        assertEquals(500, mins[3]);
+        assertEquals(500, maxs[3]);
+        assertThrows(IllegalArgumentException.class, () -> profile.extremaBetween(0, 10, new float[2], new float[3]));
+    }
+}
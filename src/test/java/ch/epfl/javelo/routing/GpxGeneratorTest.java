@@ -1,14 +1,71 @@
 package ch.epfl.javelo.routing;
 
 import ch.epfl.javelo.data.Graph;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
 
-import java.io.IOException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.FileWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Objects;
 
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static ch.epfl.test.TestRoutes.randomRoute;
+import static org.junit.jupiter.api.Assertions.*;
+
 class GpxGeneratorTest {
 
-    public static void main(String[] args) throws IOException {
+    //Écriture du document construit par createGpx, comme le faisait writeGpx avant l'écriture en flot
+    private static void writeDocument(Document doc, Writer writer) throws TransformerException {
+        Transformer transformer = TransformerFactory.newDefaultInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        transformer.transform(new DOMSource(doc), new StreamResult(writer));
+    }
+
+    @Test
+    void writeGpxWritesTheSameBytesAsTheDocument() throws Exception {
+        var rng = newRandom();
+        for (int iteration = 0; iteration < 20; iteration++) {
+            Route route = randomRoute(rng, 1 + rng.nextInt(4), 1 + rng.nextInt(50), 0.25);
+            ElevationProfile profile = ElevationProfileComputer.elevationProfile(route, 5);
+
+            StringWriter expected = new StringWriter();
+            writeDocument(GpxGenerator.createGpx(route, profile), expected);
+            StringWriter actual = new StringWriter();
+            GpxGenerator.writeGpx(actual, route, profile);
+            assertEquals(expected.toString(), actual.toString());
+        }
+    }
+
+    /**
+     * Compare la durée de l'écriture en flot d'un itinéraire d'environ 100 000 arêtes à celle de la construction puis
+     * de l'écriture de son document, puis écrit l'itinéraire entre deux nœuds du graphe de Lausanne.
+     */
+    public static void main(String[] args) throws Exception {
+        Route longRoute = randomRoute(newRandom(), 10, 10_000, 0.25);
+        ElevationProfile longProfile = ElevationProfileComputer.elevationProfile(longRoute, 5);
+        Path file = Files.createTempFile("javelo", ".gpx");
+        for (int round = 0; round < 5; round++) {
+            long t0 = System.nanoTime();
+            try (Writer w = new FileWriter(file.toString())) {
+                writeDocument(GpxGenerator.createGpx(longRoute, longProfile), w);
+            }
+            long t1 = System.nanoTime();
+            GpxGenerator.writeGpx(file, longRoute, longProfile);
+            long t2 = System.nanoTime();
+            System.out.printf("%d arêtes : document %d ms, flot %d ms%n",
+                    longRoute.edges().size(), (t1 - t0) / 1_000_000, (t2 - t1) / 1_000_000);
+        }
+        Files.delete(file);
+
         Graph graph = Graph.loadFrom("lausanne");
         CostFunction cf = new CityBikeCF(graph);
         RouteComputer rc = new RouteComputer(graph, cf);
@@ -17,5 +74,4 @@ class GpxGeneratorTest {
 
         GpxGenerator.writeGpx(Path.of("./route.gpx"), r, profile);
     }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,174 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Functions;
+import ch.epfl.javelo.projection.PointCh;
+import ch.epfl.javelo.projection.SwissBounds;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+class GpxReaderTest {
+
+    private static InputStream streamOf(String gpx) {
+        return new ByteArrayInputStream(gpx.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void readGpxReadsRoutesWrittenByGpxGenerator() throws IOException {
+        var rng = newRandom();
+        List<Edge> edges = new ArrayList<>();
+        PointCh from = new PointCh(SwissBounds.MIN_E + 100_000, SwissBounds.MIN_N + 100_000);
+        for (int i = 0; i < 100; i++) {
+            PointCh to = new PointCh(from.e() + rng.nextDouble(-200, 200), from.n() + rng.nextDouble(-200, 200));
+            edges.add(new Edge(i, i + 1, from, to, from.distanceTo(to),
+                    Functions.sampled(new float[]{500 + i, 501 + i}, from.distanceTo(to))));
+            from = to;
+        }
+        Route route = new SingleRoute(edges);
+        ElevationProfile profile = ElevationProfileComputer.elevationProfile(route, 5);
+        StringWriter gpx = new StringWriter();
+        GpxGenerator.writeGpx(gpx, route, profile);
+
+        GpxTrack track = GpxReader.readGpx(streamOf(gpx.toString()));
+        assertTrue(track.isRoute());
+        assertEquals(route.points().size(), track.size());
+        for (int i = 0; i < track.size(); i++) {
+            //Les formules de conversion de Ch1903 n'étant qu'approximativement inverses l'une de l'autre
+            assertEquals(0, route.points().get(i).distanceTo(track.pointAt(i)), 2);
+        }
+        assertEquals((float) route.elevationAt(0), track.elevation(0));
+        assertEquals((float) profile.elevationAt(route.length()), track.elevation(track.size() - 1));
+    }
+
+    @Test
+    void readGpxPrefersTrackPointsAndHandlesMissingElevations() throws IOException {
+        String gpx = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <gpx xmlns="http://www.topografix.com/GPX/1/1" version="1.1">
+                  <wpt lat="46.5" lon="6.6"><ele>999</ele></wpt>
+                  <rte><rtept lat="46.0" lon="7.0"/></rte>
+                  <trk>
+                    <trkseg>
+                      <trkpt lat="46.5" lon="6.6"><ele> 372.5 </ele><time>2022-05-01T10:00:00Z</time></trkpt>
+                      <trkpt lat="46.51" lon="6.61"></trkpt>
+                    </trkseg>
+                    <trkseg>
+                      <trkpt lat="46.52" lon="6.62"><ele>380</ele></trkpt>
+                    </trkseg>
+                  </trk>
+                </gpx>
+                """;
+        GpxTrack track = GpxReader.readGpx(streamOf(gpx));
+        assertFalse(track.isRoute());
+        assertEquals(3, track.size());
+        assertEquals(372.5, track.elevation(0));
+        assertTrue(Double.isNaN(track.elevation(1)));
+        assertEquals(380, track.elevation(2));
+        assertTrue(track.e(0) < track.e(1) && track.n(0) < track.n(1));
+    }
+
+    @Test
+    void readGpxReturnsNullPointsOutsideSwitzerland() throws IOException {
+        GpxTrack track = GpxReader.readGpx(streamOf(
+                "<gpx><rte><rtept lat=\"48.85\" lon=\"2.35\"/><rtept lat=\"46.5\" lon=\"6.6\"/></rte></gpx>"));
+        assertNull(track.pointAt(0));
+        assertNotNull(track.pointAt(1));
+    }
+
+    @Test
+    void readGpxThrowsOnInvalidDocuments() {
+        assertThrows(IOException.class, () -> GpxReader.readGpx(streamOf("<gpx><trk><trkpt lat=\"46\"/></trk></gpx>")));
+        assertThrows(IOException.class, () -> GpxReader.readGpx(streamOf("<gpx><trk><trkpt lat=\"a\" lon=\"7\"/>")));
+        assertThrows(IOException.class, () -> GpxReader.readGpx(streamOf("<gpx><trk></gpx>")));
+    }
+
+    @Test
+    void simplifiedKeepsAllPointsFartherThanTolerance() {
+        var rng = newRandom();
+        for (int iteration = 0; iteration < 20; iteration++) {
+            int size = 1 + rng.nextInt(500);
+            double[] es = new double[size], ns = new double[size];
+            for (int i = 1; i < size; i++) {
+                es[i] = es[i - 1] + rng.nextDouble(-10, 30);
+                ns[i] = ns[i - 1] + rng.nextDouble(-20, 20);
+            }
+            GpxTrack track = new GpxTrack(es, ns, new float[size], false);
+            double tolerance = rng.nextDouble(50);
+            int[] kept = track.simplified(tolerance);
+
+            assertEquals(0, kept[0]);
+            assertEquals(size - 1, kept[kept.length - 1]);
+            for (int k = 0; k < kept.length - 1; k++) {
+                PointCh a = new PointCh(SwissBounds.MIN_E + 10_000 + es[kept[k]], SwissBounds.MIN_N + 20_000 + ns[kept[k]]);
+                PointCh b = new PointCh(SwissBounds.MIN_E + 10_000 + es[kept[k + 1]], SwissBounds.MIN_N + 20_000 + ns[kept[k + 1]]);
+                Edge segment = new Edge(0, 1, a, b, a.distanceTo(b), Functions.constant(Double.NaN));
+                for (int i = kept[k] + 1; i < kept[k + 1]; i++) {
+                    PointCh p = new PointCh(SwissBounds.MIN_E + 10_000 + es[i], SwissBounds.MIN_N + 20_000 + ns[i]);
+                    double position = Math.max(0, Math.min(segment.length(), segment.positionClosestTo(p)));
+                    assertTrue(segment.pointAt(position).distanceTo(p) <= tolerance + 1e-6);
+                }
+            }
+        }
+        assertArrayEquals(new int[]{0}, new GpxTrack(new double[1], new double[1], new float[1], false).simplified(1));
+    }
+
+    @Test
+    void simplifiedDoublesToleranceUntilAtMostMaxCountPointsAreKept() {
+        var rng = newRandom();
+        int size = 20_000;
+        double[] es = new double[size], ns = new double[size];
+        for (int i = 1; i < size; i++) {
+            es[i] = es[i - 1] + rng.nextDouble(-10, 30);
+            ns[i] = ns[i - 1] + rng.nextDouble(-20, 20);
+        }
+        GpxTrack track = new GpxTrack(es, ns, new float[size], false);
+        assertTrue(track.simplified(50).length > 100);
+
+        int[] kept = track.simplified(50, 100);
+        assertTrue(kept.length <= 100);
+        double tolerance = 50;
+        while (track.simplified(tolerance).length > 100) tolerance *= 2;
+        assertArrayEquals(track.simplified(tolerance), kept);
+        assertTrue(track.simplified(tolerance / 2).length > 100);
+
+        assertArrayEquals(track.simplified(50), track.simplified(50, size));
+        assertThrows(IllegalArgumentException.class, () -> track.simplified(0, 100));
+        assertThrows(IllegalArgumentException.class, () -> track.simplified(50, 1));
+    }
+
+    /**
+     * Mesure la durée de la lecture d'une trace d'un million de points, écrite dans un fichier temporaire.
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = Files.createTempFile("javelo", ".gpx");
+        var rng = newRandom();
+        try (Writer w = Files.newBufferedWriter(file)) {
+            w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<gpx version=\"1.1\"><trk><trkseg>\n");
+            for (int i = 0; i < 1_000_000; i++) {
+                w.write("<trkpt lat=\"" + rng.nextDouble(46, 47) + "\" lon=\"" + rng.nextDouble(6.5, 9.5) + "\">"
+                        + "<ele>" + rng.nextDouble(300, 3000) + "</ele><time>2022-05-01T10:00:00Z</time></trkpt>\n");
+            }
+            w.write("</trkseg></trk></gpx>\n");
+        }
+        for (int round = 0; round < 5; round++) {
+            long t0 = System.nanoTime();
+            GpxTrack track = GpxReader.readGpx(file);
+            long t1 = System.nanoTime();
+            System.out.printf("%d points, %d Mo : %d ms%n",
+                    track.size(), Files.size(file) >> 20, (t1 - t0) / 1_000_000);
+        }
+        Files.delete(file);
+    }
+}
@@ -0,0 +1,198 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.projection.SwissBounds;
+import ch.epfl.test.TestGraphs;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapMatcherTest {
+
+    //Grille tenant dans le secteur 0, le seul dans lequel TestGraphs.grid place des nœuds
+    private static final int WIDTH = 17, HEIGHT = 17, SPACING = 100;
+
+    private static int node(int x, int y) {
+        return y * WIDTH + x;
+    }
+
+    private static double e(int nodeId) {
+        return SwissBounds.MIN_E + (nodeId % WIDTH) * SPACING;
+    }
+
+    private static double n(int nodeId) {
+        return SwissBounds.MIN_N + (nodeId / WIDTH) * SPACING;
+    }
+
+    //Trace bruitée suivant les nœuds donnés, du milieu de la première arête au milieu de la dernière
+    private static GpxTrack noisyTrace(RandomGenerator rng, int[] nodes, double step, double noise) {
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < nodes.length - 1; i++) {
+            double from = i == 0 ? 0.5 : 0, to = i == nodes.length - 2 ? 0.5 : 1;
+            for (double t = from; t < to; t += step / SPACING) {
+                points.add(new double[]{
+                        e(nodes[i]) + t * (e(nodes[i + 1]) - e(nodes[i])) + rng.nextDouble(-noise, noise),
+                        n(nodes[i]) + t * (n(nodes[i + 1]) - n(nodes[i])) + rng.nextDouble(-noise, noise)});
+            }
+        }
+        return trackOf(points);
+    }
+
+    private static GpxTrack trackOf(List<double[]> points) {
+        double[] es = new double[points.size()], ns = new double[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            es[i] = points.get(i)[0];
+            ns[i] = points.get(i)[1];
+        }
+        float[] elevations = new float[points.size()];
+        Arrays.fill(elevations, Float.NaN);
+        return new GpxTrack(es, ns, elevations, false);
+    }
+
+    private static int[] nodesOf(Route route) {
+        List<Edge> edges = route.edges();
+        int[] nodes = new int[edges.size() + 1];
+        nodes[0] = edges.get(0).fromNodeId();
+        for (int i = 0; i < edges.size(); i++) {
+            assertEquals(nodes[i], edges.get(i).fromNodeId());
+            nodes[i + 1] = edges.get(i).toNodeId();
+        }
+        return nodes;
+    }
+
+    private static int[] lPath() {
+        List<Integer> nodes = new ArrayList<>();
+        for (int x = 2; x <= 10; x++) nodes.add(node(x, 2));
+        for (int y = 3; y <= 12; y++) nodes.add(node(10, y));
+        return nodes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Test
+    void matchFollowsNoisyTraceAlongKnownPath() {
+        Graph graph = TestGraphs.grid(WIDTH, HEIGHT, SPACING);
+        MapMatcher matcher = new MapMatcher(graph, (nodeId, edgeId) -> 1);
+        int[] path = lPath();
+        var rng = newRandom();
+        for (int i = 0; i < 20; i++) {
+            Route route = matcher.match(noisyTrace(rng, path, 15, 8));
+            assertArrayEquals(path, nodesOf(route));
+        }
+    }
+
+    @Test
+    void matchIgnoresPointsOutsideSwitzerlandOrFarFromTheGraph() {
+        Graph graph = TestGraphs.grid(WIDTH, HEIGHT, SPACING);
+        MapMatcher matcher = new MapMatcher(graph, (nodeId, edgeId) -> 1);
+        int[] path = lPath();
+        GpxTrack trace = noisyTrace(newRandom(), path, 15, 5);
+
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < trace.size(); i++) {
+            points.add(new double[]{trace.e(i), trace.n(i)});
+            if (i == trace.size() / 3) points.add(new double[]{0, 0});
+            if (i == 2 * trace.size() / 3) points.add(new double[]{e(node(WIDTH - 1, 0)) + 5_000, trace.n(i)});
+        }
+        assertArrayEquals(path, nodesOf(matcher.match(trackOf(points))));
+    }
+
+    @Test
+    void matchReturnsNullWhenNoPointCanBeMatched() {
+        Graph graph = TestGraphs.grid(WIDTH, HEIGHT, SPACING);
+        MapMatcher matcher = new MapMatcher(graph, (nodeId, edgeId) -> 1);
+        assertNull(matcher.match(trackOf(List.of())));
+        assertNull(matcher.match(trackOf(List.of(new double[]{0, 0},
+                new double[]{SwissBounds.MIN_E + 50_000, SwissBounds.MIN_N + 50_000}))));
+    }
+
+    @Test
+    void matchAvoidsEdgesWithInfiniteCost() {
+        Graph graph = TestGraphs.grid(WIDTH, HEIGHT, SPACING);
+        int[] path = lPath();
+        //Arête interdite entre (6, 2) et (7, 2), que la trace longe d'un peu plus loin
+        MapMatcher matcher = new MapMatcher(graph, (nodeId, edgeId) ->
+                nodeId == node(6, 2) && graph.edgeTargetNodeId(edgeId) == node(7, 2)
+                        ? Double.POSITIVE_INFINITY : 1);
+        Route route = matcher.match(noisyTrace(newRandom(), path, 15, 3));
+        int[] nodes = nodesOf(route);
+        for (int i = 0; i < nodes.length - 1; i++)
+            assertFalse(nodes[i] == node(6, 2) && nodes[i + 1] == node(7, 2));
+        assertEquals(path[0], nodes[0]);
+        assertEquals(path[path.length - 1], nodes[nodes.length - 1]);
+    }
+
+    @Test
+    void matchFindsLongEdgesFarFromTheirNodes() {
+        //Arêtes de 1 km, dont le milieu est à plus de 300 m de leurs deux extrémités
+        Graph graph = TestGraphs.grid(3, 2, 1000);
+        MapMatcher matcher = new MapMatcher(graph, (nodeId, edgeId) -> 1);
+        var rng = newRandom();
+        List<double[]> eastward = new ArrayList<>(), westward = new ArrayList<>();
+        for (int x = 0; x < 2000; x += 25) {
+            if (x % 1000 < 350 || x % 1000 > 650) continue;
+            eastward.add(new double[]{SwissBounds.MIN_E + x, SwissBounds.MIN_N + rng.nextDouble(-8, 8)});
+            westward.add(0, new double[]{SwissBounds.MIN_E + x, SwissBounds.MIN_N + rng.nextDouble(-8, 8)});
+        }
+        assertArrayEquals(new int[]{0, 1, 2}, nodesOf(matcher.match(trackOf(eastward))));
+        assertArrayEquals(new int[]{2, 1, 0}, nodesOf(matcher.match(trackOf(westward))));
+    }
+
+    @Test
+    void matchAllIsEqualToSequentialMatching() {
+        Graph graph = TestGraphs.grid(WIDTH, HEIGHT, SPACING);
+        MapMatcher matcher = new MapMatcher(graph, (nodeId, edgeId) -> 1);
+        var rng = newRandom();
+        List<GpxTrack> traces = new ArrayList<>();
+        for (int i = 0; i < 50; i++) traces.add(noisyTrace(rng, randomPath(rng, WIDTH, HEIGHT, 30), 15, 8));
+
+        List<Route> parallel = matcher.matchAll(traces);
+        assertEquals(traces.size(), parallel.size());
+        for (int i = 0; i < traces.size(); i++)
+            assertArrayEquals(nodesOf(matcher.match(traces.get(i))), nodesOf(parallel.get(i)));
+    }
+
+    //Chemin aléatoire sur la grille, ne revenant jamais immédiatement sur ses pas
+    private static int[] randomPath(RandomGenerator rng, int width, int height, int edgeCount) {
+        int[] nodes = new int[edgeCount + 1];
+        int x = rng.nextInt(width), y = rng.nextInt(height);
+        int dx = 0, dy = 0;
+        nodes[0] = y * width + x;
+        for (int i = 1; i <= edgeCount; i++) {
+            int ndx, ndy;
+            do {
+                int direction = rng.nextInt(4);
+                ndx = direction == 0 ? 1 : direction == 1 ? -1 : 0;
+                ndy = direction == 2 ? 1 : direction == 3 ? -1 : 0;
+            } while (x + ndx < 0 || x + ndx >= width || y + ndy < 0 || y + ndy >= height
+                    || (ndx == -dx && ndy == -dy && (dx != 0 || dy != 0)));
+            x += ndx;
+            y += ndy;
+            dx = ndx;
+            dy = ndy;
+            nodes[i] = y * width + x;
+        }
+        return nodes;
+    }
+
+    public static void main(String[] args) {
+        Graph graph = TestGraphs.grid(WIDTH, HEIGHT, SPACING);
+        MapMatcher matcher = new MapMatcher(graph, (nodeId, edgeId) -> 1);
+        var rng = newRandom();
+        List<GpxTrack> traces = new ArrayList<>();
+        for (int i = 0; i < 200; i++) traces.add(noisyTrace(rng, randomPath(rng, WIDTH, HEIGHT, 100), 10, 8));
+
+        for (int run = 0; run < 3; run++) {
+            long t0 = System.nanoTime();
+            for (GpxTrack trace : traces) matcher.match(trace);
+            long t1 = System.nanoTime();
+            matcher.matchAll(traces);
+            long t2 = System.nanoTime();
+            System.out.printf("séquentiel: %d ms, parallèle: %d ms%n", (t1 - t0) / 1_000_000, (t2 - t1) / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Attribute;
+import ch.epfl.javelo.data.AttributeSet;
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.data.GraphEdges;
+import ch.epfl.javelo.data.GraphNodes;
+import ch.epfl.javelo.data.GraphSectors;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MemoizedCostFunctionTest {
+
+    @Test
+    void memoizedCostFunctionIsEqualToCityBikeCF() {
+        var rng = newRandom();
+
+        //Ensembles d'attributs contenant entre 1 et 4 attributs aléatoires
+        List<AttributeSet> attributeSets = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Attribute[] attributes = new Attribute[1 + rng.nextInt(4)];
+            for (int j = 0; j < attributes.length; j++)
+                attributes[j] = Attribute.ALL.get(rng.nextInt(Attribute.COUNT));
+            attributeSets.add(AttributeSet.of(attributes));
+        }
+
+        //Arêtes de sens, longueur, dénivelé et attributs aléatoires
+        int edgesCount = RANDOM_ITERATIONS * 10;
+        ByteBuffer edgesBuffer = ByteBuffer.allocate(10 * edgesCount);
+        for (int edgeId = 0; edgeId < edgesCount; edgeId++) {
+            edgesBuffer.putInt(rng.nextBoolean() ? 0 : ~0);
+            edgesBuffer.putShort((short) rng.nextInt(1 << 16));
+            edgesBuffer.putShort((short) rng.nextInt(1 << 12));
+            edgesBuffer.putShort((short) rng.nextInt(attributeSets.size()));
+        }
+        GraphEdges edges = new GraphEdges(edgesBuffer, IntBuffer.allocate(edgesCount), ShortBuffer.allocate(0));
+        Graph graph = new Graph(new GraphNodes(IntBuffer.allocate(0)), new GraphSectors(ByteBuffer.allocate(0)),
+                edges, attributeSets);
+
+        CityBikeCF expected = new CityBikeCF(graph);
+        MemoizedCostFunction actual = new MemoizedCostFunction(graph, expected);
+        for (int edgeId = 0; edgeId < edgesCount; edgeId++)
+            assertEquals(expected.costFactor(0, edgeId), actual.costFactor(0, edgeId));
+    }
+}
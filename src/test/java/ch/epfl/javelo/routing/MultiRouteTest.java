@@ -176,6 +176,30 @@ class MultiRouteTest {
         assertEquals(5, m.indexOfSegmentAt(10000));
     }
 
+    @Test
+    void multiRoutePositionQueriesWorkWithManyNestedRoutes() {
+        var edges = verticalEdges(200);
+        var groups = new ArrayList<Route>();
+        for (int g = 0; g < 20; g += 1) {
+            var routes = new ArrayList<Route>();
+            for (int i = 0; i < 10; i += 1) routes.add(new SingleRoute(List.of(edges.get(10 * g + i))));
+            groups.add(new MultiRoute(routes));
+        }
+        var route = new MultiRoute(groups);
+        assertEquals(200 * EDGE_LENGTH, route.length(), 1e-6);
+        for (int i = 0; i < 200; i += 1) {
+            var middle = (i + 0.5) * EDGE_LENGTH;
+            assertEquals(i, route.indexOfSegmentAt(middle));
+            assertEquals(edges.get(i).pointAt(EDGE_LENGTH / 2).n(), route.pointAt(middle).n(), 1e-6);
+            assertEquals(i, route.nodeClosestTo(middle - EDGE_LENGTH / 4));
+            assertEquals(i + 1, route.nodeClosestTo(middle + EDGE_LENGTH / 4));
+        }
+        //Une position située à la jonction de deux segments appartient au premier
+        assertEquals(0, route.indexOfSegmentAt(EDGE_LENGTH));
+        assertEquals(199, route.indexOfSegmentAt(route.length()));
+        assertEquals(0, route.indexOfSegmentAt(-1));
+    }
+
     @Test
     void multiRouteLengthReturnsTotalLength() {
         for (int i = 1; i < 10; i += 1) {
@@ -219,6 +243,17 @@ class MultiRouteTest {
         assertEquals(edgesCount + 1, route.points().size());
     }
 
+    @Test
+    void multiRouteEdgesAndPointsAreBuiltOnce() {
+        var m1 = new MultiRoute(List.of(new SingleRoute(verticalEdges(3)), new SingleRoute(verticalEdges(2))));
+        var route = new MultiRoute(List.of(m1, new SingleRoute(verticalEdges(4))));
+        assertSame(route.edges(), route.edges());
+        assertSame(route.points(), route.points());
+        assertEquals(9, route.edges().size());
+        assertEquals(10, route.points().size());
+        assertThrows(UnsupportedOperationException.class, () -> route.points().add(route.points().get(0)));
+    }
+
     @Test
     void multiRoutePointsAreCorrect() {
         for (int edgesCount = 1; edgesCount < 10; edgesCount += 1) {
@@ -0,0 +1,125 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.test.TestGraphs;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteCacheTest {
+
+    //Taille estimée d'un itinéraire d'une seule arête
+    private static final long ONE_EDGE_BYTES = 256;
+
+    private static Route route(Graph graph, int startNodeId, int endNodeId) {
+        return new RouteComputer(graph, (nodeId, edgeId) -> 1).bestRouteBetween(startNodeId, endNodeId);
+    }
+
+    @Test
+    void routeCacheReturnsRoutesPutForSameKey() {
+        Graph graph = TestGraphs.grid(4, 4, 100);
+        RouteCache cache = new RouteCache(0, 1 << 20);
+        Route r1 = route(graph, 0, 15), r2 = route(graph, 15, 0);
+        cache.put(0, 15, 0, r1);
+        cache.put(15, 0, 0, r2);
+
+        assertSame(r1, cache.get(0, 15, 0));
+        assertSame(r2, cache.get(15, 0, 0));
+        assertNull(cache.get(0, 15, 1));
+        assertNull(cache.get(0, 14, 0));
+        assertEquals(2, cache.size());
+
+        cache.put(0, 15, 0, r2);
+        assertSame(r2, cache.get(0, 15, 0));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void routeCacheThrowsOnInvalidKeys() {
+        RouteCache cache = new RouteCache(0, 1 << 20);
+        assertThrows(IllegalArgumentException.class, () -> cache.get(-1, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> cache.get(0, 1 << 28, 0));
+        assertThrows(IllegalArgumentException.class, () -> cache.get(0, 1, RouteCache.PROFILES_COUNT));
+        assertThrows(IllegalArgumentException.class, () -> new RouteCache(0, -1));
+    }
+
+    @Test
+    void routeCacheEvictsLeastRecentlyUsedRoutesAfterPut() {
+        Graph graph = TestGraphs.grid(4, 4, 100);
+        RouteCache cache = new RouteCache(0, 3 * ONE_EDGE_BYTES);
+        cache.put(0, 1, 0, route(graph, 0, 1));
+        cache.put(1, 2, 0, route(graph, 1, 2));
+        cache.put(2, 3, 0, route(graph, 2, 3));
+        assertEquals(3 * ONE_EDGE_BYTES, cache.byteSize());
+
+        //Le premier itinéraire étant utilisé, c'est le deuxième qui est évincé
+        assertNotNull(cache.get(0, 1, 0));
+        cache.put(3, 7, 0, route(graph, 3, 7));
+        assertEquals(3, cache.size());
+        assertNull(cache.get(1, 2, 0));
+        assertNotNull(cache.get(0, 1, 0));
+        assertNotNull(cache.get(2, 3, 0));
+        assertNotNull(cache.get(3, 7, 0));
+        assertEquals(1, cache.stats().evictions());
+
+        //Un itinéraire plus grand que le cache n'y est pas ajouté
+        cache.put(0, 15, 0, route(graph, 0, 15));
+        assertNull(cache.get(0, 15, 0));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void routeCacheHandlesManyRoutes() {
+        Graph graph = TestGraphs.grid(10, 10, 100);
+        RouteCache cache = new RouteCache(0, 1000 * ONE_EDGE_BYTES);
+        Route r = route(graph, 0, 1);
+        for (int i = 0; i < 5000; i++) cache.put(i, i + 1, i % 3, r);
+        assertEquals(1000, cache.size());
+        for (int i = 0; i < 5000; i++) {
+            if (i < 4000) assertNull(cache.get(i, i + 1, i % 3));
+            else assertSame(r, cache.get(i, i + 1, i % 3));
+        }
+    }
+
+    @Test
+    void routeCacheStatsCountHitsAndMisses() {
+        Graph graph = TestGraphs.grid(4, 4, 100);
+        RouteCache cache = new RouteCache(0, 1 << 20);
+        assertEquals(0, cache.stats().hitRate());
+        cache.put(0, 5, 0, route(graph, 0, 5));
+        cache.get(0, 5, 0);
+        cache.get(0, 5, 0);
+        cache.get(0, 5, 0);
+        cache.get(5, 0, 0);
+        assertEquals(new RouteCache.Stats(3, 1, 0), cache.stats());
+        assertEquals(0.75, cache.stats().hitRate());
+    }
+
+    @Test
+    void routeCacheIsEqualAfterWriteAndLoad() throws IOException {
+        Graph graph = TestGraphs.grid(5, 5, 100);
+        RouteCache cache = new RouteCache(7, 1 << 20);
+        Route r1 = route(graph, 0, 24), r2 = route(graph, 20, 4);
+        cache.put(0, 24, 0, r1);
+        cache.put(20, 4, 2, r2);
+
+        Path file = Files.createTempFile("route_cache", ".bin");
+        try {
+            cache.writeTo(file, graph);
+            RouteCache loaded = RouteCache.loadFrom(file, graph, 7, 1 << 20);
+            assertEquals(2, loaded.size());
+            assertEquals(r1.points(), loaded.get(0, 24, 0).points());
+            assertEquals(r2.points(), loaded.get(20, 4, 2).points());
+            assertEquals(r2.length(), loaded.get(20, 4, 2).length());
+
+            assertEquals(0, RouteCache.loadFrom(file, graph, 8, 1 << 20).size());
+        } finally {
+            Files.delete(file);
+        }
+        assertEquals(0, RouteCache.loadFrom(file, graph, 7, 1 << 20).size());
+    }
+}
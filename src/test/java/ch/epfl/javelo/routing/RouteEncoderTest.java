@@ -0,0 +1,191 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Functions;
+import ch.epfl.javelo.projection.PointCh;
+import ch.epfl.javelo.projection.SwissBounds;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static ch.epfl.test.TestRoutes.randomRoute;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteEncoderTest {
+
+    //Décodage d'une polyligne encodée dont chaque point a le nombre de dimensions donné
+    private static List<long[]> decode(String polyline, int dimensions) {
+        List<long[]> points = new ArrayList<>();
+        long[] current = new long[dimensions];
+        int index = 0;
+        while (index < polyline.length()) {
+            for (int d = 0; d < dimensions; d++) {
+                long result = 0;
+                int shift = 0, b;
+                do {
+                    b = polyline.charAt(index++) - 63;
+                    result |= (long) (b & 0x1f) << shift;
+                    shift += 5;
+                } while (b >= 0x20);
+                current[d] += (result & 1) != 0 ? ~(result >> 1) : result >> 1;
+            }
+            points.add(current.clone());
+        }
+        return points;
+    }
+
+    private static String polyline(double[] lats, double[] lons, double[] elevations) throws IOException {
+        StringWriter writer = new StringWriter();
+        RouteEncoder.writePolyline(writer, lats, lons, elevations);
+        return writer.toString();
+    }
+
+    @Test
+    void writePolylineWorksOnKnownValues() throws IOException {
+        //Exemple de la documentation de Google
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", polyline(
+                new double[]{38.5, 40.7, 43.252}, new double[]{-120.2, -120.95, -126.453}, null));
+        assertEquals("", polyline(new double[0], new double[0], null));
+        assertEquals("??_ibE", polyline(new double[]{0}, new double[]{0}, new double[]{1000}));
+    }
+
+    @Test
+    void writePolylineThrowsOnArraysOfDifferentSizes() {
+        assertThrows(IllegalArgumentException.class, () -> polyline(new double[2], new double[3], null));
+        assertThrows(IllegalArgumentException.class, () -> polyline(new double[2], new double[2], new double[1]));
+    }
+
+    @Test
+    void encodedPolylineDecodesToRoutePointsAndProfile() {
+        var rng = newRandom();
+        for (int iteration = 0; iteration < 20; iteration++) {
+            Route route = randomRoute(rng, 1, 1 + rng.nextInt(200), 0);
+            ElevationProfile profile = ElevationProfileComputer.elevationProfile(route, 5);
+            List<PointCh> points = route.points();
+
+            List<long[]> flat = decode(RouteEncoder.encodedPolyline(route, null), 2);
+            List<long[]> withElevation = decode(RouteEncoder.encodedPolyline(route, profile), 3);
+            assertEquals(points.size(), flat.size());
+            assertEquals(points.size(), withElevation.size());
+            double position = 0;
+            for (int i = 0; i < points.size(); i++) {
+                if (i > 0) position += route.edges().get(i - 1).length();
+                assertEquals(Math.toDegrees(points.get(i).lat()), flat.get(i)[0] / 1e5, 0.5e-5 + 1e-12);
+                assertEquals(Math.toDegrees(points.get(i).lon()), flat.get(i)[1] / 1e5, 0.5e-5 + 1e-12);
+                assertEquals(flat.get(i)[0], withElevation.get(i)[0]);
+                assertEquals(flat.get(i)[1], withElevation.get(i)[1]);
+                assertEquals(profile.elevationAt(position), withElevation.get(i)[2] / 1e2, 0.5e-2 + 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void writeGeoJsonWritesRoundedCoordinates() throws IOException {
+        var rng = newRandom();
+        Route route = randomRoute(rng, 1, 300, 0);
+        ElevationProfile profile = ElevationProfileComputer.elevationProfile(route, 5);
+        StringWriter json = new StringWriter();
+        RouteEncoder.writeGeoJson(json, route, profile);
+
+        String prefix = "{\"type\":\"Feature\",\"properties\":{\"name\":\"Route JaVelo\"},"
+                + "\"geometry\":{\"type\":\"LineString\",\"coordinates\":[";
+        assertTrue(json.toString().startsWith(prefix));
+        assertTrue(json.toString().endsWith("]]}}"));
+
+        Matcher matcher = Pattern.compile("\\[(-?\\d+(?:\\.\\d*[1-9])?),(-?\\d+(?:\\.\\d*[1-9])?),"
+                + "(-?\\d+(?:\\.\\d*[1-9])?)]").matcher(json.toString());
+        List<PointCh> points = route.points();
+        double position = 0;
+        int i = 0;
+        while (matcher.find()) {
+            if (i > 0) position += route.edges().get(i - 1).length();
+            assertEquals(Math.toDegrees(points.get(i).lon()), Double.parseDouble(matcher.group(1)), 0.5e-5 + 1e-12);
+            assertEquals(Math.toDegrees(points.get(i).lat()), Double.parseDouble(matcher.group(2)), 0.5e-5 + 1e-12);
+            assertEquals(profile.elevationAt(position), Double.parseDouble(matcher.group(3)), 0.5 + 1e-9);
+            i += 1;
+        }
+        assertEquals(points.size(), i);
+    }
+
+    @Test
+    void writeGeoJsonWritesTwoDimensionalCoordinatesWithoutProfile() throws IOException {
+        Route route = randomRoute(newRandom(), 1, 10, 0);
+        StringWriter json = new StringWriter();
+        RouteEncoder.writeGeoJson(json, route, null);
+        assertEquals(route.points().size(),
+                Pattern.compile("\\[\\d+(\\.\\d+)?,\\d+(\\.\\d+)?]").matcher(json.toString()).results().count());
+    }
+
+    @Test
+    void firstElevationIsTheSameAsInGpx() throws IOException {
+        //Première arête sans profil : l'altitude du point de départ est celle, complétée, du profil
+        PointCh a = new PointCh(SwissBounds.MIN_E + 50_000, SwissBounds.MIN_N + 50_000);
+        PointCh b = new PointCh(a.e() + 100, a.n()), c = new PointCh(b.e() + 100, b.n());
+        Route route = new SingleRoute(List.of(
+                new Edge(0, 1, a, b, 100, Functions.constant(Double.NaN)),
+                new Edge(1, 2, b, c, 100, Functions.sampled(new float[]{612, 618}, 100))));
+        ElevationProfile profile = ElevationProfileComputer.elevationProfile(route, 5);
+
+        StringWriter gpx = new StringWriter();
+        GpxGenerator.writeGpx(gpx, route, profile);
+        Matcher gpxElevation = Pattern.compile("<ele>([^<]*)</ele>").matcher(gpx.toString());
+        assertTrue(gpxElevation.find());
+        double expected = Double.parseDouble(gpxElevation.group(1));
+        assertEquals(612, expected);
+
+        assertEquals(expected, decode(RouteEncoder.encodedPolyline(route, profile), 3).get(0)[2] / 1e2);
+        StringWriter json = new StringWriter();
+        RouteEncoder.writeGeoJson(json, route, profile);
+        Matcher jsonElevation = Pattern.compile("\\[[^,\\[]+,[^,]+,([^]]+)]").matcher(json.toString());
+        assertTrue(jsonElevation.find());
+        assertEquals(expected, Double.parseDouble(jsonElevation.group(1)));
+    }
+
+    @Test
+    void encodedFormatsAreMuchSmallerThanGpx() throws IOException {
+        Route route = randomRoute(newRandom(), 1, 1_000, 0);
+        ElevationProfile profile = ElevationProfileComputer.elevationProfile(route, 5);
+        StringWriter gpx = new StringWriter();
+        GpxGenerator.writeGpx(gpx, route, profile);
+        StringWriter json = new StringWriter();
+        RouteEncoder.writeGeoJson(json, route, profile);
+
+        assertTrue(gpx.toString().length() > 5 * RouteEncoder.encodedPolyline(route, profile).length());
+        assertTrue(gpx.toString().length() > 5 * json.toString().length());
+    }
+
+    /**
+     * Compare la durée et la taille de l'écriture d'un itinéraire d'environ 100 000 arêtes aux formats GPX, polyligne
+     * encodée et GeoJSON.
+     */
+    public static void main(String[] args) throws IOException {
+        Route route = randomRoute(newRandom(), 1, 100_000, 0);
+        ElevationProfile profile = ElevationProfileComputer.elevationProfile(route, 5);
+        Path file = Files.createTempFile("javelo", ".out");
+        for (int round = 0; round < 5; round++) {
+            long t0 = System.nanoTime();
+            GpxGenerator.writeGpx(file, route, profile);
+            long gpxSize = Files.size(file);
+            long t1 = System.nanoTime();
+            try (var w = Files.newBufferedWriter(file)) {
+                RouteEncoder.writeEncodedPolyline(w, route, profile);
+            }
+            long polylineSize = Files.size(file);
+            long t2 = System.nanoTime();
+            RouteEncoder.writeGeoJson(file, route, profile);
+            long geoJsonSize = Files.size(file);
+            long t3 = System.nanoTime();
+            System.out.printf("GPX %d ms (%d o), polyligne %d ms (%d o), GeoJSON %d ms (%d o)%n",
+                    (t1 - t0) / 1_000_000, gpxSize, (t2 - t1) / 1_000_000, polylineSize,
+                    (t3 - t2) / 1_000_000, geoJsonSize);
+        }
+        Files.delete(file);
+    }
+}
@@ -0,0 +1,100 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.Math2;
+import ch.epfl.javelo.projection.PointCh;
+import ch.epfl.javelo.projection.SwissBounds;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentIndexTest {
+
+    private static final double CENTER_E = (SwissBounds.MIN_E + SwissBounds.MAX_E) / 2;
+    private static final double CENTER_N = (SwissBounds.MIN_N + SwissBounds.MAX_N) / 2;
+
+    //Marche aléatoire de edgesCount arêtes, de longueurs comprises entre 0 et 200 m
+    private static List<Edge> randomWalk(RandomGenerator rng, int edgesCount) {
+        List<Edge> edges = new ArrayList<>();
+        PointCh from = new PointCh(CENTER_E, CENTER_N);
+        for (int i = 0; i < edgesCount; i++) {
+            double angle = rng.nextDouble(2 * Math.PI), length = rng.nextInt(5) == 0 ? 0 : rng.nextDouble(200);
+            PointCh to = new PointCh(from.e() + length * Math.cos(angle), from.n() + length * Math.sin(angle));
+            edges.add(new Edge(i, i + 1, from, to, from.distanceTo(to), x -> Double.NaN));
+            from = to;
+        }
+        return edges;
+    }
+
+    //Recherche exhaustive, identique à celle faite par SingleRoute avant l'introduction de l'index
+    private static RoutePoint bruteForcePointClosestTo(List<Edge> edges, PointCh point) {
+        RoutePoint routePoint = RoutePoint.NONE;
+        double position = 0;
+        for (Edge edge : edges) {
+            double positionOnEdge = Math2.clamp(0, edge.positionClosestTo(point), edge.length());
+            PointCh pointOnEdge = edge.pointAt(positionOnEdge);
+            routePoint = routePoint.min(pointOnEdge, position + positionOnEdge, point.distanceTo(pointOnEdge));
+            position += edge.length();
+        }
+        return routePoint;
+    }
+
+    @Test
+    void singleRoutePointClosestToIsEqualToBruteForceSearch() {
+        var rng = newRandom();
+        for (int edgesCount : new int[]{1, 2, 15, 16, 17, 300, 3000}) {
+            List<Edge> edges = randomWalk(rng, edgesCount);
+            Route route = new SingleRoute(edges);
+            for (int i = 0; i < RANDOM_ITERATIONS / 10; i++) {
+                PointCh point = new PointCh(CENTER_E + rng.nextDouble(-5_000, 5_000),
+                        CENTER_N + rng.nextDouble(-5_000, 5_000));
+                assertEquals(bruteForcePointClosestTo(edges, point), route.pointClosestTo(point));
+            }
+        }
+    }
+
+    @Test
+    void multiRoutePointClosestToIsCloseToBruteForceSearch() {
+        var rng = newRandom();
+        List<Edge> edges = randomWalk(rng, 1000);
+        List<Route> segments = new ArrayList<>();
+        for (int i = 0; i < edges.size(); i += 50) segments.add(new SingleRoute(edges.subList(i, i + 50)));
+        Route route = new MultiRoute(segments);
+        for (int i = 0; i < RANDOM_ITERATIONS / 10; i++) {
+            PointCh point = new PointCh(CENTER_E + rng.nextDouble(-5_000, 5_000),
+                    CENTER_N + rng.nextDouble(-5_000, 5_000));
+            RoutePoint expected = bruteForcePointClosestTo(edges, point);
+            RoutePoint actual = route.pointClosestTo(point);
+            assertEquals(expected.point(), actual.point());
+            assertEquals(expected.distanceToReference(), actual.distanceToReference());
+            assertEquals(expected.position(), actual.position(), 1e-6);
+        }
+    }
+
+    /**
+     * Mesure la durée moyenne d'une recherche du point le plus proche sur un long itinéraire, avec et sans index.
+     */
+    public static void main(String[] args) {
+        var rng = newRandom();
+        List<Edge> edges = randomWalk(rng, 50_000);
+        Route route = new SingleRoute(edges);
+        PointCh[] points = new PointCh[10_000];
+        for (int i = 0; i < points.length; i++)
+            points[i] = new PointCh(CENTER_E + rng.nextDouble(-5_000, 5_000), CENTER_N + rng.nextDouble(-5_000, 5_000));
+
+        for (int round = 0; round < 5; round++) {
+            long t0 = System.nanoTime();
+            for (PointCh point : points) route.pointClosestTo(point);
+            long t1 = System.nanoTime();
+            for (int i = 0; i < points.length / 100; i++) bruteForcePointClosestTo(edges, points[i]);
+            long t2 = System.nanoTime();
+            System.out.printf("Index : %.2f µs/recherche, exhaustive : %.2f µs/recherche\n",
+                    (t1 - t0) / 1e3 / points.length, (t2 - t1) / 1e3 / (points.length / 100));
+        }
+    }
+}
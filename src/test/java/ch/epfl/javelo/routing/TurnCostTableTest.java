@@ -0,0 +1,156 @@
+package ch.epfl.javelo.routing;
+
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.test.TestGraphs;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TurnCostTableTest {
+
+    private static int edgeBetween(Graph graph, int fromNodeId, int toNodeId) {
+        for (int i = 0; i < graph.nodeOutDegree(fromNodeId); i++) {
+            int edgeId = graph.nodeOutEdgeId(fromNodeId, i);
+            if (graph.edgeTargetNodeId(edgeId) == toNodeId) return edgeId;
+        }
+        throw new IllegalArgumentException();
+    }
+
+    private static TurnCostTable singleTurn(Graph graph, int n1, int n2, int n3, float cost) {
+        return TurnCostTable.of(
+                new int[]{edgeBetween(graph, n1, n2)}, new int[]{edgeBetween(graph, n2, n3)}, new float[]{cost});
+    }
+
+    //Table interdisant tous les demi-tours du graphe
+    private static TurnCostTable noUTurns(Graph graph) {
+        int count = 0;
+        int[] from = new int[graph.edgeCount()], to = new int[graph.edgeCount()];
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+            for (int i = 0; i < graph.nodeOutDegree(nodeId); i++) {
+                int edgeId = graph.nodeOutEdgeId(nodeId, i), targetId = graph.edgeTargetNodeId(edgeId);
+                for (int j = 0; j < graph.nodeOutDegree(targetId); j++) {
+                    int nextEdgeId = graph.nodeOutEdgeId(targetId, j);
+                    if (graph.edgeTargetNodeId(nextEdgeId) != nodeId) continue;
+                    from[count] = edgeId;
+                    to[count] = nextEdgeId;
+                    count += 1;
+                }
+            }
+        }
+        float[] costs = new float[count];
+        Arrays.fill(costs, Float.POSITIVE_INFINITY);
+        return TurnCostTable.of(Arrays.copyOf(from, count), Arrays.copyOf(to, count), costs);
+    }
+
+    @Test
+    void turnCostTableReturnsCostOfGivenTurnsAndZeroOtherwise() {
+        TurnCostTable table = TurnCostTable.of(
+                new int[]{7, 3, 3}, new int[]{1, 9, 2}, new float[]{5, Float.POSITIVE_INFINITY, 0.5f});
+        assertEquals(3, table.size());
+        assertEquals(5, table.turnCost(7, 1));
+        assertEquals(Double.POSITIVE_INFINITY, table.turnCost(3, 9));
+        assertEquals(0.5, table.turnCost(3, 2));
+        assertEquals(0, table.turnCost(1, 7));
+        assertEquals(0, table.turnCost(3, 1));
+        assertEquals(0, TurnCostTable.EMPTY.turnCost(3, 9));
+    }
+
+    @Test
+    void turnCostTableThrowsOnInvalidTurns() {
+        assertThrows(IllegalArgumentException.class,
+                () -> TurnCostTable.of(new int[]{1, 1}, new int[]{2, 2}, new float[]{1, 2}));
+        assertThrows(IllegalArgumentException.class,
+                () -> TurnCostTable.of(new int[]{1}, new int[]{2}, new float[]{-1}));
+        assertThrows(IllegalArgumentException.class,
+                () -> TurnCostTable.of(new int[]{1}, new int[]{2}, new float[]{Float.NaN}));
+        assertThrows(IllegalArgumentException.class,
+                () -> TurnCostTable.of(new int[]{1}, new int[]{2, 3}, new float[]{1}));
+    }
+
+    @Test
+    void turnCostTableIsEqualAfterWriteAndLoad() throws IOException {
+        TurnCostTable table = TurnCostTable.of(
+                new int[]{7, 3, 3}, new int[]{1, 9, 2}, new float[]{5, Float.POSITIVE_INFINITY, 0.5f});
+        Path file = Files.createTempFile("turn_costs", ".bin");
+        try {
+            table.writeTo(file);
+            assertEquals(3 * 12, Files.size(file));
+            TurnCostTable loaded = TurnCostTable.loadFrom(file);
+            assertEquals(table.size(), loaded.size());
+            assertEquals(5, loaded.turnCost(7, 1));
+            assertEquals(Double.POSITIVE_INFINITY, loaded.turnCost(3, 9));
+            assertEquals(0.5, loaded.turnCost(3, 2));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void edgeBasedSearchWithoutTurnCostsFindsRouteOfSameLength() {
+        Graph graph = TestGraphs.grid(6, 6, 100);
+        RouteComputer routeComputer = new RouteComputer(graph, new CityBikeCF(graph));
+        for (int endNodeId = 1; endNodeId < graph.nodeCount(); endNodeId++) {
+            Route expected = routeComputer.bestRouteBetween(0, endNodeId);
+            Route actual = routeComputer.bestRouteBetween(0, endNodeId, new CityBikeCF(graph), TurnCostTable.EMPTY);
+            assertEquals(expected.length(), actual.length());
+            assertEquals(expected.pointAt(0), actual.pointAt(0));
+            assertEquals(expected.pointAt(expected.length()), actual.pointAt(actual.length()));
+        }
+    }
+
+    @Test
+    void edgeBasedSearchAvoidsForbiddenAndExpensiveTurns() {
+        Graph graph = TestGraphs.grid(3, 3, 100);
+        RouteComputer routeComputer = new RouteComputer(graph, (nodeId, edgeId) -> 1);
+        CostFunction costFunction = (nodeId, edgeId) -> 1;
+
+        assertEquals(200, routeComputer.bestRouteBetween(0, 2, costFunction, TurnCostTable.EMPTY).length());
+        assertEquals(200, routeComputer.bestRouteBetween(0, 2, costFunction, singleTurn(graph, 0, 1, 2, 150)).length());
+        assertEquals(400, routeComputer.bestRouteBetween(0, 2, costFunction, singleTurn(graph, 0, 1, 2, 250)).length());
+        assertEquals(400, routeComputer.bestRouteBetween(0, 2, costFunction,
+                singleTurn(graph, 0, 1, 2, Float.POSITIVE_INFINITY)).length());
+    }
+
+    @Test
+    void edgeBasedSearchReturnsNullWhenEveryTurnIsForbidden() {
+        Graph graph = TestGraphs.grid(3, 1, 100);
+        RouteComputer routeComputer = new RouteComputer(graph, (nodeId, edgeId) -> 1);
+        TurnCostTable table = singleTurn(graph, 0, 1, 2, Float.POSITIVE_INFINITY);
+        assertNull(routeComputer.bestRouteBetween(0, 2, (nodeId, edgeId) -> 1, table));
+        assertEquals(100, routeComputer.bestRouteBetween(0, 1, (nodeId, edgeId) -> 1, table).length());
+    }
+
+    /**
+     * Mesure le surcoût de la recherche sur les arêtes, tenant compte des virages, par rapport à la recherche sur les
+     * nœuds, sur une grande grille dont tous les demi-tours sont interdits.
+     */
+    public static void main(String[] args) {
+        Graph graph = TestGraphs.grid(300, 300, 100);
+        CostFunction costFunction = CostTable.of(graph, new CityBikeCF(graph));
+        TurnCostTable turnCosts = noUTurns(graph);
+        RouteComputer routeComputer = new RouteComputer(graph, costFunction);
+
+        Random rng = new Random(2022);
+        int[][] queries = new int[200][2];
+        for (int[] query : queries) {
+            query[0] = rng.nextInt(graph.nodeCount());
+            do query[1] = rng.nextInt(graph.nodeCount()); while (query[1] == query[0]);
+        }
+
+        for (int round = 0; round < 3; round++) {
+            long t0 = System.nanoTime();
+            for (int[] query : queries) routeComputer.bestRouteBetween(query[0], query[1]);
+            long t1 = System.nanoTime();
+            for (int[] query : queries) routeComputer.bestRouteBetween(query[0], query[1], costFunction, turnCosts);
+            long t2 = System.nanoTime();
+            System.out.printf("Nœuds : %d µs/itinéraire, arêtes : %d µs/itinéraire (%d virages)\n",
+                    (t1 - t0) / 1_000 / queries.length, (t2 - t1) / 1_000 / queries.length, turnCosts.size());
+        }
+    }
+}
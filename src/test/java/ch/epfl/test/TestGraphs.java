@@ -0,0 +1,59 @@
+package ch.epfl.test;
+
+import ch.epfl.javelo.data.Attribute;
+import ch.epfl.javelo.data.AttributeSet;
+import ch.epfl.javelo.data.Graph;
+import ch.epfl.javelo.data.GraphEdges;
+import ch.epfl.javelo.data.GraphNodes;
+import ch.epfl.javelo.data.GraphSectors;
+import ch.epfl.javelo.projection.SwissBounds;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.List;
+
+public final class TestGraphs {
+    private static final int SECTORS_COUNT = 128 * 128;
+
+    private TestGraphs() {}
+
+    // Node (x, y) has identity y * width + x and is located spacing * (x, y) meters
+    // from the south-west corner of Switzerland. Every node has an edge to each of its
+    // (up to four) neighbours, in the order east, west, north, south.
+    public static Graph grid(int width, int height, int spacing) {
+        int nodeCount = width * height;
+        IntBuffer nodes = IntBuffer.allocate(3 * nodeCount);
+        ByteBuffer edges = ByteBuffer.allocate(10 * 4 * nodeCount);
+        int edgeCount = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int firstEdgeId = edgeCount;
+                int[][] neighbours = {{x + 1, y}, {x - 1, y}, {x, y + 1}, {x, y - 1}};
+                for (int[] n : neighbours) {
+                    if (n[0] < 0 || n[0] >= width || n[1] < 0 || n[1] >= height) continue;
+                    edges.putInt(10 * edgeCount, n[1] * width + n[0]);
+                    edges.putShort(10 * edgeCount + 4, (short) (spacing << 4));
+                    edges.putShort(10 * edgeCount + 6, (short) 0);
+                    edges.putShort(10 * edgeCount + 8, (short) 0);
+                    edgeCount += 1;
+                }
+                nodes.put((int) (SwissBounds.MIN_E + x * spacing) << 4);
+                nodes.put((int) (SwissBounds.MIN_N + y * spacing) << 4);
+                nodes.put(((edgeCount - firstEdgeId) << 28) | firstEdgeId);
+            }
+        }
+
+        ByteBuffer sectors = ByteBuffer.allocate(6 * SECTORS_COUNT);
+        for (int i = 0; i < SECTORS_COUNT; i++) {
+            sectors.putInt(i == 0 ? 0 : nodeCount);
+            sectors.putShort((short) (i == 0 ? nodeCount : 0));
+        }
+
+        return new Graph(
+                new GraphNodes(nodes.rewind()),
+                new GraphSectors(sectors.rewind()),
+                new GraphEdges(edges.slice(0, 10 * edgeCount), IntBuffer.allocate(edgeCount), ShortBuffer.allocate(0)),
+                List.of(AttributeSet.of(Attribute.HIGHWAY_RESIDENTIAL)));
+    }
+}
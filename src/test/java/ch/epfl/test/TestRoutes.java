@@ -0,0 +1,45 @@
+package ch.epfl.test;
+
+import ch.epfl.javelo.Functions;
+import ch.epfl.javelo.projection.PointCh;
+import ch.epfl.javelo.projection.SwissBounds;
+import ch.epfl.javelo.routing.Edge;
+import ch.epfl.javelo.routing.MultiRoute;
+import ch.epfl.javelo.routing.Route;
+import ch.epfl.javelo.routing.SingleRoute;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleUnaryOperator;
+import java.util.random.RandomGenerator;
+
+public final class TestRoutes {
+    private TestRoutes() {}
+
+    // Random walk of segments * edgesPerSegment edges of at most about 140 m each, starting
+    // 50 km from the south-west corner of Switzerland. Each edge has no profile (NaN) with
+    // probability noProfileRatio, and a profile of 2 to 11 random samples between 400 and
+    // 500 m otherwise. A single segment gives a SingleRoute, several a MultiRoute.
+    public static Route randomRoute(RandomGenerator rng, int segments, int edgesPerSegment, double noProfileRatio) {
+        List<Route> routes = new ArrayList<>();
+        PointCh from = new PointCh(SwissBounds.MIN_E + 50_000, SwissBounds.MIN_N + 50_000);
+        int nodeId = 0;
+        for (int s = 0; s < segments; s++) {
+            List<Edge> edges = new ArrayList<>();
+            for (int i = 0; i < edgesPerSegment; i++) {
+                PointCh to = new PointCh(from.e() + rng.nextDouble(-100, 100), from.n() + rng.nextDouble(-100, 100));
+                double length = from.distanceTo(to);
+                float[] samples = new float[2 + rng.nextInt(10)];
+                for (int j = 0; j < samples.length; j++) samples[j] = 400 + rng.nextFloat() * 100;
+                DoubleUnaryOperator profile = rng.nextDouble() < noProfileRatio
+                        ? Functions.constant(Double.NaN)
+                        : Functions.sampled(samples, length);
+                edges.add(new Edge(nodeId, nodeId + 1, from, to, length, profile));
+                nodeId += 1;
+                from = to;
+            }
+            routes.add(new SingleRoute(edges));
+        }
+        return routes.size() == 1 ? routes.get(0) : new MultiRoute(routes);
+    }
+}